@@ -0,0 +1,99 @@
+package org.test.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.test.graphics.DrawUtils;
+import org.test.graphics.HalfSpaceRasterizer;
+import org.test.graphics.Texture;
+import org.test.graphics.TextureFilter;
+import org.test.graphics.ZBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.test.graphics.ColorUtils.CD_WHITE;
+import static org.test.renderer.PanelConfig.getImageHeight;
+import static org.test.renderer.PanelConfig.getImageWidth;
+
+/**
+ * Benchmarks the triangle and line rasterization routines of DrawUtils and the HalfSpaceRasterizer
+ * on a single large primitive.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class DrawUtilsBenchmark
+{
+    @Param({"NEAREST", "BILINEAR"})
+    public TextureFilter filter;
+
+    private int[] pixels;
+    private ZBuffer zBuffer;
+    private Texture texture;
+    private double depth;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        pixels = new int[(int) getImageWidth() * (int) getImageHeight()];
+        zBuffer = new ZBuffer((int) getImageWidth(), (int) getImageHeight());
+        texture = Fixture.CAR4.loadTexture();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetDepth()
+    {
+        zBuffer.resetBuffer();
+        depth = 1.0;
+    }
+
+    @Benchmark
+    public int[] texturedTriangle()
+    {
+        // u, v and w are scaled together, so the texture lookup stays the same while every
+        // invocation is nearer than the last one and passes the depth test
+        depth *= 1.000001;
+        DrawUtils.TexturedTriangle(
+                100, 100, 0.0, 0.0, depth,
+                700, 150, depth, 0.0, depth,
+                300, 600, 0.0, depth, depth,
+                texture, 0, false, false, pixels, zBuffer, 1.0,
+                0, 0, (int) getImageWidth() - 1, (int) getImageHeight() - 1, 0, filter, CD_WHITE);
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] halfSpaceTriangle()
+    {
+        depth *= 1.000001;
+        HalfSpaceRasterizer.texturedTriangle(
+                100, 100, 0.0, 0.0, depth,
+                700, 150, depth, 0.0, depth,
+                300, 600, 0.0, depth, depth,
+                texture, 0, false, false, pixels, zBuffer, 1.0,
+                0, 0, (int) getImageWidth() - 1, (int) getImageHeight() - 1, filter, CD_WHITE);
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] fillTriangle()
+    {
+        DrawUtils.slFillTriangle(pixels, 100, 100, 700, 150, 300, 600, CD_WHITE, zBuffer);
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] drawLine()
+    {
+        DrawUtils.slDrawLine(pixels, 10, 20, 1200, 900, CD_WHITE);
+        return pixels;
+    }
+
+    @Benchmark
+    public ZBuffer resetDepthBuffer()
+    {
+        zBuffer.resetBuffer();
+        return zBuffer;
+    }
+}
@@ -0,0 +1,70 @@
+package org.test.benchmark;
+
+import org.test.graphics.Texture;
+import org.test.graphics.TextureCache;
+import org.test.math.triangle.DrawMode;
+import org.test.math.triangle.Mesh;
+import org.test.math.vector.Vector3D;
+
+/**
+ * The bundled assets used as benchmark fixtures, together with a camera position that keeps the model in view.
+ */
+public enum Fixture
+{
+    TEAPOT("./assets/teapot.obj", null, new Vector3D(0, 0, -5)),
+    MOUNTAINS("./assets/mountains.obj", null, new Vector3D(0, 0, -120)),
+    CAR4("./assets/car4/car4.obj", "./assets/car4/car4.png", new Vector3D(0, 0, -5));
+
+    private final String objFile;
+    private final String textureFile;
+    private final Vector3D cameraPosition;
+
+    Fixture(String objFile, String textureFile, Vector3D cameraPosition)
+    {
+        this.objFile = objFile;
+        this.textureFile = textureFile;
+        this.cameraPosition = cameraPosition;
+    }
+
+    /**
+     * Loads the fixture as a mesh, textured fixtures are drawn textured, all others as filled surfaces.
+     *
+     * @return The loaded mesh.
+     */
+    public Mesh loadMesh()
+    {
+        if (!isTextured())
+        {
+            return Mesh.loadOBJFile(objFile, false, DrawMode.SURFACE);
+        }
+
+        Mesh mesh = Mesh.loadOBJFile(objFile, true, DrawMode.TEXTURED);
+        mesh.texture = loadTexture();
+        return mesh;
+    }
+
+    /**
+     * Loads the texture of a textured fixture.
+     *
+     * @return The texture of the fixture.
+     */
+    public Texture loadTexture()
+    {
+        return TextureCache.getInstance().acquire(textureFile);
+    }
+
+    public boolean isTextured()
+    {
+        return textureFile != null;
+    }
+
+    public String getObjFile()
+    {
+        return objFile;
+    }
+
+    public Vector3D getCameraPosition()
+    {
+        return cameraPosition.clone();
+    }
+}
@@ -0,0 +1,100 @@
+package org.test.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.test.math.matrix.FlatMatrix4x4;
+import org.test.math.matrix.Matrix4x4;
+import org.test.math.triangle.Triangle;
+import org.test.math.vector.Vector2D;
+import org.test.math.vector.Vector3D;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.test.math.triangle.Triangle.getNearestPlane;
+
+/**
+ * Benchmarks the per vertex and per triangle math used by the geometry stage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GeometryBenchmark
+{
+    private final Vector3D planeP = new Vector3D(0, 0, 0.1);
+    private final Vector3D planeN = new Vector3D(0, 0, 1);
+
+    private final Vector3D out = new Vector3D();
+    private final Triangle[] clipped = getNearestPlane();
+
+    private Matrix4x4 matrix;
+    private FlatMatrix4x4 flatMatrix;
+    private Vector3D vector;
+    private Triangle inside;
+    private Triangle oneInside;
+    private Triangle twoInside;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        matrix = Matrix4x4.rotateMatrixX(0.3)
+                .multiplyMatrix(Matrix4x4.rotateMatrixY(0.7))
+                .multiplyMatrix(Matrix4x4.translationMatrix(1, 2, 5));
+        flatMatrix = new FlatMatrix4x4(matrix);
+        vector = new Vector3D(1.5, -2.0, 3.25);
+
+        inside = triangle(1, 2, 3);
+        oneInside = triangle(1, -2, -3);
+        twoInside = triangle(1, 2, -3);
+    }
+
+    private static Triangle triangle(double z1, double z2, double z3)
+    {
+        return new Triangle(
+                new Vector3D(0, 0, z1), new Vector3D(1, 0, z2), new Vector3D(0, 1, z3),
+                new Vector2D(0, 0), new Vector2D(1, 0), new Vector2D(0, 1));
+    }
+
+    @Benchmark
+    public Vector3D multiplyMatrixVector()
+    {
+        return matrix.multiplyMatrixVector(vector);
+    }
+
+    @Benchmark
+    public Vector3D transformInto()
+    {
+        return flatMatrix.transformInto(vector, out);
+    }
+
+    @Benchmark
+    public int clipAllInside()
+    {
+        return inside.triangleClipAgainstPlane(planeP, planeN, getNearestPlane());
+    }
+
+    @Benchmark
+    public int clipOneInside()
+    {
+        return oneInside.triangleClipAgainstPlane(planeP, planeN, getNearestPlane());
+    }
+
+    @Benchmark
+    public int clipTwoInside()
+    {
+        return twoInside.triangleClipAgainstPlane(planeP, planeN, getNearestPlane());
+    }
+
+    @Benchmark
+    public int clipIntoOneInside()
+    {
+        return oneInside.triangleClipAgainstPlaneInto(planeP, planeN, clipped);
+    }
+
+    @Benchmark
+    public int clipIntoTwoInside()
+    {
+        return twoInside.triangleClipAgainstPlaneInto(planeP, planeN, clipped);
+    }
+}
@@ -0,0 +1,45 @@
+package org.test.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.test.math.triangle.Mesh;
+import org.test.math.triangle.MeshCache;
+import org.test.math.triangle.ObjModel;
+import org.test.math.triangle.ObjParser;
+import org.test.math.triangle.Triangle;
+import org.test.math.triangle.VertexBuffer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing the bundled OBJ assets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MeshLoadBenchmark
+{
+    @Param({"TEAPOT", "MOUNTAINS", "CAR4"})
+    public Fixture fixture;
+
+    @Benchmark
+    public List<Triangle> readOBJFile()
+    {
+        return Mesh.ReadOBJFile(fixture.getObjFile(), fixture.isTextured());
+    }
+
+    @Benchmark
+    public ObjModel parseObj()
+    {
+        return ObjParser.parse(fixture.getObjFile());
+    }
+
+    @Benchmark
+    public VertexBuffer loadCached()
+    {
+        return MeshCache.load(fixture.getObjFile(), fixture.isTextured());
+    }
+}
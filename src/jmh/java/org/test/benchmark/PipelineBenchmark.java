@@ -0,0 +1,85 @@
+package org.test.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.test.graphics.RasterAlgorithm;
+import org.test.math.triangle.DrawMode;
+import org.test.math.triangle.PolygonGroup;
+import org.test.math.triangle.Triangle;
+import org.test.renderdata.RenderSettings;
+import org.test.renderer.RasterAssembler;
+import org.test.renderer.Rasterizer;
+import org.test.renderer.Renderer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the geometry stage (Rasterizer.raster) and the raster stage (Renderer.render) of a full frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PipelineBenchmark
+{
+    @Param({"TEAPOT", "MOUNTAINS", "CAR4"})
+    public Fixture fixture;
+
+    @Param({"SCANLINE", "HALF_SPACE"})
+    public RasterAlgorithm rasterAlgorithm;
+
+    @Param({"true", "false"})
+    public boolean hierarchicalDepth;
+
+    @Param({"false", "true"})
+    public boolean visibilityBuffer;
+
+    @Param({"false", "true"})
+    public boolean frontToBack;
+
+    private Rasterizer rasterizer;
+    private Renderer renderer;
+    private Map<List<Triangle>, DrawMode> trisToRender;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        RenderSettings settings = RenderSettings.getInstance();
+
+        PolygonGroup polygonGroup = new PolygonGroup();
+        polygonGroup.addMesh(fixture.loadMesh());
+        settings.setPolygonGroup(polygonGroup);
+        settings.getvCamera().setPosition(fixture.getCameraPosition());
+        settings.setRasterAlgorithm(rasterAlgorithm);
+        settings.setHierarchicalDepth(hierarchicalDepth);
+        settings.setVisibilityBuffer(visibilityBuffer);
+        settings.setFrontToBack(frontToBack);
+
+        rasterizer = new Rasterizer(new RasterAssembler());
+        renderer = new Renderer();
+        trisToRender = rasterizer.raster();
+    }
+
+    @Benchmark
+    public Map<List<Triangle>, DrawMode> raster()
+    {
+        return rasterizer.raster();
+    }
+
+    @Benchmark
+    public int[] render()
+    {
+        renderer.render(trisToRender);
+        return RenderSettings.getInstance().getPixels();
+    }
+
+    @Benchmark
+    public int[] frame()
+    {
+        renderer.render(rasterizer.raster());
+        return RenderSettings.getInstance().getPixels();
+    }
+}
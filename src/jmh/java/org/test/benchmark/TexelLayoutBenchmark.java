@@ -0,0 +1,124 @@
+package org.test.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.test.graphics.DrawUtils;
+import org.test.graphics.HalfSpaceRasterizer;
+import org.test.graphics.TexelLayout;
+import org.test.graphics.Texture;
+import org.test.graphics.TextureFormat;
+import org.test.graphics.ZBuffer;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.test.renderer.PanelConfig.getImageHeight;
+import static org.test.renderer.PanelConfig.getImageWidth;
+
+/**
+ * Compares row major and Morton ordered texels on a square of texels about as large as the pixels, rotated on the
+ * screen. Without rotation both layouts read the texels of a span one after the other; the more the square is rotated,
+ * the further the texels of neighbouring pixels are apart in a row major texture. The compact formats need less
+ * memory traffic for the same texels, but decode every texel they read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TexelLayoutBenchmark
+{
+    // larger than the caches, so the layout decides how many texels are read from memory
+    private static final int TEXTURE_SIZE = 2048;
+    private static final int QUAD_SIZE = 1024;
+
+    @Param({"ROW_MAJOR", "MORTON"})
+    public TexelLayout layout;
+
+    @Param({"0", "45", "90"})
+    public int angle;
+
+    @Param({"INT_RGB", "PALETTE8", "RGB565", "BLOCK_COMPRESSED"})
+    public TextureFormat format;
+
+    private int[] pixels;
+    private ZBuffer zBuffer;
+    private Texture texture;
+    // screen x, y and texture u, v of the four corners
+    private final int[] x = new int[4];
+    private final int[] y = new int[4];
+    private final double[] u = new double[4];
+    private final double[] v = new double[4];
+    private double depth;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        pixels = new int[(int) getImageWidth() * (int) getImageHeight()];
+        zBuffer = new ZBuffer((int) getImageWidth(), (int) getImageHeight());
+
+        BufferedImage img = new BufferedImage(TEXTURE_SIZE, TEXTURE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(1);
+        for (int ty = 0; ty < TEXTURE_SIZE; ty++)
+        {
+            for (int tx = 0; tx < TEXTURE_SIZE; tx++)
+            {
+                img.setRGB(tx, ty, random.nextInt(0x1000000));
+            }
+        }
+        texture = new Texture(img, layout, format);
+
+        double cos = Math.cos(Math.toRadians(angle)), sin = Math.sin(Math.toRadians(angle));
+        int centerX = (int) getImageWidth() / 2, centerY = (int) getImageHeight() / 2;
+        int[][] corners = {{-1, -1}, {1, -1}, {1, 1}, {-1, 1}};
+        for (int i = 0; i < 4; i++)
+        {
+            double dx = corners[i][0] * QUAD_SIZE / 2.0, dy = corners[i][1] * QUAD_SIZE / 2.0;
+            x[i] = centerX + (int) dx;
+            y[i] = centerY + (int) dy;
+            u[i] = 0.5 + (cos * dx - sin * dy) / TEXTURE_SIZE;
+            v[i] = 0.5 + (sin * dx + cos * dy) / TEXTURE_SIZE;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetDepth()
+    {
+        zBuffer.resetBuffer();
+        depth = 1.0;
+    }
+
+    @Benchmark
+    public int[] halfSpaceQuad()
+    {
+        // u, v and w are scaled together, so the texture lookup stays the same while every
+        // invocation is nearer than the last one and passes the depth test
+        depth *= 1.000001;
+        for (int i = 1; i < 3; i++)
+        {
+            HalfSpaceRasterizer.texturedTriangle(
+                    x[0], y[0], u[0] * depth, v[0] * depth, depth,
+                    x[i], y[i], u[i] * depth, v[i] * depth, depth,
+                    x[i + 1], y[i + 1], u[i + 1] * depth, v[i + 1] * depth, depth,
+                    texture, 0, false, false, pixels, zBuffer, 1.0,
+                    0, 0, (int) getImageWidth() - 1, (int) getImageHeight() - 1);
+        }
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] scanlineQuad()
+    {
+        depth *= 1.000001;
+        for (int i = 1; i < 3; i++)
+        {
+            DrawUtils.TexturedTriangle(
+                    x[0], y[0], u[0] * depth, v[0] * depth, depth,
+                    x[i], y[i], u[i] * depth, v[i] * depth, depth,
+                    x[i + 1], y[i + 1], u[i + 1] * depth, v[i + 1] * depth, depth,
+                    texture, 0, false, false, pixels, zBuffer, 1.0);
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,149 @@
+package org.test.graphics;
+
+/**
+ * Encodes and decodes the texels of {@link TextureFormat#BLOCK_COMPRESSED} textures.
+ * <p>
+ * The texture is split into blocks of 4 x 4 texels, stored row by row. Every block takes two ints: the first holds
+ * two end colors as {@link ColorUtils#toRgb565 RGB565} in its upper and lower half, the second a 2 bit index for
+ * every texel, texel (x, y) of the block at bit 2 * (x + 4 * y). An index selects the first end color, the second,
+ * or the colors a third and two thirds of the way between them, like the opaque mode of BC1.
+ */
+final class BlockCompression
+{
+    static final int BLOCK_SIZE = 4;
+    // the weights of the second end color for the four indices
+    private static final int[] WEIGHTS = {0, 256, 85, 171};
+
+    private BlockCompression()
+    {
+    }
+
+    /**
+     * @return The number of blocks needed for one row of texels, the last block of a row may be partially used.
+     */
+    static int getBlocksPerRow(int width)
+    {
+        return (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Compresses row major texels. The end colors of a block are the two of its texels that differ the most,
+     * every texel then picks the nearest of the four colors between them.
+     *
+     * @return Two ints for every block.
+     */
+    static int[] encode(int[] texels, int width, int height)
+    {
+        int blocksPerRow = getBlocksPerRow(width), blockRows = getBlocksPerRow(height);
+        int[] blocks = new int[blocksPerRow * blockRows * 2];
+        int[] block = new int[BLOCK_SIZE * BLOCK_SIZE];
+        int[] colors = new int[WEIGHTS.length];
+
+        for (int by = 0; by < blockRows; by++)
+        {
+            for (int bx = 0; bx < blocksPerRow; bx++)
+            {
+                // blocks beyond the edge of a small texture repeat its last texels
+                for (int i = 0; i < block.length; i++)
+                {
+                    int x = Math.min(bx * BLOCK_SIZE + (i & 3), width - 1);
+                    int y = Math.min(by * BLOCK_SIZE + (i >> 2), height - 1);
+                    block[i] = texels[x + y * width];
+                }
+
+                encodeBlock(block, colors, blocks, (bx + by * blocksPerRow) * 2);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Replaces one texel of compressed texels. The block holding it is decoded, changed and encoded again,
+     * so the other texels of the block may change as well when they need different end colors.
+     *
+     * @param blocks The blocks returned by {@link #encode}.
+     * @param width  The width of the texture.
+     * @param height The height of the texture.
+     * @param x      The x coordinate of the texel.
+     * @param y      The y coordinate of the texel.
+     * @param col    The new RGB color of the texel.
+     */
+    static void setTexel(int[] blocks, int width, int height, int x, int y, int col)
+    {
+        int blocksPerRow = getBlocksPerRow(width);
+        int[] block = new int[BLOCK_SIZE * BLOCK_SIZE];
+        for (int i = 0; i < block.length; i++)
+        {
+            // clamped like in encode, so the texels beyond the edge follow the changed one
+            int tx = Math.min((x & ~3) + (i & 3), width - 1);
+            int ty = Math.min((y & ~3) + (i >> 2), height - 1);
+            block[i] = tx == x && ty == y ? col : decode(blocks, blocksPerRow, tx, ty);
+        }
+        encodeBlock(block, new int[WEIGHTS.length], blocks, ((x >> 2) + (y >> 2) * blocksPerRow) * 2);
+    }
+
+    /**
+     * Compresses the 16 texels of one block into the two ints at index b.
+     */
+    private static void encodeBlock(int[] block, int[] colors, int[] blocks, int b)
+    {
+        int first = 0, second = 0, maxDistance = -1;
+        for (int i = 0; i < block.length; i++)
+        {
+            for (int j = i + 1; j < block.length; j++)
+            {
+                int distance = ColorUtils.distanceSquared(block[i], block[j]);
+                if (distance > maxDistance)
+                {
+                    maxDistance = distance;
+                    first = i;
+                    second = j;
+                }
+            }
+        }
+
+        int endpoints = ColorUtils.toRgb565(block[first]) << 16 | ColorUtils.toRgb565(block[second]);
+        for (int c = 0; c < colors.length; c++)
+        {
+            colors[c] = color(endpoints, c);
+        }
+
+        int indices = 0;
+        for (int i = 0; i < block.length; i++)
+        {
+            int best = 0;
+            for (int c = 1; c < colors.length; c++)
+            {
+                if (ColorUtils.distanceSquared(block[i], colors[c]) < ColorUtils.distanceSquared(block[i], colors[best]))
+                {
+                    best = c;
+                }
+            }
+            indices |= best << (2 * i);
+        }
+
+        blocks[b] = endpoints;
+        blocks[b + 1] = indices;
+    }
+
+    /**
+     * Decodes a single texel.
+     *
+     * @param blocks       The blocks returned by {@link #encode}.
+     * @param blocksPerRow The number of blocks in a row of the texture.
+     * @param x            The x coordinate of the texel.
+     * @param y            The y coordinate of the texel.
+     * @return The RGB color of the texel.
+     */
+    static int decode(int[] blocks, int blocksPerRow, int x, int y)
+    {
+        int b = ((x >> 2) + (y >> 2) * blocksPerRow) * 2;
+        int index = (blocks[b + 1] >>> (((x & 3) + ((y & 3) << 2)) << 1)) & 3;
+        return color(blocks[b], index);
+    }
+
+    private static int color(int endpoints, int index)
+    {
+        return ColorUtils.lerp(ColorUtils.fromRgb565(endpoints >>> 16), ColorUtils.fromRgb565(endpoints & 0xFFFF), WEIGHTS[index]);
+    }
+}
@@ -55,6 +55,74 @@ public class ColorUtils
         return assembleColor(a, r, g, b);
     }
 
+    /**
+     * Interpolates linearly between two colors with a fixed point weight. Red and blue as well as alpha and green
+     * are computed together in one int each, their products never overflow into the neighbouring channel.
+     *
+     * @param col    The first color.
+     * @param col2   The second color.
+     * @param weight The weight of the second color, from 0 to 256.
+     * @return The interpolated color, every channel rounded to the nearest value.
+     */
+    public static int lerp(int col, int col2, int weight)
+    {
+        int inverse = 256 - weight;
+        int rb = ((col & 0xFF00FF) * inverse + (col2 & 0xFF00FF) * weight + 0x800080) >>> 8;
+        int ag = ((col >>> 8) & 0xFF00FF) * inverse + ((col2 >>> 8) & 0xFF00FF) * weight + 0x800080;
+        return (ag & 0xFF00FF00) | (rb & 0xFF00FF);
+    }
+
+    /**
+     * Scales the red, green and blue channels of a color by the channels of a tint, so white keeps the color
+     * and black turns it black. Unlike {@link #multiply} the result stays within 0 to 255 and nothing is allocated.
+     *
+     * @param col  The color.
+     * @param tint The tint, its alpha is ignored.
+     * @return The tinted color with the alpha of the color.
+     */
+    public static int modulate(int col, int tint)
+    {
+        int r = ((col >> 16) & 0xFF) * (((tint >> 16) & 0xFF) + 1) >> 8;
+        int g = ((col >> 8) & 0xFF) * (((tint >> 8) & 0xFF) + 1) >> 8;
+        int b = (col & 0xFF) * ((tint & 0xFF) + 1) >> 8;
+        return (col & 0xFF000000) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * @return The squared euclidean distance of the red, green and blue components of two colors.
+     */
+    public static int distanceSquared(int col, int col2)
+    {
+        int r = ((col >> 16) & 0xFF) - ((col2 >> 16) & 0xFF);
+        int g = ((col >> 8) & 0xFF) - ((col2 >> 8) & 0xFF);
+        int b = (col & 0xFF) - (col2 & 0xFF);
+        return r * r + g * g + b * b;
+    }
+
+    /**
+     * Reduces a color to 5 bits of red, 6 bits of green and 5 bits of blue, alpha is dropped.
+     *
+     * @param col The color.
+     * @return The color in the lower 16 bits.
+     */
+    public static int toRgb565(int col)
+    {
+        return ((col >> 8) & 0xF800) | ((col >> 5) & 0x7E0) | ((col >> 3) & 0x1F);
+    }
+
+    /**
+     * Expands a color of {@link #toRgb565} back to 8 bits per channel by repeating the upper bits in the lower ones,
+     * so black and white stay exact.
+     *
+     * @param col The color in the lower 16 bits.
+     * @return The RGB color.
+     */
+    public static int fromRgb565(int col)
+    {
+        int r = (col >> 11) & 0x1F, g = (col >> 5) & 0x3F, b = col & 0x1F;
+        return ((r << 3 | r >> 2) << 16) | ((g << 2 | g >> 4) << 8) | (b << 3 | b >> 2);
+    }
+
     /**
      * Blends two colors together using a specified ratio.
      *
@@ -6,6 +6,7 @@ import static org.test.graphics.ColorUtils.CD_GRAY;
 import static org.test.graphics.ColorUtils.CD_WHITE;
 import static org.test.graphics.ColorUtils.blend;
 import static org.test.graphics.ColorUtils.dotColor;
+import static org.test.graphics.ColorUtils.modulate;
 
 import java.awt.Graphics2D;
 import java.awt.Image;
@@ -13,6 +14,9 @@ import java.awt.image.BufferedImage;
 
 public class DrawUtils
 {
+    // the color fogged pixels fade into
+    private static final int FOG_COLOR = blend(CD_GRAY, CD_WHITE, 0.4);
+
     public static void draw(int[] pixels, int x, int y, int col)
     {
         if (x >= 0 && y >= 0 && x < getImageWidth() - 1 && y < getImageHeight() - 1)
@@ -21,14 +25,35 @@ public class DrawUtils
         }
     }
 
+    // Draws only inside the clip rectangle, minX and minY are inclusive, maxX and maxY exclusive
+    public static void draw(int[] pixels, int x, int y, int col, int minX, int minY, int maxX, int maxY)
+    {
+        if (x >= minX && y >= minY && x < maxX && y < maxY)
+        {
+            pixels[x + y * (int) getImageWidth()] = col;
+        }
+    }
+
     public static void slDrawTriangle(int[] pixels, int x1, int y1, int x2, int y2, int x3, int y3, int col)
     {
-        slDrawLine(pixels, x1, y1, x2, y2, col);
-        slDrawLine(pixels, x2, y2, x3, y3, col);
-        slDrawLine(pixels, x3, y3, x1, y1, col);
+        slDrawTriangle(pixels, x1, y1, x2, y2, x3, y3, col, 0, 0, (int) getImageWidth() - 1, (int) getImageHeight() - 1);
+    }
+
+    public static void slDrawTriangle(int[] pixels, int x1, int y1, int x2, int y2, int x3, int y3, int col,
+                                      int minX, int minY, int maxX, int maxY)
+    {
+        slDrawLine(pixels, x1, y1, x2, y2, col, minX, minY, maxX, maxY);
+        slDrawLine(pixels, x2, y2, x3, y3, col, minX, minY, maxX, maxY);
+        slDrawLine(pixels, x3, y3, x1, y1, col, minX, minY, maxX, maxY);
     }
 
     public static void slDrawLine(int[] pixels, int x0, int y0, int x1, int y1, int color)
+    {
+        slDrawLine(pixels, x0, y0, x1, y1, color, 0, 0, (int) getImageWidth() - 1, (int) getImageHeight() - 1);
+    }
+
+    public static void slDrawLine(int[] pixels, int x0, int y0, int x1, int y1, int color,
+                                  int minX, int minY, int maxX, int maxY)
     {
         int dy = y1 - y0;
         int dx = x1 - x0;
@@ -51,7 +76,7 @@ public class DrawUtils
         dy <<= 1;
         dx <<= 1;
 
-        draw(pixels, x0, y0, color);
+        draw(pixels, x0, y0, color, minX, minY, maxX, maxY);
         if (dx > dy)
         {
             int frac = dy - (dx >> 1);
@@ -64,7 +89,7 @@ public class DrawUtils
                 }
                 x0 += sx;
                 frac += dy;
-                draw(pixels, x0, y0, color);
+                draw(pixels, x0, y0, color, minX, minY, maxX, maxY);
             }
         } else
         {
@@ -78,7 +103,7 @@ public class DrawUtils
                 }
                 y0 += sy;
                 frac += dx;
-                draw(pixels, x0, y0, color);
+                draw(pixels, x0, y0, color, minX, minY, maxX, maxY);
             }
         }
     }
@@ -106,6 +131,12 @@ public class DrawUtils
     }
 
     public static void slFillTriangle(int[] canvas, int x1, int y1, int x2, int y2, int x3, int y3, int col, ZBuffer zBuffer)
+    {
+        slFillTriangle(canvas, x1, y1, x2, y2, x3, y3, col, zBuffer, 0, 0, (int) getImageWidth() - 1, (int) getImageHeight() - 1);
+    }
+
+    public static void slFillTriangle(int[] canvas, int x1, int y1, int x2, int y2, int x3, int y3, int col, ZBuffer zBuffer,
+                                      int minX, int minY, int maxX, int maxY)
     {
         int t1x = 0, t2x = 0, y = 0, minx = 0, maxx = 0, t1xp = 0, t2xp = 0;
         boolean changed1 = false;
@@ -228,7 +259,7 @@ public class DrawUtils
                 if (minx > t2x) minx = t2x;
                 if (maxx < t1x) maxx = t1x;
                 if (maxx < t2x) maxx = t2x;
-                drawLine(canvas, minx, maxx, y, col);    // Draw line from min to max points found on the y
+                drawLine(canvas, minx, maxx, y, col, minX, minY, maxX, maxY);    // Draw line from min to max points found on the y
                 // Now increase y
                 if (!changed1) t1x += signx1;
                 t1x += t1xp;
@@ -309,7 +340,7 @@ public class DrawUtils
             if (minx > t2x) minx = t2x;
             if (maxx < t1x) maxx = t1x;
             if (maxx < t2x) maxx = t2x;
-            drawLine(canvas, minx, maxx, y, col);
+            drawLine(canvas, minx, maxx, y, col, minX, minY, maxX, maxY);
             if (!changed1) t1x += signx1;
             t1x += t1xp;
             if (!changed2) t2x += signx2;
@@ -327,6 +358,21 @@ public class DrawUtils
         }
     }
 
+    public static void drawLine(int[] pixels, int sx, int ex, int ny, int col, int minX, int minY, int maxX, int maxY)
+    {
+        if (ny < minY || ny >= maxY)
+        {
+            return;
+        }
+
+        int end = Math.min(ex, maxX - 1);
+        int offset = ny * (int) getImageWidth();
+        for (int i = Math.max(sx, minX); i <= end; i++)
+        {
+            pixels[i + offset] = col;
+        }
+    }
+
     public static void TexturedTriangle
             (
                     int x1, int y1,
@@ -342,6 +388,77 @@ public class DrawUtils
                     int[] pix, ZBuffer zBuffer,
                     double dp)
     {
+        TexturedTriangle(x1, y1, u1, v1, w1, x2, y2, u2, v2, w2, x3, y3, u3, v3, w3,
+                tex, visibility, fog, directionLighting, pix, zBuffer, dp,
+                0, 0, (int) getImageWidth() - 1, (int) getImageHeight() - 1);
+    }
+
+    // Only the pixels inside the clip rectangle are drawn, minX and minY are inclusive, maxX and maxY exclusive
+    public static void TexturedTriangle
+            (
+                    int x1, int y1,
+                    double u1, double v1, double w1,
+                    int x2, int y2,
+                    double u2, double v2, double w2,
+                    int x3, int y3,
+                    double u3, double v3, double w3,
+                    Texture tex,
+                    double visibility,
+                    boolean fog,
+                    boolean directionLighting,
+                    int[] pix, ZBuffer zBuffer,
+                    double dp,
+                    int minX, int minY, int maxX, int maxY)
+    {
+        TexturedTriangle(x1, y1, u1, v1, w1, x2, y2, u2, v2, w2, x3, y3, u3, v3, w3,
+                tex, visibility, fog, directionLighting, pix, zBuffer, dp,
+                minX, minY, maxX, maxY, 0);
+    }
+
+    // With a subdivision greater than 0 the perspective correct texture coordinates are only calculated every
+    // subdivision pixels of a span and interpolated affinely in between, see texturedSpan
+    public static void TexturedTriangle
+            (
+                    int x1, int y1,
+                    double u1, double v1, double w1,
+                    int x2, int y2,
+                    double u2, double v2, double w2,
+                    int x3, int y3,
+                    double u3, double v3, double w3,
+                    Texture tex,
+                    double visibility,
+                    boolean fog,
+                    boolean directionLighting,
+                    int[] pix, ZBuffer zBuffer,
+                    double dp,
+                    int minX, int minY, int maxX, int maxY,
+                    int subdivision)
+    {
+        TexturedTriangle(x1, y1, u1, v1, w1, x2, y2, u2, v2, w2, x3, y3, u3, v3, w3,
+                tex, visibility, fog, directionLighting, pix, zBuffer, dp,
+                minX, minY, maxX, maxY, subdivision, TextureFilter.NEAREST, CD_WHITE);
+    }
+
+    // The filter decides how the texels are sampled, see Texture.getPixelBilinear, and every texel is modulated
+    // with the tint unless it is white, see ColorUtils.modulate
+    public static void TexturedTriangle
+            (
+                    int x1, int y1,
+                    double u1, double v1, double w1,
+                    int x2, int y2,
+                    double u2, double v2, double w2,
+                    int x3, int y3,
+                    double u3, double v3, double w3,
+                    Texture tex,
+                    double visibility,
+                    boolean fog,
+                    boolean directionLighting,
+                    int[] pix, ZBuffer zBuffer,
+                    double dp,
+                    int minX, int minY, int maxX, int maxY,
+                    int subdivision, TextureFilter filter, int tint)
+    {
+        boolean bilinear = filter == TextureFilter.BILINEAR;
         if (y2 < y1)
         {
             int temp = y1;
@@ -425,8 +542,6 @@ public class DrawUtils
         double du2 = u3 - u1;
         double dw2 = w3 - w1;
 
-        double tex_u, tex_v, tex_w;
-
         double dax_step = 0, dbx_step = 0, du1_step = 0, dv1_step = 0, du2_step = 0, dv2_step = 0, dw1_step = 0, dw2_step = 0;
 
         if (dy1 != 0) dax_step = dx1 / (double) Math.abs(dy1);
@@ -442,7 +557,8 @@ public class DrawUtils
 
         if (dy1 != 0)
         {
-            for (int i = y1; i <= y2; i++)
+            int rowEnd = Math.min(y2, maxY - 1);
+            for (int i = Math.max(y1, minY); i <= rowEnd; i++)
             {
                 int ax = (int) (x1 + (i - y1) * dax_step);
                 int bx = (int) (x1 + (i - y1) * dbx_step);
@@ -475,38 +591,13 @@ public class DrawUtils
                 }
 
                 double tstep = 1.0 / (double) (bx - ax);
-                double t = 0.0;
-
-                for (int j = ax; j < bx; j++)
-                {
-                    tex_u = (1.0 - t) * tex_su + t * tex_eu;
-                    tex_v = (1.0 - t) * tex_sv + t * tex_ev;
-                    tex_w = (1.0 - t) * tex_sw + t * tex_ew;
-
-                    if (zBuffer.checkDepth(j, i, Math.abs(tex_w)))
-                    {
-                        int iu = (int) ((tex_u / tex_w) * tex.getWidth()) & tex.getWidthMask();
-                        int iv = (int) ((tex_v / tex_w) * tex.getHeight()) & tex.getHeightMask();
-                        int col = tex.getTexArray()[iu + (iv << tex.getWidthShift())];
-
-                        int backgroundColor = blend(CD_GRAY, CD_WHITE, 0.4);
-
-                        if (fog)
-                        {
-                            col = blend(backgroundColor, col, visibility);
-                        }
+                int start = Math.max(ax, minX);
+                int end = Math.min(bx, maxX);
+                double t = start > ax ? (start - ax) * tstep : 0.0;
 
-                        if (directionLighting)
-                        {
-                            col = dotColor(col, dp);
-                        }
-
-                        draw(pix, j, i, col);
-                        zBuffer.setDepthValue(j, i, Math.abs(tex_w));
-                    }
-
-                    t += tstep;
-                }
+                texturedSpan(pix, zBuffer, tex, i, start, end, t, tstep,
+                        tex_su, tex_sv, tex_sw, tex_eu, tex_ev, tex_ew,
+                        visibility, fog, directionLighting, dp, subdivision, bilinear, tint);
 
             }
 
@@ -531,7 +622,8 @@ public class DrawUtils
 
         if (dy1 != 0)
         {
-            for (int i = y2; i <= y3; i++)
+            int rowEnd = Math.min(y3, maxY - 1);
+            for (int i = Math.max(y2, minY); i <= rowEnd; i++)
             {
                 int ax = (int) (x2 + (double) (i - y2) * dax_step);
                 int bx = (int) (x1 + (double) (i - y1) * dbx_step);
@@ -564,40 +656,144 @@ public class DrawUtils
                 }
 
                 double tstep = 1.0 / (double) (bx - ax);
-                double t = 0.0;
+                int start = Math.max(ax, minX);
+                int end = Math.min(bx, maxX);
+                double t = start > ax ? (start - ax) * tstep : 0.0;
 
-                for (int j = ax; j < bx; j++)
-                {
-                    tex_u = (1.0 - t) * tex_su + t * tex_eu;
-                    tex_v = (1.0 - t) * tex_sv + t * tex_ev;
-                    tex_w = (1.0 - t) * tex_sw + t * tex_ew;
+                texturedSpan(pix, zBuffer, tex, i, start, end, t, tstep,
+                        tex_su, tex_sv, tex_sw, tex_eu, tex_ev, tex_ew,
+                        visibility, fog, directionLighting, dp, subdivision, bilinear, tint);
+            }
+        }
+    }
 
-                    if (zBuffer.checkDepth(j, i, Math.abs(tex_w)))
+    /**
+     * Draws one span of a textured triangle, the attributes are interpolated from the start values (t = 0)
+     * to the end values (t = 1) of the span.
+     * With a subdivision of 0 the texture coordinates are divided by w for every pixel. Otherwise the exact
+     * coordinates are only calculated at the start of every run of subdivision pixels and stepped linearly
+     * in 16.16 fixed point in between, which trades one pair of divides per pixel for a small, bounded error.
+     * Bilinear spans keep 8 bits of the fractional texel coordinates to weight the four texels around the pixel.
+     * Texels are tinted before they are shaded.
+     */
+    private static void texturedSpan(int[] pix, ZBuffer zBuffer, Texture tex, int i, int start, int end, double t, double tstep,
+                                     double tex_su, double tex_sv, double tex_sw, double tex_eu, double tex_ev, double tex_ew,
+                                     double visibility, boolean fog, boolean directionLighting, double dp, int subdivision,
+                                     boolean bilinear, int tint)
+    {
+        double tex_u, tex_v, tex_w;
+        // the span is already clipped, so the depth buffer is accessed without bounds checks
+        int row = i * zBuffer.getWidth();
+        // compact textures have no texel array and decode every texel they read
+        int[] texels = tex.getTexArray(), columnOffsets = tex.getColumnOffsets(), rowOffsets = tex.getRowOffsets();
+
+        if (subdivision <= 0)
+        {
+            for (int j = start; j < end; j++)
+            {
+                tex_u = (1.0 - t) * tex_su + t * tex_eu;
+                tex_v = (1.0 - t) * tex_sv + t * tex_ev;
+                tex_w = (1.0 - t) * tex_sw + t * tex_ew;
+
+                if (zBuffer.testAndSet(row + j, Math.abs(tex_w)))
+                {
+                    int col;
+                    if (bilinear)
+                    {
+                        col = tex.getPixelBilinear((int) ((tex_u / tex_w) * tex.getWidth() * 256),
+                                (int) ((tex_v / tex_w) * tex.getHeight() * 256));
+                    }
+                    else
                     {
                         int iu = (int) ((tex_u / tex_w) * tex.getWidth()) & tex.getWidthMask();
                         int iv = (int) ((tex_v / tex_w) * tex.getHeight()) & tex.getHeightMask();
-                        int col = tex.getTexArray()[iu + (iv << tex.getWidthShift())];
+                        col = texels != null ? texels[columnOffsets[iu] + rowOffsets[iv]] : tex.getPixel(iu, iv);
+                    }
+
+                    if (tint != CD_WHITE)
+                    {
+                        col = modulate(col, tint);
+                    }
+
+                    draw(pix, j, i, shade(col, visibility, fog, directionLighting, dp));
+                }
 
-                        int backgroundColor = blend(CD_GRAY, CD_WHITE, 0.4);
+                t += tstep;
+            }
+            return;
+        }
 
-                        if (fog)
-                        {
-                            col = blend(backgroundColor, col, visibility);
-                        }
+        // exact fixed point texture coordinates at the start of the first run
+        long st = texelFixed(tex_su, tex_sw, tex_eu, tex_ew, t, tex.getWidth());
+        long tt = texelFixed(tex_sv, tex_sw, tex_ev, tex_ew, t, tex.getHeight());
 
-                        if (directionLighting)
-                        {
-                            col = dotColor(col, dp);
-                        }
+        for (int j = start; j < end; )
+        {
+            int runEnd = Math.min(j + subdivision, end);
+            double tEnd = t + (runEnd - j) * tstep;
+            long stEnd = texelFixed(tex_su, tex_sw, tex_eu, tex_ew, tEnd, tex.getWidth());
+            long ttEnd = texelFixed(tex_sv, tex_sw, tex_ev, tex_ew, tEnd, tex.getHeight());
+            long dst = (stEnd - st) / (runEnd - j);
+            long dtt = (ttEnd - tt) / (runEnd - j);
+
+            for (; j < runEnd; j++)
+            {
+                tex_w = (1.0 - t) * tex_sw + t * tex_ew;
 
-                        draw(pix, j, i, col);
+                if (zBuffer.testAndSet(row + j, Math.abs(tex_w)))
+                {
+                    int col;
+                    if (bilinear)
+                    {
+                        col = tex.getPixelBilinear((int) (st >> 8), (int) (tt >> 8));
+                    }
+                    else
+                    {
+                        int iu = (int) (st >> 16) & tex.getWidthMask();
+                        int iv = (int) (tt >> 16) & tex.getHeightMask();
+                        col = texels != null ? texels[columnOffsets[iu] + rowOffsets[iv]] : tex.getPixel(iu, iv);
+                    }
 
-                        zBuffer.setDepthValue(j, i, Math.abs(tex_w));
+                    if (tint != CD_WHITE)
+                    {
+                        col = modulate(col, tint);
                     }
-                    t += tstep;
+
+                    draw(pix, j, i, shade(col, visibility, fog, directionLighting, dp));
                 }
+
+                st += dst;
+                tt += dtt;
+                t += tstep;
             }
+
+            st = stEnd;
+            tt = ttEnd;
+        }
+    }
+
+    /**
+     * The perspective correct texel coordinate at t of a span in 16.16 fixed point.
+     */
+    private static long texelFixed(double s, double sw, double e, double ew, double t, int size)
+    {
+        double w = (1.0 - t) * sw + t * ew;
+        return (long) (((1.0 - t) * s + t * e) / w * size * 65536.0);
+    }
+
+    static int shade(int col, double visibility, boolean fog, boolean directionLighting, double dp)
+    {
+        if (fog)
+        {
+            col = blend(FOG_COLOR, col, visibility);
         }
+
+        if (directionLighting)
+        {
+            col = dotColor(col, dp);
+        }
+
+        return col;
     }
 
     public static void slBlendTexture(Texture sprite, int col, double factor)
@@ -612,6 +808,7 @@ public class DrawUtils
                 }
             }
         }
+        sprite.updateMipLevels();
     }
 
     public static BufferedImage toBufferedImage(Image img)
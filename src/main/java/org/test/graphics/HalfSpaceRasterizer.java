@@ -0,0 +1,244 @@
+package org.test.graphics;
+
+import static org.test.graphics.ColorUtils.CD_WHITE;
+import static org.test.graphics.ColorUtils.modulate;
+
+/**
+ * Rasterizes textured triangles with edge functions instead of scanlines.
+ * <p>
+ * Every edge of the triangle defines a half space, a pixel is covered when it lies inside all three of them.
+ * The edge functions and the interpolated attributes are stepped incrementally from pixel to pixel, so the inner loop
+ * only adds constants. Pixels exactly on an edge are decided by the top-left fill rule, which makes two triangles
+ * sharing an edge cover every pixel of that edge exactly once. The bounding rectangle of the triangle is walked in
+ * blocks of {@link #BLOCK_SIZE} pixels: blocks outside an edge are skipped, blocks inside all edges are filled
+ * without any edge tests and only blocks crossing an edge test every pixel.
+ * <p>
+ * Vertices are only clipped to the guard band of the {@code GuardBandClipper} and may lie far outside the screen,
+ * the clip rectangle restricts the drawn pixels to the screen. The edge functions are evaluated with int arithmetic,
+ * so vertex coordinates must lie within [-16384, 16383]: differences then stay below 2^15 and the two products of
+ * {@link #orient} stay below 2^30 each, a guard band reaching beyond that range would overflow silently.
+ */
+public class HalfSpaceRasterizer
+{
+    public static final int BLOCK_SIZE = 8;
+
+    /**
+     * Fills a perspective textured triangle, see {@link DrawUtils#TexturedTriangle} for the parameters.
+     * Only the pixels inside the clip rectangle are drawn, minX and minY are inclusive, maxX and maxY exclusive.
+     */
+    public static void texturedTriangle
+    (
+            int x1, int y1,
+            double u1, double v1, double w1,
+            int x2, int y2,
+            double u2, double v2, double w2,
+            int x3, int y3,
+            double u3, double v3, double w3,
+            Texture tex,
+            double visibility,
+            boolean fog,
+            boolean directionLighting,
+            int[] pix, ZBuffer zBuffer,
+            double dp,
+            int minX, int minY, int maxX, int maxY)
+    {
+        texturedTriangle(x1, y1, u1, v1, w1, x2, y2, u2, v2, w2, x3, y3, u3, v3, w3,
+                tex, visibility, fog, directionLighting, pix, zBuffer, dp,
+                minX, minY, maxX, maxY, TextureFilter.NEAREST, CD_WHITE);
+    }
+
+    /**
+     * Fills a perspective textured triangle like {@link #texturedTriangle(int, int, double, double, double, int, int,
+     * double, double, double, int, int, double, double, double, Texture, double, boolean, boolean, int[], ZBuffer,
+     * double, int, int, int, int)}, sampling the texture with the given filter and modulating every texel with
+     * the tint, see {@link ColorUtils#modulate}. A white tint leaves the texels unchanged.
+     */
+    public static void texturedTriangle
+    (
+            int x1, int y1,
+            double u1, double v1, double w1,
+            int x2, int y2,
+            double u2, double v2, double w2,
+            int x3, int y3,
+            double u3, double v3, double w3,
+            Texture tex,
+            double visibility,
+            boolean fog,
+            boolean directionLighting,
+            int[] pix, ZBuffer zBuffer,
+            double dp,
+            int minX, int minY, int maxX, int maxY,
+            TextureFilter filter, int tint)
+    {
+        int area = orient(x1, y1, x2, y2, x3, y3);
+        if (area == 0)
+        {
+            return;
+        }
+
+        // make the winding positive, so inside means all edge functions are positive
+        if (area < 0)
+        {
+            int tx = x2, ty = y2;
+            x2 = x3;
+            y2 = y3;
+            x3 = tx;
+            y3 = ty;
+
+            double tu = u2, tv = v2, tw = w2;
+            u2 = u3;
+            v2 = v3;
+            w2 = w3;
+            u3 = tu;
+            v3 = tv;
+            w3 = tw;
+
+            area = -area;
+        }
+
+        int left = Math.max(Math.min(x1, Math.min(x2, x3)), minX);
+        int right = Math.min(Math.max(x1, Math.max(x2, x3)), maxX - 1);
+        int top = Math.max(Math.min(y1, Math.min(y2, y3)), minY);
+        int bottom = Math.min(Math.max(y1, Math.max(y2, y3)), maxY - 1);
+        if (left > right || top > bottom)
+        {
+            return;
+        }
+
+        // edge i lies opposite of vertex i, its function is a * x + b * y + c
+        int a1 = y2 - y3, b1 = x3 - x2;
+        int a2 = y3 - y1, b2 = x1 - x3;
+        int a3 = y1 - y2, b3 = x2 - x1;
+
+        // the biased edge functions at the top left corner of the bounding rectangle
+        int e1 = orient(x2, y2, x3, y3, left, top);
+        int e2 = orient(x3, y3, x1, y1, left, top);
+        int e3 = orient(x1, y1, x2, y2, left, top);
+
+        // attributes as planes over the screen, evaluated at the top left corner of the bounding rectangle
+        double invArea = 1.0 / area;
+        double uRow = (e1 * u1 + e2 * u2 + e3 * u3) * invArea;
+        double vRow = (e1 * v1 + e2 * v2 + e3 * v3) * invArea;
+        double wRow = (e1 * w1 + e2 * w2 + e3 * w3) * invArea;
+        double dudx = (a1 * u1 + a2 * u2 + a3 * u3) * invArea;
+        double dvdx = (a1 * v1 + a2 * v2 + a3 * v3) * invArea;
+        double dwdx = (a1 * w1 + a2 * w2 + a3 * w3) * invArea;
+        double dudy = (b1 * u1 + b2 * u2 + b3 * u3) * invArea;
+        double dvdy = (b1 * v1 + b2 * v2 + b3 * v3) * invArea;
+        double dwdy = (b1 * w1 + b2 * w2 + b3 * w3) * invArea;
+
+        e1 += isTopLeft(x2, y2, x3, y3) ? 0 : -1;
+        e2 += isTopLeft(x3, y3, x1, y1) ? 0 : -1;
+        e3 += isTopLeft(x1, y1, x2, y2) ? 0 : -1;
+
+        int width = zBuffer.getWidth();
+        // compact textures have no texel array and decode every texel they read
+        int[] texels = tex.getTexArray(), columnOffsets = tex.getColumnOffsets(), rowOffsets = tex.getRowOffsets();
+        int texWidth = tex.getWidth(), texHeight = tex.getHeight();
+        int widthMask = tex.getWidthMask(), heightMask = tex.getHeightMask();
+        boolean bilinear = filter == TextureFilter.BILINEAR;
+        boolean tinted = tint != CD_WHITE;
+
+        for (int blockY = top; blockY <= bottom; blockY += BLOCK_SIZE)
+        {
+            int blockBottom = Math.min(blockY + BLOCK_SIZE - 1, bottom);
+            int dy = blockY - top;
+
+            for (int blockX = left; blockX <= right; blockX += BLOCK_SIZE)
+            {
+                int blockRight = Math.min(blockX + BLOCK_SIZE - 1, right);
+                int dx = blockX - left;
+                int sx = blockRight - blockX, sy = blockBottom - blockY;
+
+                // edge functions at the top left pixel of the block
+                int be1 = e1 + a1 * dx + b1 * dy;
+                int be2 = e2 + a2 * dx + b2 * dy;
+                int be3 = e3 + a3 * dx + b3 * dy;
+
+                // reject the block if one edge is negative at all corners
+                if (be1 + Math.max(a1, 0) * sx + Math.max(b1, 0) * sy < 0
+                        || be2 + Math.max(a2, 0) * sx + Math.max(b2, 0) * sy < 0
+                        || be3 + Math.max(a3, 0) * sx + Math.max(b3, 0) * sy < 0)
+                {
+                    continue;
+                }
+
+                // accept the whole block if all edges are positive at all corners
+                boolean covered = be1 + Math.min(a1, 0) * sx + Math.min(b1, 0) * sy >= 0
+                        && be2 + Math.min(a2, 0) * sx + Math.min(b2, 0) * sy >= 0
+                        && be3 + Math.min(a3, 0) * sx + Math.min(b3, 0) * sy >= 0;
+
+                double u = uRow + dudx * dx + dudy * dy;
+                double v = vRow + dvdx * dx + dvdy * dy;
+                double w = wRow + dwdx * dx + dwdy * dy;
+
+                for (int y = blockY; y <= blockBottom; y++)
+                {
+                    int pe1 = be1, pe2 = be2, pe3 = be3;
+                    double pu = u, pv = v, pw = w;
+                    int index = blockX + y * width;
+
+                    for (int x = blockX; x <= blockRight; x++, index++)
+                    {
+                        if (covered || (pe1 | pe2 | pe3) >= 0)
+                        {
+                            if (zBuffer.testAndSet(index, Math.abs(pw)))
+                            {
+                                double invW = 1.0 / pw;
+                                int col;
+                                if (bilinear)
+                                {
+                                    col = tex.getPixelBilinear((int) (pu * invW * texWidth * 256), (int) (pv * invW * texHeight * 256));
+                                }
+                                else
+                                {
+                                    int iu = (int) (pu * invW * texWidth) & widthMask;
+                                    int iv = (int) (pv * invW * texHeight) & heightMask;
+                                    col = texels != null ? texels[columnOffsets[iu] + rowOffsets[iv]] : tex.getPixel(iu, iv);
+                                }
+
+                                if (tinted)
+                                {
+                                    col = modulate(col, tint);
+                                }
+
+                                pix[index] = DrawUtils.shade(col, visibility, fog, directionLighting, dp);
+                            }
+                        }
+
+                        pe1 += a1;
+                        pe2 += a2;
+                        pe3 += a3;
+                        pu += dudx;
+                        pv += dvdx;
+                        pw += dwdx;
+                    }
+
+                    be1 += b1;
+                    be2 += b2;
+                    be3 += b3;
+                    u += dudy;
+                    v += dvdy;
+                    w += dwdy;
+                }
+            }
+        }
+    }
+
+    /**
+     * Twice the signed area of the triangle a, b, c; positive when c lies on the inner side of the edge a to b.
+     */
+    static int orient(int ax, int ay, int bx, int by, int cx, int cy)
+    {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    /**
+     * An edge of a positively wound triangle is a top edge when it is horizontal and runs to the right,
+     * and a left edge when it runs upwards. Pixels on these edges belong to the triangle, all others don't.
+     */
+    static boolean isTopLeft(int ax, int ay, int bx, int by)
+    {
+        return (ay == by && bx > ax) || by < ay;
+    }
+}
@@ -0,0 +1,123 @@
+package org.test.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Up to 256 colors that {@link TextureFormat#PALETTE8} textures store the indices of. A palette is meant to be shared
+ * by many textures, it is only stored once no matter how many textures use it.
+ * <p>
+ * Finding the nearest color of a palette is done through a table with one entry for every color reduced to 5 bits
+ * per channel, so converting a texel doesn't search the whole palette. The table is built by the constructor, so a palette
+ * can be shared by textures converted on different threads.
+ */
+public class Palette
+{
+    public static final int MAX_SIZE = 256;
+
+    private static Palette defaultPalette;
+
+    private final int[] colors;
+    private final byte[] nearest;
+
+    /**
+     * Constructs a palette of the given colors.
+     *
+     * @param colors The RGB colors of the palette, their index is the value stored in a texel.
+     * @throws IllegalArgumentException If there are no colors or more than {@link #MAX_SIZE}.
+     */
+    public Palette(int[] colors)
+    {
+        if (colors.length == 0 || colors.length > MAX_SIZE)
+        {
+            throw new IllegalArgumentException("A palette needs 1 to " + MAX_SIZE + " colors: " + colors.length);
+        }
+        this.colors = Arrays.copyOf(colors, colors.length);
+        this.nearest = createNearestTable();
+    }
+
+    /**
+     * @return The palette shared by all palettized textures that aren't given one, 6 levels of every channel
+     * and 40 additional grays.
+     */
+    public static synchronized Palette getDefault()
+    {
+        if (defaultPalette == null)
+        {
+            int[] colors = new int[MAX_SIZE];
+            int n = 0;
+            for (int r = 0; r < 6; r++)
+            {
+                for (int g = 0; g < 6; g++)
+                {
+                    for (int b = 0; b < 6; b++)
+                    {
+                        colors[n++] = (r * 51 << 16) | (g * 51 << 8) | (b * 51);
+                    }
+                }
+            }
+            // finer grays than the six of the cube
+            for (int i = 1; n < MAX_SIZE; i++)
+            {
+                int gray = i * 255 / 41;
+                colors[n++] = (gray << 16) | (gray << 8) | gray;
+            }
+            defaultPalette = new Palette(colors);
+        }
+        return defaultPalette;
+    }
+
+    /**
+     * Finds the color of the palette nearest to the given color.
+     *
+     * @param col The RGB color.
+     * @return The index of the nearest color.
+     */
+    public int indexOf(int col)
+    {
+        return nearest[((col >> 9) & 0x7C00) | ((col >> 6) & 0x3E0) | ((col >> 3) & 0x1F)] & 0xFF;
+    }
+
+    private byte[] createNearestTable()
+    {
+        byte[] table = new byte[1 << 15];
+        for (int i = 0; i < table.length; i++)
+        {
+            // expanded like RGB565, so black and white find themselves
+            int r = i >> 10, g = (i >> 5) & 0x1F, b = i & 0x1F;
+            int col = ((r << 3 | r >> 2) << 16) | ((g << 3 | g >> 2) << 8) | (b << 3 | b >> 2);
+
+            int best = 0;
+            for (int c = 1; c < colors.length; c++)
+            {
+                if (ColorUtils.distanceSquared(col, colors[c]) < ColorUtils.distanceSquared(col, colors[best]))
+                {
+                    best = c;
+                }
+            }
+            table[i] = (byte) best;
+        }
+        return table;
+    }
+
+    /**
+     * @param index The index stored in a texel.
+     * @return The color at the index.
+     */
+    public int getColor(int index)
+    {
+        return colors[index];
+    }
+
+    public int getSize()
+    {
+        return colors.length;
+    }
+
+    /**
+     * @return The number of bytes used by the colors and the table of nearest colors.
+     */
+    public long getMemorySize()
+    {
+        return (long) colors.length * Integer.BYTES + nearest.length;
+    }
+}
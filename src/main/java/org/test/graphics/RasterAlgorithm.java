@@ -0,0 +1,12 @@
+package org.test.graphics;
+
+/**
+ * The algorithms available for filling textured triangles.
+ */
+public enum RasterAlgorithm
+{
+    // two half scanline rasterizer of DrawUtils.TexturedTriangle
+    SCANLINE,
+    // edge function rasterizer of HalfSpaceRasterizer
+    HALF_SPACE;
+}
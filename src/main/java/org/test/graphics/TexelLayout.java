@@ -0,0 +1,12 @@
+package org.test.graphics;
+
+/**
+ * The orders in which the texels of a {@link Texture} are stored.
+ */
+public enum TexelLayout
+{
+    // one row after the other, neighbours along a row share a cache line but neighbours along a column are a row apart
+    ROW_MAJOR,
+    // Z-order curve, the bits of x and y are interleaved so texels that are close in both directions are close in memory
+    MORTON;
+}
@@ -8,6 +8,16 @@ import java.util.Objects;
 
 /**
  * Represents a texture used in graphics rendering.
+ * <p>
+ * Textures with power of two sides carry a chain of mip levels, every level halves the width and height of the one
+ * before it down to a single texel. Rasterizers sample the level whose texels are about as large as a pixel,
+ * which reads fewer, closer texels for distant triangles and keeps them from flickering.
+ * <p>
+ * The texels are stored in a {@link TexelLayout}. Rasterizers address the texel (x, y) as
+ * {@code texArray[columnOffsets[x] + rowOffsets[y]]}, which works for every layout, so they don't branch on it.
+ * <p>
+ * Textures in one of the compact {@link TextureFormat formats} have no texel array, they are sampled through
+ * {@link #getPixel}, which decodes the single texel it reads.
  */
 public class Texture
 {
@@ -17,16 +27,70 @@ public class Texture
     private int heightMask;
     private int widthShift;
     private int[] texArray;
+    private Texture[] mipLevels;
+    private final TexelLayout layout;
+    private final TextureFormat format;
+    private final Palette palette;
+    // the texels of the compact formats, only the one of the format is used
+    private byte[] paletteIndices;
+    private char[] texels565;
+    private int[] blocks;
+    private int[] columnOffsets;
+    private int[] rowOffsets;
 
     /**
-     * Constructs a texture from a BufferedImage.
+     * Constructs a texture from a BufferedImage with row major texels.
      *
      * @param img The BufferedImage representing the texture.
      */
     public Texture(BufferedImage img)
+    {
+        this(img, TexelLayout.ROW_MAJOR);
+    }
+
+    /**
+     * Constructs a texture from a BufferedImage.
+     *
+     * @param img    The BufferedImage representing the texture.
+     * @param layout The order to store the texels in. Only textures with power of two sides can be
+     *               {@link TexelLayout#MORTON swizzled}, all others are stored row major.
+     */
+    public Texture(BufferedImage img, TexelLayout layout)
+    {
+        this(img, layout, TextureFormat.INT_RGB, null);
+    }
+
+    /**
+     * Constructs a texture from a BufferedImage and converts its texels to the given format.
+     * Palettized textures use the {@link Palette#getDefault() default palette}.
+     *
+     * @param img    The BufferedImage representing the texture.
+     * @param layout The order to store the texels in, see {@link #Texture(BufferedImage, TexelLayout)}.
+     * @param format The format to store the texels in.
+     */
+    public Texture(BufferedImage img, TexelLayout layout, TextureFormat format)
+    {
+        this(img, layout, format, null);
+    }
+
+    /**
+     * Constructs a texture from a BufferedImage and converts its texels to the given format.
+     *
+     * @param img     The BufferedImage representing the texture.
+     * @param layout  The order to store the texels in, see {@link #Texture(BufferedImage, TexelLayout)}.
+     *                Block compressed textures are always stored row major, their blocks already keep
+     *                neighbouring texels together.
+     * @param format  The format to store the texels in.
+     * @param palette The palette of a {@link TextureFormat#PALETTE8} texture, null for the default palette.
+     */
+    public Texture(BufferedImage img, TexelLayout layout, TextureFormat format, Palette palette)
     {
         this.width = img.getWidth();
         this.height = img.getHeight();
+        this.format = Objects.requireNonNull(format);
+        this.palette = format != TextureFormat.PALETTE8 ? null : palette != null ? palette : Palette.getDefault();
+        this.layout = isPowerOfTwo(width) || isPowerOfTwo(height) || format == TextureFormat.BLOCK_COMPRESSED
+                ? TexelLayout.ROW_MAJOR : layout;
 
         if(img.getType() != BufferedImage.TYPE_INT_RGB)
         {
@@ -37,10 +101,156 @@ public class Texture
             img = newImage;
         }
 
-        texArray = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
         widthMask = img.getWidth() - 1;
         heightMask = img.getHeight() - 1;
         widthShift = countBits(getWidth()-1);
+        updateOffsets();
+        setTexels(swizzle(((DataBufferInt)img.getRaster().getDataBuffer()).getData()));
+    }
+
+    /**
+     * Constructs one {@link TextureFormat#INT_RGB} mip level of a texture.
+     */
+    private Texture(int[] texArray, int width, int height, TexelLayout layout)
+    {
+        this.width = width;
+        this.height = height;
+        this.layout = layout;
+        this.format = TextureFormat.INT_RGB;
+        this.palette = null;
+        this.texArray = texArray;
+        widthMask = width - 1;
+        heightMask = height - 1;
+        widthShift = countBits(width - 1);
+        updateOffsets();
+        // a level is a texture of its own, without smaller levels
+        mipLevels = new Texture[]{this};
+    }
+
+    /**
+     * Constructs a copy of an {@link TextureFormat#INT_RGB} mip level in another format.
+     */
+    private Texture(Texture level, TextureFormat format, Palette palette)
+    {
+        this.width = level.width;
+        this.height = level.height;
+        this.layout = level.layout;
+        this.format = format;
+        this.palette = palette;
+        widthMask = level.widthMask;
+        heightMask = level.heightMask;
+        widthShift = level.widthShift;
+        columnOffsets = level.columnOffsets;
+        rowOffsets = level.rowOffsets;
+        encode(level.texArray);
+        mipLevels = new Texture[]{this};
+    }
+
+    /**
+     * Stores texels in the layout of this texture in its format and recalculates the mip levels.
+     * The levels of compact textures are averaged from the given texels before they lose precision.
+     */
+    private void setTexels(int[] texels)
+    {
+        encode(texels);
+        updateMipLevels(format == TextureFormat.INT_RGB ? this : new Texture(texels, width, height, layout));
+    }
+
+    /**
+     * Stores texels in the layout of this texture in its format.
+     */
+    private void encode(int[] texels)
+    {
+        texArray = null;
+        switch (format)
+        {
+            case INT_RGB -> texArray = texels;
+            case PALETTE8 ->
+            {
+                paletteIndices = new byte[texels.length];
+                for (int i = 0; i < texels.length; i++)
+                {
+                    paletteIndices[i] = (byte) palette.indexOf(texels[i]);
+                }
+            }
+            case RGB565 ->
+            {
+                texels565 = new char[texels.length];
+                for (int i = 0; i < texels.length; i++)
+                {
+                    texels565[i] = (char) ColorUtils.toRgb565(texels[i]);
+                }
+            }
+            case BLOCK_COMPRESSED -> blocks = BlockCompression.encode(texels, width, height);
+        }
+    }
+
+    /**
+     * Fills the offset tables of the layout. A Morton index interleaves the bits the two coordinates have in common,
+     * x in the even and y in the odd bits, the remaining bits of the longer side are placed above them.
+     */
+    private void updateOffsets()
+    {
+        columnOffsets = new int[width];
+        rowOffsets = new int[height];
+
+        if (layout == TexelLayout.ROW_MAJOR)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                columnOffsets[x] = x;
+            }
+            for (int y = 0; y < height; y++)
+            {
+                rowOffsets[y] = y * width;
+            }
+            return;
+        }
+
+        int commonBits = Math.min(Integer.numberOfTrailingZeros(width), Integer.numberOfTrailingZeros(height));
+        for (int x = 0; x < width; x++)
+        {
+            columnOffsets[x] = interleave(x, commonBits, 0);
+        }
+        for (int y = 0; y < height; y++)
+        {
+            rowOffsets[y] = interleave(y, commonBits, 1);
+        }
+    }
+
+    /**
+     * Spreads the lower commonBits bits of i to every second bit starting at bit offset and moves the remaining bits
+     * above them.
+     */
+    private static int interleave(int i, int commonBits, int offset)
+    {
+        int spread = 0;
+        for (int bit = 0; bit < commonBits; bit++)
+        {
+            spread |= ((i >> bit) & 1) << (2 * bit + offset);
+        }
+        return spread | (i >>> commonBits) << (2 * commonBits);
+    }
+
+    /**
+     * Reorders row major texels into the layout of this texture.
+     */
+    private int[] swizzle(int[] rowMajor)
+    {
+        if (layout == TexelLayout.ROW_MAJOR)
+        {
+            return rowMajor;
+        }
+
+        int[] texels = new int[rowMajor.length];
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                texels[columnOffsets[x] + rowOffsets[y]] = rowMajor[x + y * width];
+            }
+        }
+        return texels;
     }
 
     /**
@@ -74,10 +284,111 @@ public class Texture
             g.dispose();
             img = newImage;
         }
-        texArray = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
         widthMask = img.getWidth() - 1;
         heightMask = img.getHeight() - 1;
         widthShift = countBits(getWidth()-1);
+        setTexels(swizzle(((DataBufferInt)img.getRaster().getDataBuffer()).getData()));
+    }
+
+    /**
+     * Recalculates the mip levels from the full resolution texels, must be called after changing them.
+     * Every texel of a level is the average of the two by two texels it covers in the level above.
+     * Textures whose sides aren't powers of two only have their full resolution level.
+     * The levels of compact textures are averaged from the decoded texels and then converted to the same format.
+     */
+    public void updateMipLevels()
+    {
+        updateMipLevels(this);
+    }
+
+    /**
+     * Recalculates the mip levels, the first one is averaged from the texels of source.
+     */
+    private void updateMipLevels(Texture source)
+    {
+        if ((width & (width - 1)) != 0 || (height & (height - 1)) != 0)
+        {
+            mipLevels = new Texture[]{this};
+            return;
+        }
+
+        int levels = 1 + Math.max(Integer.numberOfTrailingZeros(width), Integer.numberOfTrailingZeros(height));
+        mipLevels = new Texture[levels];
+        mipLevels[0] = this;
+
+        for (int level = 1; level < levels; level++)
+        {
+            Texture above = level == 1 ? source : mipLevels[level - 1];
+            int w = Math.max(above.width >> 1, 1), h = Math.max(above.height >> 1, 1);
+            Texture mip = new Texture(new int[w * h], w, h, layout);
+            // a side that is already one texel long averages the same texels twice
+            int right = above.width > 1 ? 1 : 0, below = above.height > 1 ? 1 : 0;
+
+            for (int y = 0; y < mip.height; y++)
+            {
+                for (int x = 0; x < mip.width; x++)
+                {
+                    int ax = x << right, ay = y << below;
+                    mip.setPixel(x, y, average(above.getPixel(ax, ay), above.getPixel(ax + right, ay),
+                            above.getPixel(ax, ay + below), above.getPixel(ax + right, ay + below)));
+                }
+            }
+            mipLevels[level] = mip;
+        }
+
+        if (format != TextureFormat.INT_RGB)
+        {
+            for (int level = 1; level < levels; level++)
+            {
+                mipLevels[level] = new Texture(mipLevels[level], format, palette);
+            }
+        }
+    }
+
+    private static int average(int a, int b, int c, int d)
+    {
+        int r = (((a >> 16) & 0xFF) + ((b >> 16) & 0xFF) + ((c >> 16) & 0xFF) + ((d >> 16) & 0xFF) + 2) >> 2;
+        int g = (((a >> 8) & 0xFF) + ((b >> 8) & 0xFF) + ((c >> 8) & 0xFF) + ((d >> 8) & 0xFF) + 2) >> 2;
+        int bl = ((a & 0xFF) + (b & 0xFF) + (c & 0xFF) + (d & 0xFF) + 2) >> 2;
+        return (r << 16) | (g << 8) | bl;
+    }
+
+    /**
+     * @return The number of mip levels including the full resolution one.
+     */
+    public int getMipLevelCount()
+    {
+        return mipLevels.length;
+    }
+
+    /**
+     * Gets a mip level of this texture.
+     *
+     * @param level The level, 0 is the full resolution. Larger levels are clamped to the smallest one.
+     * @return The texture of the level.
+     */
+    public Texture getMipLevel(int level)
+    {
+        return mipLevels[Math.min(Math.max(level, 0), mipLevels.length - 1)];
+    }
+
+    /**
+     * @return The number of bytes used by the texels of all mip levels. A shared palette isn't included.
+     */
+    public long getMemorySize()
+    {
+        long size = 0;
+        for (Texture level : mipLevels)
+        {
+            size += switch (format)
+            {
+                case INT_RGB -> (long) level.texArray.length * Integer.BYTES;
+                case PALETTE8 -> level.paletteIndices.length;
+                case RGB565 -> (long) level.texels565.length * Character.BYTES;
+                case BLOCK_COMPRESSED -> (long) level.blocks.length * Integer.BYTES;
+            };
+        }
+        return size;
     }
 
     /**
@@ -116,20 +427,64 @@ public class Texture
      */
     public int getPixel(int x, int y)
     {
-        return texArray[x + y * getWidth()];
+        // only the array of the format is set, testing them is cheaper in the inner loops than a switch on the format
+        if (texArray != null)
+        {
+            return texArray[columnOffsets[x] + rowOffsets[y]];
+        }
+        if (paletteIndices != null)
+        {
+            return palette.getColor(paletteIndices[columnOffsets[x] + rowOffsets[y]] & 0xFF);
+        }
+        if (texels565 != null)
+        {
+            return ColorUtils.fromRgb565(texels565[columnOffsets[x] + rowOffsets[y]]);
+        }
+        return BlockCompression.decode(blocks, BlockCompression.getBlocksPerRow(width), x, y);
+    }
+
+    /**
+     * Samples the texture with bilinear filtering. The coordinates are texels in 24.8 fixed point, the centre of the
+     * texel (x, y) lies at (x + 0.5, y + 0.5). Coordinates outside the texture repeat it like the masks do.
+     *
+     * @param s The x coordinate times 256.
+     * @param t The y coordinate times 256.
+     * @return The color of the four nearest texels weighted by their distance.
+     */
+    public int getPixelBilinear(int s, int t)
+    {
+        s -= 128;
+        t -= 128;
+        int x = (s >> 8) & widthMask, x2 = (x + 1) & widthMask;
+        int y = (t >> 8) & heightMask, y2 = (y + 1) & heightMask;
+        int fs = s & 0xFF, ft = t & 0xFF;
+
+        int top = ColorUtils.lerp(getPixel(x, y), getPixel(x2, y), fs);
+        int bottom = ColorUtils.lerp(getPixel(x, y2), getPixel(x2, y2), fs);
+        return ColorUtils.lerp(top, bottom, ft);
     }
 
     /**
      * Sets the color of the pixel at the specified coordinates.
+     * The mip levels keep the old color until {@link #updateMipLevels()} is called.
+     * Block compressed textures encode the block of the pixel again, which may shift its other texels slightly.
      *
      * @param x   The x-coordinate of the pixel.
      * @param y   The y-coordinate of the pixel.
      * @param col The color to set.
-     * @return The updated color of the pixel.
+     * @return The updated color of the pixel, reduced to the precision of the format.
      */
     public int setPixel(int x, int y, int col)
     {
-        return texArray[x + y * getWidth()] = col;
+        int i = columnOffsets[x] + rowOffsets[y];
+        switch (format)
+        {
+            case INT_RGB -> texArray[i] = col;
+            case PALETTE8 -> paletteIndices[i] = (byte) palette.indexOf(col);
+            case RGB565 -> texels565[i] = (char) ColorUtils.toRgb565(col);
+            case BLOCK_COMPRESSED -> BlockCompression.setTexel(blocks, width, height, x, y, col);
+        }
+        return getPixel(x, y);
     }
 
     public int getWidth()
@@ -172,13 +527,70 @@ public class Texture
         this.widthShift = widthShift;
     }
 
+    /**
+     * @return The order of the texels in the texel array.
+     */
+    public TexelLayout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * @return The offset of the first texel of every column in the texel array, indexed by the masked x coordinate.
+     */
+    public int[] getColumnOffsets()
+    {
+        return columnOffsets;
+    }
+
+    /**
+     * @return The offset of the first texel of every row in the texel array, indexed by the masked y coordinate.
+     */
+    public int[] getRowOffsets()
+    {
+        return rowOffsets;
+    }
+
+    public TextureFormat getFormat()
+    {
+        return format;
+    }
+
+    /**
+     * @return The palette of a palettized texture, otherwise null.
+     */
+    public Palette getPalette()
+    {
+        return palette;
+    }
+
+    /**
+     * Gets the texel array of the texture. Only {@link TextureFormat#INT_RGB} textures store their texels as ints,
+     * the compact formats have no such array and return null, callers must then read texels through
+     * {@link #getPixel}. The texel (x, y) is at columnOffsets[x] + rowOffsets[y], see {@link #getColumnOffsets()}.
+     *
+     * @return The texels of an {@link TextureFormat#INT_RGB} texture, or null if the texture has a compact format.
+     */
     public int[] getTexArray()
     {
         return texArray;
     }
 
+    /**
+     * Replaces the texels, which must be stored in the {@link #getLayout() layout} of this texture.
+     * Textures in a compact format convert them to their format.
+     *
+     * @param texArray The new texels.
+     */
     public void setTexArray(int[] texArray)
     {
-        this.texArray = texArray;
+        setTexels(texArray);
+    }
+
+    @Override
+    public String toString()
+    {
+        return width + "x" + height + " " + format + " " + layout + ", " + mipLevels.length + " mip levels, "
+                + getMemorySize() + " bytes";
     }
 }
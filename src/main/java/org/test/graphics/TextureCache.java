@@ -0,0 +1,259 @@
+package org.test.graphics;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Shares decoded textures between all meshes that use the same image file.
+ * Every image is decoded once, all callers of {@link #acquire(String)} receive the same {@link Texture} instance
+ * until it is evicted. The cache counts the references of every texture; a texture whose references were all
+ * {@link #release(Texture) released} stays cached, but is evicted (least recently used first) as soon as the cached
+ * textures exceed the memory budget. Textures in use are never evicted, even above the budget.
+ */
+public class TextureCache
+{
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+
+    private static final TextureCache instance = new TextureCache(DEFAULT_MEMORY_BUDGET);
+
+    // access ordered, so iteration starts with the least recently used texture
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Texture, Entry> entriesByTexture = new IdentityHashMap<>();
+    private long memoryBudget;
+    private long memoryUsage;
+    private TexelLayout texelLayout = TexelLayout.ROW_MAJOR;
+    private TextureFormat textureFormat = TextureFormat.INT_RGB;
+
+    /**
+     * Constructs an empty texture cache.
+     *
+     * @param memoryBudget The number of bytes the cached textures may use before unused textures are evicted.
+     * @throws IllegalArgumentException If the budget is negative.
+     */
+    public TextureCache(long memoryBudget)
+    {
+        this.memoryBudget = checkMemoryBudget(memoryBudget);
+    }
+
+    /**
+     * @return The texture cache shared by the whole engine.
+     */
+    public static TextureCache getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Returns the texture of the given image file and adds a reference to it. The image is only decoded
+     * if it is not cached yet.
+     *
+     * @param fileName The path of the image file.
+     * @return The shared texture of the image.
+     * @throws IllegalArgumentException If the file does not exist or is not a supported image.
+     * @throws UncheckedIOException     If the file can not be read.
+     */
+    public synchronized Texture acquire(String fileName)
+    {
+        String key = getKey(fileName);
+        Entry entry = entries.get(key);
+        if (entry == null)
+        {
+            entry = new Entry(load(key));
+            entries.put(key, entry);
+            entriesByTexture.put(entry.texture, entry);
+            memoryUsage += entry.size;
+        }
+
+        entry.references++;
+        evict();
+        return entry.texture;
+    }
+
+    /**
+     * Removes a reference from a texture returned by {@link #acquire(String)}. Once a texture has no references left
+     * it may be evicted to stay within the memory budget.
+     *
+     * @param texture The texture that is not used anymore by the caller.
+     * @throws IllegalArgumentException If the texture is not in the cache or has no references left.
+     */
+    public synchronized void release(Texture texture)
+    {
+        Entry entry = entriesByTexture.get(texture);
+        if (entry == null || entry.references == 0)
+        {
+            throw new IllegalArgumentException("Texture is not referenced through this cache");
+        }
+
+        entry.references--;
+        evict();
+    }
+
+    private static long checkMemoryBudget(long memoryBudget)
+    {
+        if (memoryBudget < 0)
+        {
+            throw new IllegalArgumentException("Memory budget must not be negative: " + memoryBudget);
+        }
+        return memoryBudget;
+    }
+
+    /**
+     * Evicts unused textures, least recently used first, until the memory usage fits the budget.
+     */
+    private void evict()
+    {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (memoryUsage > memoryBudget && iterator.hasNext())
+        {
+            Entry entry = iterator.next();
+            if (entry.references == 0)
+            {
+                iterator.remove();
+                entriesByTexture.remove(entry.texture);
+                memoryUsage -= entry.size;
+            }
+        }
+    }
+
+    private Texture load(String fileName)
+    {
+        Path path = Path.of(fileName);
+        if (!Files.exists(path))
+        {
+            throw new IllegalArgumentException("File not found: " + fileName);
+        }
+
+        try
+        {
+            BufferedImage img = ImageIO.read(path.toFile());
+            if (img == null)
+            {
+                throw new IllegalArgumentException("Unsupported image format: " + fileName);
+            }
+            return new Texture(img, texelLayout, textureFormat);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String getKey(String fileName)
+    {
+        return Path.of(fileName).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * @param fileName The path of the image file.
+     * @return True if the texture of the file is currently cached.
+     */
+    public synchronized boolean contains(String fileName)
+    {
+        return entries.containsKey(getKey(fileName));
+    }
+
+    /**
+     * @param fileName The path of the image file.
+     * @return The number of references to the texture of the file, 0 if it is unused or not cached.
+     */
+    public synchronized int getReferenceCount(String fileName)
+    {
+        Entry entry = entries.get(getKey(fileName));
+        return entry == null ? 0 : entry.references;
+    }
+
+    /**
+     * @return The number of bytes used by the pixels of all cached textures.
+     */
+    public synchronized long getMemoryUsage()
+    {
+        return memoryUsage;
+    }
+
+    public synchronized long getMemoryBudget()
+    {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the memory budget and evicts unused textures if the cache exceeds the new budget.
+     *
+     * @param memoryBudget The number of bytes the cached textures may use.
+     * @throws IllegalArgumentException If the budget is negative.
+     */
+    public synchronized void setMemoryBudget(long memoryBudget)
+    {
+        this.memoryBudget = checkMemoryBudget(memoryBudget);
+        evict();
+    }
+
+    public synchronized TexelLayout getTexelLayout()
+    {
+        return texelLayout;
+    }
+
+    /**
+     * Sets the layout of the texels of textures decoded from now on, textures that are already cached keep theirs.
+     *
+     * @param texelLayout The order to store the texels in.
+     */
+    public synchronized void setTexelLayout(TexelLayout texelLayout)
+    {
+        this.texelLayout = Objects.requireNonNull(texelLayout);
+    }
+
+    public synchronized TextureFormat getTextureFormat()
+    {
+        return textureFormat;
+    }
+
+    /**
+     * Sets the format textures decoded from now on are converted to, textures that are already cached keep theirs.
+     * Palettized textures share the {@link Palette#getDefault() default palette}.
+     *
+     * @param textureFormat The format to store the texels in.
+     */
+    public synchronized void setTextureFormat(TextureFormat textureFormat)
+    {
+        this.textureFormat = Objects.requireNonNull(textureFormat);
+    }
+
+    /**
+     * Describes the memory used by every cached texture, least recently used first, followed by the total.
+     *
+     * @return One line per texture with its file, size, format, layout, bytes and references.
+     */
+    public synchronized String getMemoryReport()
+    {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Entry> entry : entries.entrySet())
+        {
+            report.append(entry.getKey()).append(": ").append(entry.getValue().texture)
+                    .append(", ").append(entry.getValue().references).append(" references\n");
+        }
+        report.append("total: ").append(memoryUsage).append(" of ").append(memoryBudget).append(" bytes\n");
+        return report.toString();
+    }
+
+    private static class Entry
+    {
+        private final Texture texture;
+        private final long size;
+        private int references;
+
+        Entry(Texture texture)
+        {
+            this.texture = texture;
+            this.size = texture.getMemorySize();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.test.graphics;
+
+/**
+ * The ways textured triangles sample their texture.
+ */
+public enum TextureFilter
+{
+    // the texel under the pixel, sharp but blocky when a texel covers several pixels
+    NEAREST,
+    // the four texels around the pixel weighted by their distance, smooth but reads four times the texels
+    BILINEAR;
+}
@@ -0,0 +1,17 @@
+package org.test.graphics;
+
+/**
+ * The formats the texels of a {@link Texture} can be stored in. All of them are sampled directly by the rasterizers,
+ * the compact ones trade color precision for memory and cache usage.
+ */
+public enum TextureFormat
+{
+    // 32 bits per texel, the colors of the image unchanged
+    INT_RGB,
+    // 8 bits per texel, the index of the nearest color of a palette that many textures can share
+    PALETTE8,
+    // 16 bits per texel, 5 bits of red, 6 bits of green and 5 bits of blue
+    RGB565,
+    // 4 bits per texel, blocks of 4 x 4 texels choosing one of four colors between two RGB565 end colors, see BlockCompression
+    BLOCK_COMPRESSED;
+}
@@ -0,0 +1,325 @@
+package org.test.graphics;
+
+import java.util.Arrays;
+
+import static org.test.graphics.HalfSpaceRasterizer.isTopLeft;
+import static org.test.graphics.HalfSpaceRasterizer.orient;
+
+/**
+ * Defers texturing until the visible surface of every pixel is known.
+ * <p>
+ * Textured triangles are first {@link #add added}, which stores their texture coordinates as planes over the screen
+ * and returns an index. {@link #rasterize} then only runs the depth test and stores that index for every pixel
+ * the triangle wins, overdrawn pixels never touch a texture. Finally {@link #resolve} evaluates the planes of the
+ * remaining triangle of every pixel, samples its texture and shades it, exactly once per visible pixel.
+ * Both passes only touch the pixels inside a clip rectangle, so tiles can rasterize and resolve in parallel.
+ * <p>
+ * The pixels that hold an index of the current frame are the ones the {@link ZBuffer} has been written to,
+ * so the index buffer is never cleared. Triangles that aren't deferred must therefore be drawn after the resolve.
+ */
+public class VisibilityBuffer
+{
+    // values stored per triangle, the corners in pixels and u / w, v / w and 1 / w as a + b * x + c * y
+    private static final int CORNERS = 6;
+    private static final int PLANES = 9;
+
+    private final int width;
+    private final int[] ids;
+
+    private int triangleCount;
+    private int[] corners = new int[1024 * CORNERS];
+    private double[] planes = new double[1024 * PLANES];
+    private Texture[] textures = new Texture[1024];
+    private TextureFilter[] filters = new TextureFilter[1024];
+    private int[] tints = new int[1024];
+    private double[] dps = new double[1024];
+
+    /**
+     * Constructs a visibility buffer with one triangle index per pixel.
+     *
+     * @param width  The width of the screen.
+     * @param height The height of the screen.
+     */
+    public VisibilityBuffer(int width, int height)
+    {
+        this.width = width;
+        this.ids = new int[width * height];
+    }
+
+    /**
+     * Forgets the triangles of the last frame.
+     */
+    public void reset()
+    {
+        Arrays.fill(textures, 0, triangleCount, null);
+        Arrays.fill(filters, 0, triangleCount, null);
+        triangleCount = 0;
+    }
+
+    /**
+     * Stores a perspective textured triangle, see {@link DrawUtils#TexturedTriangle} for the parameters.
+     *
+     * @return The index of the triangle, passed to {@link #rasterize}.
+     */
+    public int add(int x1, int y1, double u1, double v1, double w1,
+                   int x2, int y2, double u2, double v2, double w2,
+                   int x3, int y3, double u3, double v3, double w3,
+                   Texture tex, double dp)
+    {
+        return add(x1, y1, u1, v1, w1, x2, y2, u2, v2, w2, x3, y3, u3, v3, w3, tex, TextureFilter.NEAREST, ColorUtils.CD_WHITE, dp);
+    }
+
+    /**
+     * Stores a perspective textured triangle that is resolved with the given texture filter and tint,
+     * see {@link HalfSpaceRasterizer#texturedTriangle}.
+     *
+     * @return The index of the triangle, passed to {@link #rasterize}.
+     */
+    public int add(int x1, int y1, double u1, double v1, double w1,
+                   int x2, int y2, double u2, double v2, double w2,
+                   int x3, int y3, double u3, double v3, double w3,
+                   Texture tex, TextureFilter filter, int tint, double dp)
+    {
+        if (triangleCount == textures.length)
+        {
+            corners = Arrays.copyOf(corners, triangleCount * 2 * CORNERS);
+            planes = Arrays.copyOf(planes, triangleCount * 2 * PLANES);
+            textures = Arrays.copyOf(textures, triangleCount * 2);
+            filters = Arrays.copyOf(filters, triangleCount * 2);
+            tints = Arrays.copyOf(tints, triangleCount * 2);
+            dps = Arrays.copyOf(dps, triangleCount * 2);
+        }
+        int id = triangleCount++;
+
+        int c = id * CORNERS;
+        corners[c] = x1;
+        corners[c + 1] = y1;
+        corners[c + 2] = x2;
+        corners[c + 3] = y2;
+        corners[c + 4] = x3;
+        corners[c + 5] = y3;
+        textures[id] = tex;
+        filters[id] = filter;
+        tints[id] = tint;
+        dps[id] = dp;
+
+        // the barycentric weights are the edge functions divided by the area, their planes give the attribute planes
+        int area = orient(x1, y1, x2, y2, x3, y3);
+        if (area == 0)
+        {
+            Arrays.fill(planes, id * PLANES, id * PLANES + PLANES, 0.0);
+            return id;
+        }
+
+        double invArea = 1.0 / area;
+        double e1 = orient(x2, y2, x3, y3, 0, 0) * invArea, a1 = (y2 - y3) * invArea, b1 = (x3 - x2) * invArea;
+        double e2 = orient(x3, y3, x1, y1, 0, 0) * invArea, a2 = (y3 - y1) * invArea, b2 = (x1 - x3) * invArea;
+        double e3 = orient(x1, y1, x2, y2, 0, 0) * invArea, a3 = (y1 - y2) * invArea, b3 = (x2 - x1) * invArea;
+
+        int p = id * PLANES;
+        setPlane(p, u1, u2, u3, e1, a1, b1, e2, a2, b2, e3, a3, b3);
+        setPlane(p + 3, v1, v2, v3, e1, a1, b1, e2, a2, b2, e3, a3, b3);
+        setPlane(p + 6, w1, w2, w3, e1, a1, b1, e2, a2, b2, e3, a3, b3);
+        return id;
+    }
+
+    private void setPlane(int p, double f1, double f2, double f3,
+                          double e1, double a1, double b1, double e2, double a2, double b2, double e3, double a3, double b3)
+    {
+        planes[p] = e1 * f1 + e2 * f2 + e3 * f3;
+        planes[p + 1] = a1 * f1 + a2 * f2 + a3 * f3;
+        planes[p + 2] = b1 * f1 + b2 * f2 + b3 * f3;
+    }
+
+    /**
+     * Runs the depth test for every pixel of a stored triangle inside the clip rectangle and stores the index of
+     * the triangle where it is nearer. Pixels on shared edges follow the top-left rule of the {@link HalfSpaceRasterizer}.
+     *
+     * @param id      The index returned by {@link #add}.
+     * @param zBuffer The depth buffer of the screen.
+     * @param minX    The inclusive left edge of the clip rectangle.
+     * @param minY    The inclusive top edge of the clip rectangle.
+     * @param maxX    The exclusive right edge of the clip rectangle.
+     * @param maxY    The exclusive bottom edge of the clip rectangle.
+     */
+    public void rasterize(int id, ZBuffer zBuffer, int minX, int minY, int maxX, int maxY)
+    {
+        int c = id * CORNERS;
+        int x1 = corners[c], y1 = corners[c + 1];
+        int x2 = corners[c + 2], y2 = corners[c + 3];
+        int x3 = corners[c + 4], y3 = corners[c + 5];
+
+        int area = orient(x1, y1, x2, y2, x3, y3);
+        if (area == 0)
+        {
+            return;
+        }
+
+        // make the winding positive, so inside means all edge functions are positive
+        if (area < 0)
+        {
+            int tx = x2, ty = y2;
+            x2 = x3;
+            y2 = y3;
+            x3 = tx;
+            y3 = ty;
+        }
+
+        int left = Math.max(Math.min(x1, Math.min(x2, x3)), minX);
+        int right = Math.min(Math.max(x1, Math.max(x2, x3)), maxX - 1);
+        int top = Math.max(Math.min(y1, Math.min(y2, y3)), minY);
+        int bottom = Math.min(Math.max(y1, Math.max(y2, y3)), maxY - 1);
+        if (left > right || top > bottom)
+        {
+            return;
+        }
+
+        int a1 = y2 - y3, b1 = x3 - x2;
+        int a2 = y3 - y1, b2 = x1 - x3;
+        int a3 = y1 - y2, b3 = x2 - x1;
+
+        int e1 = orient(x2, y2, x3, y3, left, top) + (isTopLeft(x2, y2, x3, y3) ? 0 : -1);
+        int e2 = orient(x3, y3, x1, y1, left, top) + (isTopLeft(x3, y3, x1, y1) ? 0 : -1);
+        int e3 = orient(x1, y1, x2, y2, left, top) + (isTopLeft(x1, y1, x2, y2) ? 0 : -1);
+
+        int p = id * PLANES + 6;
+        double dwdx = planes[p + 1], dwdy = planes[p + 2];
+        double wRow = planes[p] + dwdx * left + dwdy * top;
+
+        for (int y = top; y <= bottom; y++)
+        {
+            // the span of the row where all three edge functions are positive
+            int from = 0, to = right - left;
+            from = Math.max(from, spanStart(e1, a1));
+            from = Math.max(from, spanStart(e2, a2));
+            from = Math.max(from, spanStart(e3, a3));
+            to = Math.min(to, spanEnd(e1, a1));
+            to = Math.min(to, spanEnd(e2, a2));
+            to = Math.min(to, spanEnd(e3, a3));
+
+            if (from <= to)
+            {
+                double w = wRow + dwdx * from;
+                for (int index = left + from + y * width, end = left + to + y * width; index <= end; index++)
+                {
+                    if (zBuffer.testAndSet(index, Math.abs(w)))
+                    {
+                        ids[index] = id;
+                    }
+                    w += dwdx;
+                }
+            }
+
+            e1 += b1;
+            e2 += b2;
+            e3 += b3;
+            wRow += dwdy;
+        }
+    }
+
+    /**
+     * The first step from the left edge of the bounding rectangle where the edge function e + a * step is positive.
+     */
+    private static int spanStart(int e, int a)
+    {
+        if (e >= 0)
+        {
+            return 0;
+        }
+        return a > 0 ? (-e + a - 1) / a : Integer.MAX_VALUE;
+    }
+
+    /**
+     * The last step from the left edge of the bounding rectangle where the edge function e + a * step is positive.
+     */
+    private static int spanEnd(int e, int a)
+    {
+        if (a >= 0)
+        {
+            return a > 0 || e >= 0 ? Integer.MAX_VALUE : -1;
+        }
+        return e >= 0 ? e / -a : -1;
+    }
+
+    /**
+     * Textures every pixel inside the clip rectangle that a triangle has been rasterized to in the current frame.
+     * See {@link DrawUtils#TexturedTriangle} for the shading parameters.
+     *
+     * @param pix     The pixel array of the screen.
+     * @param zBuffer The depth buffer the triangles have been rasterized with.
+     * @param minX    The inclusive left edge of the clip rectangle.
+     * @param minY    The inclusive top edge of the clip rectangle.
+     * @param maxX    The exclusive right edge of the clip rectangle.
+     * @param maxY    The exclusive bottom edge of the clip rectangle.
+     */
+    public void resolve(int[] pix, ZBuffer zBuffer, int minX, int minY, int maxX, int maxY,
+                        double visibility, boolean fog, boolean directionLighting)
+    {
+        for (int y = minY; y < maxY; y++)
+        {
+            // neighbouring pixels of the same triangle step the planes instead of evaluating them
+            int last = -1;
+            double u = 0, v = 0, w = 0, dudx = 0, dvdx = 0, dwdx = 0;
+            Texture tex = null;
+            int[] texels = null;
+            boolean bilinear = false;
+            int tint = ColorUtils.CD_WHITE;
+
+            for (int x = minX, index = minX + y * width; x < maxX; x++, index++)
+            {
+                if (!zBuffer.isWritten(index))
+                {
+                    last = -1;
+                    continue;
+                }
+
+                int id = ids[index];
+                if (id != last)
+                {
+                    int p = id * PLANES;
+                    u = planes[p] + planes[p + 1] * x + planes[p + 2] * y;
+                    v = planes[p + 3] + planes[p + 4] * x + planes[p + 5] * y;
+                    w = planes[p + 6] + planes[p + 7] * x + planes[p + 8] * y;
+                    dudx = planes[p + 1];
+                    dvdx = planes[p + 4];
+                    dwdx = planes[p + 7];
+                    tex = textures[id];
+                    texels = tex.getTexArray();
+                    bilinear = filters[id] == TextureFilter.BILINEAR;
+                    tint = tints[id];
+                    last = id;
+                }
+
+                double invW = 1.0 / w;
+                int col;
+                if (bilinear)
+                {
+                    col = tex.getPixelBilinear((int) (u * invW * tex.getWidth() * 256), (int) (v * invW * tex.getHeight() * 256));
+                }
+                else
+                {
+                    int iu = (int) (u * invW * tex.getWidth()) & tex.getWidthMask();
+                    int iv = (int) (v * invW * tex.getHeight()) & tex.getHeightMask();
+                    col = texels != null ? texels[tex.getColumnOffsets()[iu] + tex.getRowOffsets()[iv]] : tex.getPixel(iu, iv);
+                }
+                if (tint != ColorUtils.CD_WHITE)
+                {
+                    col = ColorUtils.modulate(col, tint);
+                }
+                pix[index] = DrawUtils.shade(col, visibility, fog, directionLighting, dps[id]);
+
+                u += dudx;
+                v += dvdx;
+                w += dwdx;
+            }
+        }
+    }
+
+    /**
+     * @return The number of triangles added since the last reset.
+     */
+    public int getTriangleCount()
+    {
+        return triangleCount;
+    }
+}
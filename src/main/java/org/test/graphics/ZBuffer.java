@@ -1,14 +1,44 @@
 package org.test.graphics;
 
+import java.util.Arrays;
+
 /**
  * The ZBuffer class represents a depth buffer used in computer graphics to
  * store depth values for each pixel on the screen.
+ * <p>
+ * Larger depth values are nearer to the camera. Every depth value is packed into an int together with the generation
+ * of the frame it was written in: the low {@link #DEPTH_BITS} bits hold the depth, quantized to a float with
+ * a shortened mantissa, the bits above hold the generation. Values of an older generation always compare smaller
+ * than values of the current one, so {@link #resetBuffer()} only has to start a new generation instead of writing
+ * the whole buffer. The buffer is only really cleared when the generations run out, once every
+ * {@link #MAX_GENERATION} frames.
+ * <p>
+ * Alongside the pixels the buffer keeps a coarse level with the farthest depth of every tile of
+ * {@link #HIERARCHY_TILE_SIZE} pixels. Rasterizers {@link #invalidate} the tiles they have drawn to, a tile is only
+ * recalculated when {@link #isOccluded} needs it again. A triangle whose nearest depth is behind the farthest depth
+ * of every tile it overlaps can't change a single pixel and is rejected without being rasterized.
  */
 public class ZBuffer
 {
+    static final int DEPTH_BITS = 24;
+    static final int MAX_GENERATION = (1 << (31 - DEPTH_BITS)) - 1;
+    public static final int HIERARCHY_TILE_SIZE = 8;
+    private static final int HIERARCHY_TILE_SHIFT = 3;
+
+    // depths between 2^-16 and 2^16 keep 19 bits of mantissa, smaller and larger values are clamped
+    private static final int MIN_DEPTH_BITS = Float.floatToRawIntBits(0x1p-16f);
+    private static final int MAX_DEPTH_BITS = Float.floatToRawIntBits(0x1p16f) - 1;
+    private static final int DEPTH_SHIFT = 4;
+
     private final int width;
     private final int height;
-    private final double[] zBuffer;
+    private final int[] zBuffer;
+    private int generation = 1;
+
+    // the packed farthest depth per tile, only up to date for tiles that aren't dirty
+    private final int tilesX;
+    private final int[] tileFarthest;
+    private final boolean[] tileDirty;
 
     /**
      * Constructs a new ZBuffer with the specified width and height.
@@ -20,18 +50,37 @@ public class ZBuffer
     {
         this.width = width;
         this.height = height;
-        zBuffer = new double[width * height];
+        zBuffer = new int[width * height];
+
+        tilesX = (width + HIERARCHY_TILE_SIZE - 1) >> HIERARCHY_TILE_SHIFT;
+        int tilesY = (height + HIERARCHY_TILE_SIZE - 1) >> HIERARCHY_TILE_SHIFT;
+        tileFarthest = new int[tilesX * tilesY];
+        tileDirty = new boolean[tilesX * tilesY];
     }
 
     /**
      * Resets the depth buffer, setting all depth values to zero.
+     * This only starts a new generation, except once every {@link #MAX_GENERATION} calls.
      */
     public void resetBuffer()
     {
-        for (int x = 0; x < width * height; x++)
+        if (generation == MAX_GENERATION)
         {
-            zBuffer[x] = 0.0;
+            Arrays.fill(zBuffer, 0);
+            Arrays.fill(tileFarthest, 0);
+            generation = 0;
         }
+        generation++;
+    }
+
+    /**
+     * Packs a depth value with the current generation.
+     */
+    private int pack(double value)
+    {
+        int bits = Float.floatToRawIntBits((float) value);
+        bits = Math.min(Math.max(bits, MIN_DEPTH_BITS), MAX_DEPTH_BITS);
+        return (generation << DEPTH_BITS) | ((bits - MIN_DEPTH_BITS) >>> DEPTH_SHIFT);
     }
 
     /**
@@ -47,7 +96,7 @@ public class ZBuffer
         {
             return;
         }
-        zBuffer[x + y * width] = value;
+        zBuffer[x + y * width] = pack(value);
     }
 
     /**
@@ -65,17 +114,121 @@ public class ZBuffer
         {
             return false;
         }
-        return zBuffer[x + y * width] < value;
+        return zBuffer[x + y * width] < pack(value);
+    }
+
+    /**
+     * Stores the depth value at the given index if it is nearer than the current one, without checking the bounds.
+     * Meant for the inner loops of rasterizers that already clipped their pixels to the buffer.
+     *
+     * @param index The index of the pixel, x + y * width.
+     * @param value The depth value of the pixel.
+     * @return True if the value was nearer and has been stored, false otherwise.
+     */
+    public boolean testAndSet(int index, double value)
+    {
+        int packed = pack(value);
+        if (zBuffer[index] < packed)
+        {
+            zBuffer[index] = packed;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a depth value has been stored at the given index since the last reset, without checking the bounds.
+     *
+     * @param index The index of the pixel, x + y * width.
+     * @return True if something has been drawn to the pixel in the current frame.
+     */
+    public boolean isWritten(int index)
+    {
+        return zBuffer[index] >>> DEPTH_BITS == generation;
     }
 
     /**
-     * Retrieves the depth buffer array.
+     * Checks if a triangle is hidden behind the depth values already drawn.
+     * The rectangle must lie inside the buffer, all its tiles are tested and recalculated if they are dirty.
+     * Pixels of an older generation are farther than every current depth, so tiles don't need to be reset.
      *
-     * @return The depth buffer array.
+     * @param minX    The inclusive left edge of the bounding rectangle of the triangle.
+     * @param minY    The inclusive top edge of the bounding rectangle.
+     * @param maxX    The inclusive right edge of the bounding rectangle.
+     * @param maxY    The inclusive bottom edge of the bounding rectangle.
+     * @param nearest The nearest, so largest, depth value of the triangle.
+     * @return True if every pixel in the rectangle is at least as near as the triangle.
      */
-    public double[] getZBuffer()
+    public boolean isOccluded(int minX, int minY, int maxX, int maxY, double nearest)
     {
-        return zBuffer;
+        int packed = pack(nearest);
+        for (int ty = minY >> HIERARCHY_TILE_SHIFT; ty <= maxY >> HIERARCHY_TILE_SHIFT; ty++)
+        {
+            for (int tx = minX >> HIERARCHY_TILE_SHIFT; tx <= maxX >> HIERARCHY_TILE_SHIFT; tx++)
+            {
+                int tile = tx + ty * tilesX;
+                if (tileDirty[tile])
+                {
+                    updateTile(tx, ty);
+                }
+                if (tileFarthest[tile] < packed)
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the tiles overlapping the rectangle as changed, must be called after drawing into it.
+     *
+     * @param minX The inclusive left edge of the rectangle, inside the buffer.
+     * @param minY The inclusive top edge of the rectangle.
+     * @param maxX The inclusive right edge of the rectangle.
+     * @param maxY The inclusive bottom edge of the rectangle.
+     */
+    public void invalidate(int minX, int minY, int maxX, int maxY)
+    {
+        for (int ty = minY >> HIERARCHY_TILE_SHIFT; ty <= maxY >> HIERARCHY_TILE_SHIFT; ty++)
+        {
+            Arrays.fill(tileDirty, (minX >> HIERARCHY_TILE_SHIFT) + ty * tilesX, (maxX >> HIERARCHY_TILE_SHIFT) + ty * tilesX + 1, true);
+        }
+    }
+
+    private void updateTile(int tx, int ty)
+    {
+        int minX = tx << HIERARCHY_TILE_SHIFT, minY = ty << HIERARCHY_TILE_SHIFT;
+        int maxX = Math.min(minX + HIERARCHY_TILE_SIZE, width), maxY = Math.min(minY + HIERARCHY_TILE_SIZE, height);
+
+        int farthest = Integer.MAX_VALUE;
+        for (int y = minY; y < maxY; y++)
+        {
+            for (int index = minX + y * width; index < maxX + y * width; index++)
+            {
+                farthest = Math.min(farthest, zBuffer[index]);
+            }
+        }
+
+        tileFarthest[tx + ty * tilesX] = farthest;
+        tileDirty[tx + ty * tilesX] = false;
+    }
+
+    /**
+     * Retrieves the quantized depth value at the specified coordinates.
+     *
+     * @param x The x-coordinate.
+     * @param y The y-coordinate.
+     * @return The depth value, 0 if nothing has been drawn there since the last reset.
+     */
+    public double getDepth(int x, int y)
+    {
+        int packed = zBuffer[x + y * width];
+        if (packed >>> DEPTH_BITS != generation)
+        {
+            return 0.0;
+        }
+        return Float.intBitsToFloat(((packed & ((1 << DEPTH_BITS) - 1)) << DEPTH_SHIFT) + MIN_DEPTH_BITS);
     }
 
     /**
@@ -87,4 +240,14 @@ public class ZBuffer
     {
         return width;
     }
+
+    /**
+     * Retrieves the height of the ZBuffer.
+     *
+     * @return The height of the ZBuffer.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
 }
@@ -0,0 +1,137 @@
+package org.test.math;
+
+import org.test.math.matrix.FlatMatrix4x4;
+
+import java.util.Objects;
+
+/**
+ * An axis aligned box enclosing a set of points.
+ */
+public class BoundingBox
+{
+    public double minX, minY, minZ;
+    public double maxX, maxY, maxZ;
+
+    /**
+     * Constructs a bounding box from its corners.
+     *
+     * @param minX The smallest x value.
+     * @param minY The smallest y value.
+     * @param minZ The smallest z value.
+     * @param maxX The largest x value.
+     * @param maxY The largest y value.
+     * @param maxZ The largest z value.
+     */
+    public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+    {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Calculates the bounding box of flattened positions. An empty array results in an empty box at the origin.
+     *
+     * @param positions The positions, three floats per point.
+     * @return The smallest box containing all positions.
+     */
+    public static BoundingBox of(float[] positions)
+    {
+        if (positions.length < 3)
+        {
+            return new BoundingBox(0, 0, 0, 0, 0, 0);
+        }
+
+        float minX = positions[0], minY = positions[1], minZ = positions[2];
+        float maxX = minX, maxY = minY, maxZ = minZ;
+        for (int i = 3; i + 2 < positions.length; i += 3)
+        {
+            minX = Math.min(minX, positions[i]);
+            minY = Math.min(minY, positions[i + 1]);
+            minZ = Math.min(minZ, positions[i + 2]);
+            maxX = Math.max(maxX, positions[i]);
+            maxY = Math.max(maxY, positions[i + 1]);
+            maxZ = Math.max(maxZ, positions[i + 2]);
+        }
+        return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Moves the box by the given offset.
+     *
+     * @param x The offset in the x direction.
+     * @param y The offset in the y direction.
+     * @param z The offset in the z direction.
+     */
+    public void translate(double x, double y, double z)
+    {
+        minX += x;
+        minY += y;
+        minZ += z;
+        maxX += x;
+        maxY += y;
+        maxZ += z;
+    }
+
+    /**
+     * Calculates the axis aligned box enclosing this box after it has been transformed by an affine matrix
+     * and stores its corners in the layout of the {@link BoundingVolumeHierarchy}. Every corner of the result is
+     * the sum of the smaller or larger products per matrix element, so the eight corners are never transformed.
+     *
+     * @param matrix The transformation, vectors are treated as row vectors.
+     * @param bounds The array receiving minX, minY, minZ, maxX, maxY and maxZ.
+     * @param offset The index of minX in the array.
+     */
+    public void transformInto(FlatMatrix4x4 matrix, double[] bounds, int offset)
+    {
+        double[] m = matrix.m;
+        for (int axis = 0; axis < 3; axis++)
+        {
+            double min = m[12 + axis], max = min;
+
+            double a = m[axis] * minX, b = m[axis] * maxX;
+            min += Math.min(a, b);
+            max += Math.max(a, b);
+            a = m[4 + axis] * minY;
+            b = m[4 + axis] * maxY;
+            min += Math.min(a, b);
+            max += Math.max(a, b);
+            a = m[8 + axis] * minZ;
+            b = m[8 + axis] * maxZ;
+            min += Math.min(a, b);
+            max += Math.max(a, b);
+
+            bounds[offset + axis] = min;
+            bounds[offset + 3 + axis] = max;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BoundingBox{" +
+                "min=(" + minX + ", " + minY + ", " + minZ + ")" +
+                ", max=(" + maxX + ", " + maxY + ", " + maxZ + ")" +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BoundingBox that = (BoundingBox) o;
+        return Double.compare(minX, that.minX) == 0 && Double.compare(minY, that.minY) == 0
+                && Double.compare(minZ, that.minZ) == 0 && Double.compare(maxX, that.maxX) == 0
+                && Double.compare(maxY, that.maxY) == 0 && Double.compare(maxZ, that.maxZ) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+}
@@ -0,0 +1,552 @@
+package org.test.math;
+
+import java.util.Arrays;
+
+/**
+ * A tree of axis aligned boxes over a set of items, each item given by its own bounding box.
+ * <p>
+ * The tree is built top down with the surface area heuristic: the items of a node are sorted into {@link #BINS}
+ * bins along the longest axis of their centers and the node is split at the bin border with the lowest expected cost
+ * of visiting both children. Nodes are stored in flat arrays; the children of an inner node are stored next to each
+ * other and leaves reference a range of the item order array.
+ * <p>
+ * When items move, {@link #refit(double[])} updates the boxes of all nodes bottom up without changing the tree.
+ * That stays correct for any movement, but the tree gets less efficient when items move far from where it was built.
+ */
+public class BoundingVolumeHierarchy
+{
+    public static final int BINS = 16;
+
+    // the cost of visiting an inner node relative to testing one item
+    private static final double TRAVERSAL_COST = 1.0;
+
+    private final int maxLeafSize;
+
+    // minX, minY, minZ, maxX, maxY, maxZ of every item and every node
+    private double[] itemBounds = new double[0];
+    private double[] nodeBounds = new double[0];
+    // inner nodes store their left child (the right one follows it) and a count of 0, leaves their first item and count
+    private int[] nodeFirst = new int[0];
+    private int[] nodeCount = new int[0];
+    private int[] items = new int[0];
+    private int itemCount;
+    private int nodeTotal;
+
+    private long buildNanos;
+    private long refitNanos;
+
+    // scratch space of the builder, reused for every node
+    private final double[] binBounds = new double[BINS * 6];
+    private final int[] binCounts = new int[BINS];
+    private final double[] rightAreas = new double[BINS];
+    private final double[] scratchBox = new double[6];
+    private double bestCost;
+
+    /**
+     * Constructs an empty hierarchy.
+     *
+     * @param maxLeafSize The number of items a leaf may hold before it is always split.
+     * @throws IllegalArgumentException If the leaf size is smaller than 1.
+     */
+    public BoundingVolumeHierarchy(int maxLeafSize)
+    {
+        if (maxLeafSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid leaf size: " + maxLeafSize);
+        }
+        this.maxLeafSize = maxLeafSize;
+    }
+
+    /**
+     * Builds the tree over the given items, replacing the previous tree.
+     *
+     * @param bounds The boxes of the items, minX, minY, minZ, maxX, maxY and maxZ for every item.
+     * @param count  The number of items.
+     */
+    public void build(double[] bounds, int count)
+    {
+        long start = System.nanoTime();
+
+        itemCount = count;
+        itemBounds = Arrays.copyOf(bounds, count * 6);
+        items = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            items[i] = i;
+        }
+
+        int maxNodes = Math.max(1, 2 * count - 1);
+        nodeBounds = new double[maxNodes * 6];
+        nodeFirst = new int[maxNodes];
+        nodeCount = new int[maxNodes];
+        nodeTotal = 1;
+        nodeFirst[0] = 0;
+        nodeCount[0] = count;
+        updateNodeBounds(0);
+
+        // nodes waiting to be split, an explicit stack keeps degenerate trees from overflowing the call stack
+        int[] pending = new int[64];
+        int size = 0;
+        pending[size++] = 0;
+        while (size > 0)
+        {
+            int node = pending[--size];
+            if (count > 0 && split(node))
+            {
+                if (size + 2 > pending.length)
+                {
+                    pending = Arrays.copyOf(pending, pending.length * 2);
+                }
+                pending[size++] = nodeFirst[node];
+                pending[size++] = nodeFirst[node] + 1;
+            }
+        }
+
+        buildNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Splits a leaf into two children if that lowers the expected cost or the leaf holds too many items.
+     *
+     * @return True if the node has been split.
+     */
+    private boolean split(int node)
+    {
+        int first = nodeFirst[node], count = nodeCount[node];
+        if (count == 1)
+        {
+            return false;
+        }
+
+        // the bounds of the item centers decide the split axis
+        double[] centerBounds = scratchBox;
+        setEmpty(centerBounds, 0);
+        for (int i = first; i < first + count; i++)
+        {
+            for (int a = 0; a < 3; a++)
+            {
+                double center = center(items[i], a);
+                centerBounds[a] = Math.min(centerBounds[a], center);
+                centerBounds[a + 3] = Math.max(centerBounds[a + 3], center);
+            }
+        }
+
+        int axis = 0;
+        for (int a = 1; a < 3; a++)
+        {
+            if (centerBounds[a + 3] - centerBounds[a] > centerBounds[axis + 3] - centerBounds[axis])
+            {
+                axis = a;
+            }
+        }
+
+        double min = centerBounds[axis], extent = centerBounds[axis + 3] - min;
+        int mid;
+        if (extent <= 0)
+        {
+            // all centers coincide, no split can separate the items
+            if (count <= maxLeafSize)
+            {
+                return false;
+            }
+            mid = first + count / 2;
+        }
+        else
+        {
+            int bestBin = findBestSplit(node, axis, min, extent);
+            // a leaf costs one test per item, it is kept if no split is expected to be cheaper
+            if (bestBin < 0 || bestCost >= count)
+            {
+                if (count <= maxLeafSize)
+                {
+                    return false;
+                }
+                mid = first + count / 2;
+                sortByCenter(first, count, axis);
+            }
+            else
+            {
+                mid = partition(first, count, axis, min, extent, bestBin);
+                if (mid == first || mid == first + count)
+                {
+                    mid = first + count / 2;
+                    sortByCenter(first, count, axis);
+                }
+            }
+        }
+
+        int left = nodeTotal;
+        nodeTotal += 2;
+        nodeFirst[left] = first;
+        nodeCount[left] = mid - first;
+        nodeFirst[left + 1] = mid;
+        nodeCount[left + 1] = first + count - mid;
+        nodeFirst[node] = left;
+        nodeCount[node] = 0;
+
+        updateNodeBounds(left);
+        updateNodeBounds(left + 1);
+        return true;
+    }
+
+    /**
+     * Bins the items of a node by their centers and returns the number of bins left of the cheapest split,
+     * or -1 if no split separates the items. The cost of that split is stored in bestCost.
+     */
+    private int findBestSplit(int node, int axis, double min, double extent)
+    {
+        int first = nodeFirst[node], count = nodeCount[node];
+        Arrays.fill(binCounts, 0);
+        for (int b = 0; b < BINS; b++)
+        {
+            setEmpty(binBounds, b);
+        }
+
+        for (int i = first; i < first + count; i++)
+        {
+            int b = bin(items[i], axis, min, extent);
+            binCounts[b]++;
+            grow(binBounds, b, itemBounds, items[i]);
+        }
+
+        // sweep from the right to get the area of every right side, then from the left to evaluate the splits
+        double[] box = scratchBox;
+        setEmpty(box, 0);
+        int rightCount = 0;
+        for (int b = BINS - 1; b > 0; b--)
+        {
+            grow(box, 0, binBounds, b);
+            rightCount += binCounts[b];
+            rightAreas[b] = rightCount == 0 ? 0 : area(box, 0);
+        }
+
+        double parentArea = area(nodeBounds, node);
+        setEmpty(box, 0);
+        int leftCount = 0;
+        int best = -1;
+        bestCost = Double.MAX_VALUE;
+        for (int b = 1; b < BINS; b++)
+        {
+            grow(box, 0, binBounds, b - 1);
+            leftCount += binCounts[b - 1];
+            rightCount = count - leftCount;
+            if (leftCount == 0 || rightCount == 0)
+            {
+                continue;
+            }
+
+            double cost = TRAVERSAL_COST + (area(box, 0) * leftCount + rightAreas[b] * rightCount) / parentArea;
+            if (cost < bestCost)
+            {
+                bestCost = cost;
+                best = b;
+            }
+        }
+        return best;
+    }
+
+    private int bin(int item, int axis, double min, double extent)
+    {
+        int b = (int) ((center(item, axis) - min) / extent * BINS);
+        return Math.min(b, BINS - 1);
+    }
+
+    /**
+     * Moves the items left of the given bin to the front of the range and returns the first item of the right side.
+     */
+    private int partition(int first, int count, int axis, double min, double extent, int splitBin)
+    {
+        int i = first, j = first + count - 1;
+        while (i <= j)
+        {
+            if (bin(items[i], axis, min, extent) < splitBin)
+            {
+                i++;
+            }
+            else
+            {
+                int tmp = items[i];
+                items[i] = items[j];
+                items[j--] = tmp;
+            }
+        }
+        return i;
+    }
+
+    private void sortByCenter(int first, int count, int axis)
+    {
+        Integer[] sorted = new Integer[count];
+        for (int i = 0; i < count; i++)
+        {
+            sorted[i] = items[first + i];
+        }
+        Arrays.sort(sorted, (a, b) -> Double.compare(center(a, axis), center(b, axis)));
+        for (int i = 0; i < count; i++)
+        {
+            items[first + i] = sorted[i];
+        }
+    }
+
+    private double center(int item, int axis)
+    {
+        return (itemBounds[item * 6 + axis] + itemBounds[item * 6 + axis + 3]) * 0.5;
+    }
+
+    /**
+     * Recalculates the box of a node from its items or children.
+     */
+    private void updateNodeBounds(int node)
+    {
+        setEmpty(nodeBounds, node);
+        // only inner nodes are empty, except the root of an empty tree
+        if (nodeCount[node] == 0 && itemCount > 0)
+        {
+            grow(nodeBounds, node, nodeBounds, nodeFirst[node]);
+            grow(nodeBounds, node, nodeBounds, nodeFirst[node] + 1);
+            return;
+        }
+
+        for (int i = nodeFirst[node]; i < nodeFirst[node] + nodeCount[node]; i++)
+        {
+            grow(nodeBounds, node, itemBounds, items[i]);
+        }
+    }
+
+    /**
+     * Updates the boxes of all nodes after the items moved. The items must be the same as when the tree was built.
+     *
+     * @param bounds The new boxes of the items, in the same layout and order as passed to {@link #build}.
+     */
+    public void refit(double[] bounds)
+    {
+        long start = System.nanoTime();
+
+        System.arraycopy(bounds, 0, itemBounds, 0, itemCount * 6);
+        // children are always stored after their parent, so walking backwards visits them first
+        for (int node = nodeTotal - 1; node >= 0; node--)
+        {
+            updateNodeBounds(node);
+        }
+
+        refitNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Marks every item whose box is not completely outside the frustum. Subtrees completely inside the frustum
+     * are marked without testing their boxes, subtrees outside are skipped.
+     *
+     * @param frustum The frustum to test against.
+     * @param visible Receives true for every visible item, entries of other items are left unchanged.
+     */
+    public void cull(Frustum frustum, boolean[] visible)
+    {
+        if (itemCount > 0)
+        {
+            cull(0, frustum, visible, false);
+        }
+    }
+
+    private void cull(int node, Frustum frustum, boolean[] visible, boolean inside)
+    {
+        if (!inside)
+        {
+            Frustum.Containment containment = classify(frustum, nodeBounds, node);
+            if (containment == Frustum.Containment.OUTSIDE)
+            {
+                return;
+            }
+            inside = containment == Frustum.Containment.INSIDE;
+        }
+
+        if (nodeCount[node] == 0)
+        {
+            cull(nodeFirst[node], frustum, visible, inside);
+            cull(nodeFirst[node] + 1, frustum, visible, inside);
+            return;
+        }
+
+        for (int i = nodeFirst[node]; i < nodeFirst[node] + nodeCount[node]; i++)
+        {
+            if (inside || classify(frustum, itemBounds, items[i]) != Frustum.Containment.OUTSIDE)
+            {
+                visible[items[i]] = true;
+            }
+        }
+    }
+
+    private static Frustum.Containment classify(Frustum frustum, double[] bounds, int index)
+    {
+        int i = index * 6;
+        return frustum.classify(bounds[i], bounds[i + 1], bounds[i + 2], bounds[i + 3], bounds[i + 4], bounds[i + 5]);
+    }
+
+    /**
+     * Intersects an item with a ray, called for every item whose box is hit closer than the nearest hit so far.
+     */
+    @FunctionalInterface
+    public interface RayIntersector
+    {
+        /**
+         * @param item        The index of the item.
+         * @param maxDistance The distance of the nearest hit so far.
+         * @return The distance of the hit with the item if it is nearer than maxDistance, otherwise maxDistance.
+         */
+        double intersect(int item, double maxDistance);
+    }
+
+    /**
+     * Finds the nearest hit of a ray, children are visited nearest box first, so most farther boxes can be skipped.
+     *
+     * @param ox          The x coordinate of the ray origin.
+     * @param oy          The y coordinate of the ray origin.
+     * @param oz          The z coordinate of the ray origin.
+     * @param dx          The x component of the ray direction.
+     * @param dy          The y component of the ray direction.
+     * @param dz          The z component of the ray direction.
+     * @param maxDistance Hits farther away than this are ignored, in multiples of the direction.
+     * @param intersector Tests the items whose boxes are hit.
+     * @return The distance of the nearest hit, maxDistance if nothing was hit.
+     */
+    public double intersectRay(double ox, double oy, double oz, double dx, double dy, double dz,
+                               double maxDistance, RayIntersector intersector)
+    {
+        if (itemCount == 0)
+        {
+            return maxDistance;
+        }
+
+        double ix = 1.0 / dx, iy = 1.0 / dy, iz = 1.0 / dz;
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = 0;
+
+        while (size > 0)
+        {
+            int node = stack[--size];
+            if (hitDistance(node, ox, oy, oz, ix, iy, iz, maxDistance) >= maxDistance)
+            {
+                continue;
+            }
+
+            if (nodeCount[node] > 0)
+            {
+                for (int i = nodeFirst[node]; i < nodeFirst[node] + nodeCount[node]; i++)
+                {
+                    maxDistance = Math.min(maxDistance, intersector.intersect(items[i], maxDistance));
+                }
+                continue;
+            }
+
+            int near = nodeFirst[node], far = near + 1;
+            double nearDistance = hitDistance(near, ox, oy, oz, ix, iy, iz, maxDistance);
+            double farDistance = hitDistance(far, ox, oy, oz, ix, iy, iz, maxDistance);
+            if (farDistance < nearDistance)
+            {
+                int tmp = near;
+                near = far;
+                far = tmp;
+            }
+
+            if (size + 2 > stack.length)
+            {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            // the nearer child is pushed last, so it is visited first
+            stack[size++] = far;
+            stack[size++] = near;
+        }
+
+        return maxDistance;
+    }
+
+    /**
+     * The distance at which the ray enters the box of a node, maxDistance if it misses it or enters it after that.
+     */
+    private double hitDistance(int node, double ox, double oy, double oz, double ix, double iy, double iz, double maxDistance)
+    {
+        int b = node * 6;
+        double tNear = slabNear(nodeBounds[b], nodeBounds[b + 3], ox, ix, 0.0);
+        tNear = slabNear(nodeBounds[b + 1], nodeBounds[b + 4], oy, iy, tNear);
+        tNear = slabNear(nodeBounds[b + 2], nodeBounds[b + 5], oz, iz, tNear);
+        double tFar = slabFar(nodeBounds[b], nodeBounds[b + 3], ox, ix, maxDistance);
+        tFar = slabFar(nodeBounds[b + 1], nodeBounds[b + 4], oy, iy, tFar);
+        tFar = slabFar(nodeBounds[b + 2], nodeBounds[b + 5], oz, iz, tFar);
+        return tNear <= tFar ? tNear : maxDistance;
+    }
+
+    /**
+     * Raises tNear to the distance at which the ray enters the slab between min and max on one axis.
+     * A ray parallel to the slab never enters or leaves it, multiplying the infinite inverse with the zero distance
+     * of an origin on the border would give NaN, so only the position of the origin decides.
+     */
+    private static double slabNear(double min, double max, double origin, double inverse, double tNear)
+    {
+        if (Double.isInfinite(inverse))
+        {
+            return origin >= min && origin <= max ? tNear : Double.POSITIVE_INFINITY;
+        }
+        double t1 = (min - origin) * inverse, t2 = (max - origin) * inverse;
+        return Math.max(tNear, Math.min(t1, t2));
+    }
+
+    /**
+     * Lowers tFar to the distance at which the ray leaves the slab between min and max on one axis.
+     */
+    private static double slabFar(double min, double max, double origin, double inverse, double tFar)
+    {
+        if (Double.isInfinite(inverse))
+        {
+            return origin >= min && origin <= max ? tFar : Double.NEGATIVE_INFINITY;
+        }
+        double t1 = (min - origin) * inverse, t2 = (max - origin) * inverse;
+        return Math.min(tFar, Math.max(t1, t2));
+    }
+
+    private static void setEmpty(double[] bounds, int index)
+    {
+        int i = index * 6;
+        bounds[i] = bounds[i + 1] = bounds[i + 2] = Double.MAX_VALUE;
+        bounds[i + 3] = bounds[i + 4] = bounds[i + 5] = -Double.MAX_VALUE;
+    }
+
+    private static void grow(double[] bounds, int index, double[] other, int otherIndex)
+    {
+        int i = index * 6, o = otherIndex * 6;
+        for (int a = 0; a < 3; a++)
+        {
+            bounds[i + a] = Math.min(bounds[i + a], other[o + a]);
+            bounds[i + a + 3] = Math.max(bounds[i + a + 3], other[o + a + 3]);
+        }
+    }
+
+    private static double area(double[] bounds, int index)
+    {
+        int i = index * 6;
+        double x = bounds[i + 3] - bounds[i], y = bounds[i + 4] - bounds[i + 1], z = bounds[i + 5] - bounds[i + 2];
+        return x * y + y * z + z * x;
+    }
+
+    /**
+     * @return The number of nodes of the tree, leaves included.
+     */
+    public int getNodeCount()
+    {
+        return nodeTotal;
+    }
+
+    /**
+     * @return The duration of the last build in nanoseconds.
+     */
+    public long getBuildNanos()
+    {
+        return buildNanos;
+    }
+
+    /**
+     * @return The duration of the last refit in nanoseconds.
+     */
+    public long getRefitNanos()
+    {
+        return refitNanos;
+    }
+}
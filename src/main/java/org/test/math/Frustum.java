@@ -0,0 +1,116 @@
+package org.test.math;
+
+import org.test.math.matrix.FlatMatrix4x4;
+
+/**
+ * The six planes of the volume visible to the camera, used to skip whole objects before their triangles are touched.
+ * The planes are extracted from the combined world, view and projection matrix, so they lie in the space of the
+ * untransformed vertices and bounding boxes can be tested without transforming them.
+ */
+public class Frustum
+{
+    /**
+     * How a bounding box lies relative to the frustum.
+     */
+    public enum Containment
+    {
+        OUTSIDE, INTERSECTING, INSIDE
+    }
+
+    private static final int PLANES = 6;
+
+    // a, b, c, d of every plane, a point is on the inner side when a * x + b * y + c * z + d >= 0
+    private final double[] planes = new double[PLANES * 4];
+    private final FlatMatrix4x4 matClip = new FlatMatrix4x4();
+
+    /**
+     * Extracts the planes of the frustum.
+     *
+     * @param matWorldView The world matrix multiplied by the view matrix.
+     * @param matProj      The projection matrix.
+     * @param near         The distance of the near plane in view space.
+     * @param far          The distance of the far plane in view space.
+     * @return This frustum.
+     */
+    public Frustum set(FlatMatrix4x4 matWorldView, FlatMatrix4x4 matProj, double near, double far)
+    {
+        double[] c = matWorldView.mulInto(matProj, matClip).m;
+        double[] v = matWorldView.m;
+
+        // a point is visible when -w <= x, y <= w, the projection decides the sign of w in front of the camera
+        double s = Math.signum(matProj.get(2, 3) + matProj.get(3, 3));
+        setPlane(0, s * c[3] + c[0], s * c[7] + c[4], s * c[11] + c[8], s * c[15] + c[12]);
+        setPlane(1, s * c[3] - c[0], s * c[7] - c[4], s * c[11] - c[8], s * c[15] - c[12]);
+        setPlane(2, s * c[3] + c[1], s * c[7] + c[5], s * c[11] + c[9], s * c[15] + c[13]);
+        setPlane(3, s * c[3] - c[1], s * c[7] - c[5], s * c[11] - c[9], s * c[15] - c[13]);
+
+        // near and far bound the view space depth, which is the third column of the world view matrix
+        setPlane(4, v[2], v[6], v[10], v[14] - near);
+        setPlane(5, -v[2], -v[6], -v[10], far - v[14]);
+        return this;
+    }
+
+    private void setPlane(int plane, double a, double b, double c, double d)
+    {
+        planes[plane * 4] = a;
+        planes[plane * 4 + 1] = b;
+        planes[plane * 4 + 2] = c;
+        planes[plane * 4 + 3] = d;
+    }
+
+    /**
+     * @return True if the point lies inside the frustum or on its border.
+     */
+    public boolean contains(double x, double y, double z)
+    {
+        for (int p = 0; p < planes.length; p += 4)
+        {
+            if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests a bounding box against all planes. A box is only reported outside if it lies completely on the outer
+     * side of one plane, so boxes near the corners of the frustum may be reported as intersecting although
+     * they are not visible.
+     *
+     * @param box The box to test.
+     * @return Whether the box is outside, partially inside or completely inside the frustum.
+     */
+    public Containment classify(BoundingBox box)
+    {
+        return classify(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
+    /**
+     * Tests a bounding box given by its corners against all planes, see {@link #classify(BoundingBox)}.
+     *
+     * @return Whether the box is outside, partially inside or completely inside the frustum.
+     */
+    public Containment classify(double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+    {
+        Containment containment = Containment.INSIDE;
+        for (int p = 0; p < planes.length; p += 4)
+        {
+            double a = planes[p], b = planes[p + 1], c = planes[p + 2], d = planes[p + 3];
+
+            // the corner farthest along the plane normal and the one farthest against it
+            double far = a * (a >= 0 ? maxX : minX) + b * (b >= 0 ? maxY : minY) + c * (c >= 0 ? maxZ : minZ) + d;
+            if (far < 0)
+            {
+                return Containment.OUTSIDE;
+            }
+
+            double near = a * (a >= 0 ? minX : maxX) + b * (b >= 0 ? minY : maxY) + c * (c >= 0 ? minZ : maxZ) + d;
+            if (near < 0)
+            {
+                containment = Containment.INTERSECTING;
+            }
+        }
+        return containment;
+    }
+}
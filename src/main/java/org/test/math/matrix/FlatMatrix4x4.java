@@ -0,0 +1,351 @@
+package org.test.math.matrix;
+
+import org.test.math.vector.Vector3D;
+
+import java.util.Arrays;
+
+/**
+ * Represents a 4x4 matrix stored in a single flat array.
+ * Unlike {@link Matrix4x4} all operations write into existing instances, so matrices can be reused
+ * from frame to frame without producing garbage. The element in row r and column c is stored at m[r * 4 + c],
+ * vectors are treated as row vectors just like in {@link Matrix4x4#multiplyMatrixVector(Vector3D)}.
+ */
+public class FlatMatrix4x4
+{
+    public final double[] m = new double[16];
+
+    /**
+     * Constructs a new zero matrix.
+     */
+    public FlatMatrix4x4()
+    {
+    }
+
+    /**
+     * Constructs a new FlatMatrix4x4 with the values of the given matrix.
+     *
+     * @param matrix The matrix to copy.
+     */
+    public FlatMatrix4x4(Matrix4x4 matrix)
+    {
+        set(matrix);
+    }
+
+    /**
+     * Copies the values of the given matrix into this matrix.
+     *
+     * @param matrix The matrix to copy.
+     * @return This matrix.
+     */
+    public final FlatMatrix4x4 set(Matrix4x4 matrix)
+    {
+        for (int row = 0; row < 4; row++)
+        {
+            System.arraycopy(matrix.matrix[row], 0, m, row * 4, 4);
+        }
+        return this;
+    }
+
+    /**
+     * Copies the values of the given matrix into this matrix.
+     *
+     * @param matrix The matrix to copy.
+     * @return This matrix.
+     */
+    public FlatMatrix4x4 set(FlatMatrix4x4 matrix)
+    {
+        System.arraycopy(matrix.m, 0, m, 0, 16);
+        return this;
+    }
+
+    /**
+     * Gets the element in the given row and column.
+     *
+     * @param row The row of the element.
+     * @param col The column of the element.
+     * @return The value of the element.
+     */
+    public double get(int row, int col)
+    {
+        return m[row * 4 + col];
+    }
+
+    /**
+     * Turns this matrix into the identity matrix.
+     *
+     * @return This matrix.
+     */
+    public FlatMatrix4x4 setIdentity()
+    {
+        Arrays.fill(m, 0.0);
+        m[0] = 1.0;
+        m[5] = 1.0;
+        m[10] = 1.0;
+        m[15] = 1.0;
+        return this;
+    }
+
+    /**
+     * Turns this matrix into a translation matrix.
+     *
+     * @param x The translation in the x direction.
+     * @param y The translation in the y direction.
+     * @param z The translation in the z direction.
+     * @return This matrix.
+     */
+    public FlatMatrix4x4 setTranslation(double x, double y, double z)
+    {
+        setIdentity();
+        m[12] = x;
+        m[13] = y;
+        m[14] = z;
+        return this;
+    }
+
+    /**
+     * Turns this matrix into a rotation matrix around the X-axis, see {@link Matrix4x4#rotateMatrixX(double)}.
+     *
+     * @param angle The rotation angle in radians.
+     * @return This matrix.
+     */
+    public FlatMatrix4x4 setRotationX(double angle)
+    {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+
+        setIdentity();
+        m[5] = cos;
+        m[6] = sin;
+        m[9] = -sin;
+        m[10] = cos;
+        return this;
+    }
+
+    /**
+     * Turns this matrix into a rotation matrix around the Y-axis, see {@link Matrix4x4#rotateMatrixY(double)}.
+     *
+     * @param angle The rotation angle in radians.
+     * @return This matrix.
+     */
+    public FlatMatrix4x4 setRotationY(double angle)
+    {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+
+        setIdentity();
+        m[0] = cos;
+        m[2] = sin;
+        m[8] = -sin;
+        m[10] = cos;
+        return this;
+    }
+
+    /**
+     * Turns this matrix into a rotation matrix around the Z-axis, see {@link Matrix4x4#rotateMatrixZ(double)}.
+     *
+     * @param angle The rotation angle in radians.
+     * @return This matrix.
+     */
+    public FlatMatrix4x4 setRotationZ(double angle)
+    {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+
+        setIdentity();
+        m[0] = cos;
+        m[1] = sin;
+        m[4] = -sin;
+        m[5] = cos;
+        return this;
+    }
+
+    /**
+     * Turns this matrix into a point at matrix, see {@link Matrix4x4#pointAtMatrix(Vector3D, Vector3D, Vector3D)}.
+     *
+     * @param pos    The current position of the object.
+     * @param target The target position where the object should be oriented towards.
+     * @param up     The up vector specifying the orientation of the object.
+     * @return This matrix.
+     */
+    public FlatMatrix4x4 setPointAt(Vector3D pos, Vector3D target, Vector3D up)
+    {
+        // new forward direction
+        double fx = target.x - pos.x;
+        double fy = target.y - pos.y;
+        double fz = target.z - pos.z;
+        double fl = Math.sqrt(fx * fx + fy * fy + fz * fz);
+        fx /= fl;
+        fy /= fl;
+        fz /= fl;
+
+        // new up direction
+        double a = up.x * fx + up.y * fy + up.z * fz;
+        double ux = up.x - fx * a;
+        double uy = up.y - fy * a;
+        double uz = up.z - fz * a;
+        double ul = Math.sqrt(ux * ux + uy * uy + uz * uz);
+        ux /= ul;
+        uy /= ul;
+        uz /= ul;
+
+        // new right direction is the cross product of up and forward
+        double rx = uy * fz - uz * fy;
+        double ry = uz * fx - ux * fz;
+        double rz = ux * fy - uy * fx;
+
+        m[0] = rx;  m[1] = ry;  m[2] = rz;  m[3] = 0;
+        m[4] = ux;  m[5] = uy;  m[6] = uz;  m[7] = 0;
+        m[8] = fx;  m[9] = fy;  m[10] = fz; m[11] = 0;
+        m[12] = pos.x; m[13] = pos.y; m[14] = pos.z; m[15] = 1.0;
+        return this;
+    }
+
+    /**
+     * Multiplies this matrix by another matrix and stores the result in out.
+     * out may be this matrix or the other matrix.
+     *
+     * @param other The matrix to be multiplied with this matrix.
+     * @param out   The matrix receiving the result.
+     * @return The out matrix.
+     */
+    public FlatMatrix4x4 mulInto(FlatMatrix4x4 other, FlatMatrix4x4 out)
+    {
+        double[] b = other.m;
+        double b00 = b[0], b01 = b[1], b02 = b[2], b03 = b[3];
+        double b10 = b[4], b11 = b[5], b12 = b[6], b13 = b[7];
+        double b20 = b[8], b21 = b[9], b22 = b[10], b23 = b[11];
+        double b30 = b[12], b31 = b[13], b32 = b[14], b33 = b[15];
+
+        for (int row = 0; row < 16; row += 4)
+        {
+            double a0 = m[row], a1 = m[row + 1], a2 = m[row + 2], a3 = m[row + 3];
+            out.m[row] = a0 * b00 + a1 * b10 + a2 * b20 + a3 * b30;
+            out.m[row + 1] = a0 * b01 + a1 * b11 + a2 * b21 + a3 * b31;
+            out.m[row + 2] = a0 * b02 + a1 * b12 + a2 * b22 + a3 * b32;
+            out.m[row + 3] = a0 * b03 + a1 * b13 + a2 * b23 + a3 * b33;
+        }
+        return out;
+    }
+
+    /**
+     * Calculates the inverse of this rotation and translation matrix and stores it in out,
+     * see {@link Matrix4x4#inverseMatrix()}. out must not be this matrix.
+     *
+     * @param out The matrix receiving the inverse.
+     * @return The out matrix.
+     */
+    public FlatMatrix4x4 inverseInto(FlatMatrix4x4 out)
+    {
+        double[] o = out.m;
+        o[0] = m[0];  o[1] = m[4];  o[2] = m[8];  o[3] = 0.0;
+        o[4] = m[1];  o[5] = m[5];  o[6] = m[9];  o[7] = 0.0;
+        o[8] = m[2];  o[9] = m[6];  o[10] = m[10]; o[11] = 0.0;
+        o[12] = -(m[12] * m[0] + m[13] * m[1] + m[14] * m[2]);
+        o[13] = -(m[12] * m[4] + m[13] * m[5] + m[14] * m[6]);
+        o[14] = -(m[12] * m[8] + m[13] * m[9] + m[14] * m[10]);
+        o[15] = 1.0;
+        return out;
+    }
+
+    /**
+     * Calculates the inverse of this affine matrix and stores it in out. Unlike {@link #inverseInto} the upper 3x3
+     * part may also scale or shear, it is inverted through its adjugate. out must not be this matrix.
+     *
+     * @param out The matrix receiving the inverse.
+     * @return The out matrix.
+     * @throws ArithmeticException If the matrix is singular.
+     */
+    public FlatMatrix4x4 affineInverseInto(FlatMatrix4x4 out)
+    {
+        double a00 = m[0], a01 = m[1], a02 = m[2];
+        double a10 = m[4], a11 = m[5], a12 = m[6];
+        double a20 = m[8], a21 = m[9], a22 = m[10];
+
+        double c00 = a11 * a22 - a12 * a21;
+        double c01 = a12 * a20 - a10 * a22;
+        double c02 = a10 * a21 - a11 * a20;
+        double det = a00 * c00 + a01 * c01 + a02 * c02;
+        if (det == 0.0)
+        {
+            throw new ArithmeticException("Matrix is not invertible");
+        }
+        double invDet = 1.0 / det;
+
+        double[] o = out.m;
+        o[0] = c00 * invDet;
+        o[1] = (a02 * a21 - a01 * a22) * invDet;
+        o[2] = (a01 * a12 - a02 * a11) * invDet;
+        o[3] = 0.0;
+        o[4] = c01 * invDet;
+        o[5] = (a00 * a22 - a02 * a20) * invDet;
+        o[6] = (a02 * a10 - a00 * a12) * invDet;
+        o[7] = 0.0;
+        o[8] = c02 * invDet;
+        o[9] = (a01 * a20 - a00 * a21) * invDet;
+        o[10] = (a00 * a11 - a01 * a10) * invDet;
+        o[11] = 0.0;
+
+        // the translation is undone in the original space, so it is moved through the inverse as well
+        double tx = m[12], ty = m[13], tz = m[14];
+        o[12] = -(tx * o[0] + ty * o[4] + tz * o[8]);
+        o[13] = -(tx * o[1] + ty * o[5] + tz * o[9]);
+        o[14] = -(tx * o[2] + ty * o[6] + tz * o[10]);
+        o[15] = 1.0;
+        return out;
+    }
+
+    /**
+     * Multiplies a vector by this matrix and stores the result in out, which may be the input vector.
+     *
+     * @param in  The input vector.
+     * @param out The vector receiving the result.
+     * @return The out vector.
+     */
+    public Vector3D transformInto(Vector3D in, Vector3D out)
+    {
+        double x = in.x, y = in.y, z = in.z, w = in.w;
+
+        out.x = x * m[0] + y * m[4] + z * m[8] + w * m[12];
+        out.y = x * m[1] + y * m[5] + z * m[9] + w * m[13];
+        out.z = x * m[2] + y * m[6] + z * m[10] + w * m[14];
+        out.w = x * m[3] + y * m[7] + z * m[11] + w * m[15];
+
+        return out;
+    }
+
+    /**
+     * Converts this matrix into a {@link Matrix4x4}.
+     *
+     * @return A new Matrix4x4 with the values of this matrix.
+     */
+    public Matrix4x4 toMatrix4x4()
+    {
+        double[][] matrix = new double[4][4];
+        for (int row = 0; row < 4; row++)
+        {
+            System.arraycopy(m, row * 4, matrix[row], 0, 4);
+        }
+        return new Matrix4x4(matrix);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Flat" + toMatrix4x4();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FlatMatrix4x4 that = (FlatMatrix4x4) o;
+        return Arrays.equals(m, that.m);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(m);
+    }
+}
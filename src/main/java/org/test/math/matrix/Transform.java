@@ -0,0 +1,135 @@
+package org.test.math.matrix;
+
+import org.test.math.vector.Vector3D;
+
+/**
+ * Position, rotation and scale of an object in the scene together with the model matrix they describe.
+ * Changing a component only marks the matrix as dirty, it is recomputed by the next call of {@link #getMatrix()},
+ * so moving an object costs the same no matter how many vertices it has and how often it is moved per frame.
+ * <p>
+ * A vertex is scaled first, then rotated around the X-axis, the Y-axis and the Z-axis and finally moved to the position.
+ */
+public class Transform
+{
+    private double x, y, z;
+    private double rotationX, rotationY, rotationZ;
+    private double scaleX = 1.0, scaleY = 1.0, scaleZ = 1.0;
+
+    private final FlatMatrix4x4 matrix = new FlatMatrix4x4().setIdentity();
+    private final FlatMatrix4x4 rotation = new FlatMatrix4x4();
+    private boolean dirty;
+
+    /**
+     * Moves the position by the given offset.
+     *
+     * @param x The offset in the x direction.
+     * @param y The offset in the y direction.
+     * @param z The offset in the z direction.
+     */
+    public void translate(double x, double y, double z)
+    {
+        this.x += x;
+        this.y += y;
+        this.z += z;
+        dirty = true;
+    }
+
+    public void setPosition(double x, double y, double z)
+    {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        dirty = true;
+    }
+
+    public Vector3D getPosition()
+    {
+        return new Vector3D(x, y, z);
+    }
+
+    /**
+     * Sets the rotation around the three axes.
+     *
+     * @param x The angle around the X-axis in radians.
+     * @param y The angle around the Y-axis in radians.
+     * @param z The angle around the Z-axis in radians.
+     */
+    public void setRotation(double x, double y, double z)
+    {
+        this.rotationX = x;
+        this.rotationY = y;
+        this.rotationZ = z;
+        dirty = true;
+    }
+
+    public Vector3D getRotation()
+    {
+        return new Vector3D(rotationX, rotationY, rotationZ);
+    }
+
+    public void setScale(double x, double y, double z)
+    {
+        this.scaleX = x;
+        this.scaleY = y;
+        this.scaleZ = z;
+        dirty = true;
+    }
+
+    public void setScale(double scale)
+    {
+        setScale(scale, scale, scale);
+    }
+
+    public Vector3D getScale()
+    {
+        return new Vector3D(scaleX, scaleY, scaleZ);
+    }
+
+    /**
+     * Returns the model matrix, recomputed only if a component changed since the last call.
+     * The returned instance stays the same, it must not be modified.
+     *
+     * @return The matrix from the space of the object into the scene, vectors are treated as row vectors.
+     */
+    public FlatMatrix4x4 getMatrix()
+    {
+        if (dirty)
+        {
+            matrix.setIdentity();
+            matrix.m[0] = scaleX;
+            matrix.m[5] = scaleY;
+            matrix.m[10] = scaleZ;
+
+            // rotations by zero are skipped, so unrotated objects keep an exact matrix
+            if (rotationX != 0.0)
+            {
+                matrix.mulInto(rotation.setRotationX(rotationX), matrix);
+            }
+            if (rotationY != 0.0)
+            {
+                matrix.mulInto(rotation.setRotationY(rotationY), matrix);
+            }
+            if (rotationZ != 0.0)
+            {
+                matrix.mulInto(rotation.setRotationZ(rotationZ), matrix);
+            }
+
+            // multiplying with a translation matrix only fills in the last row
+            matrix.m[12] = x;
+            matrix.m[13] = y;
+            matrix.m[14] = z;
+            dirty = false;
+        }
+        return matrix;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Transform{" +
+                "position=(" + x + ", " + y + ", " + z + ")" +
+                ", rotation=(" + rotationX + ", " + rotationY + ", " + rotationZ + ")" +
+                ", scale=(" + scaleX + ", " + scaleY + ", " + scaleZ + ")" +
+                '}';
+    }
+}
@@ -0,0 +1,24 @@
+package org.test.math.triangle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All instances of a {@link PolygonGroup} that share one mesh. The rasterizer collects the triangles of a batch
+ * in one list, so the mesh is set up and drawn once per frame no matter how many instances it has.
+ */
+public class InstanceBatch
+{
+    public final Mesh mesh;
+    public final List<MeshInstance> instances = new ArrayList<>();
+
+    /**
+     * Constructs an empty batch.
+     *
+     * @param mesh The geometry shared by the instances of the batch.
+     */
+    public InstanceBatch(Mesh mesh)
+    {
+        this.mesh = mesh;
+    }
+}
@@ -0,0 +1,237 @@
+package org.test.math.triangle;
+
+import org.test.math.BoundingBox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Stores parsed OBJ files in a compact binary format next to the source file, so later launches can
+ * memory map the finished vertex buffer instead of parsing text again.
+ * <p>
+ * A cache file starts with a header holding the size, modification time and CRC32 of the source file
+ * followed by the vertex and index counts and the bounds. Then follow the positions, texture coordinates
+ * and indices as little endian arrays. A cache file is used when size and modification time of the source still
+ * match, or when only the modification time changed but the content hash is still the same. In that case the new
+ * modification time is written into the header, so the next launch doesn't hash the source again. In every other case
+ * the OBJ file is parsed again and the cache file is rewritten.
+ */
+public class MeshCache
+{
+    private static final int MAGIC = 0x4853454D; // "MESH" in little endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * 4 + 3 * 8 + 2 * 4 + 6 * 4;
+    // position of the modification time of the source in the header
+    private static final int MODIFIED_OFFSET = 4 * 4 + 8;
+
+    private MeshCache()
+    {
+    }
+
+    /**
+     * Loads the vertex buffer of an OBJ file, from its cache file when the cache is still valid.
+     *
+     * @param filename The path of the OBJ file.
+     * @param textured If the texture coordinates should be used, see {@link ObjModel#toVertexBuffer(boolean)}.
+     * @return The vertex buffer of the OBJ file.
+     * @throws IllegalArgumentException If the file does not exist or is not a valid OBJ file.
+     * @throws UncheckedIOException     If the OBJ file can not be read.
+     */
+    public static VertexBuffer load(String filename, boolean textured)
+    {
+        Path source = Path.of(filename);
+        if (!Files.exists(source))
+        {
+            throw new IllegalArgumentException("File not found");
+        }
+
+        Path cache = getCachePath(source, textured);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            long modified = Files.getLastModifiedTime(source).toMillis();
+            MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            VertexBuffer cached = read(cache, textured, size, modified, content);
+            if (cached != null)
+            {
+                return cached;
+            }
+
+            VertexBuffer vertexBuffer = ObjParser.parse(content.duplicate()).toVertexBuffer(textured);
+            write(cache, vertexBuffer, textured, size, modified, hash(content));
+            return vertexBuffer;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the path of the cache file of an OBJ file.
+     *
+     * @param source   The path of the OBJ file.
+     * @param textured If the cache holds the textured variant of the mesh.
+     * @return The path of the cache file next to the OBJ file.
+     */
+    public static Path getCachePath(Path source, boolean textured)
+    {
+        return source.resolveSibling(source.getFileName() + (textured ? ".textured.mesh" : ".mesh"));
+    }
+
+    /**
+     * Reads a cache file, returns null if it does not exist, is damaged or does not match the source anymore.
+     */
+    private static VertexBuffer read(Path cache, boolean textured, long size, long modified, ByteBuffer content)
+    {
+        if (!Files.exists(cache))
+        {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ))
+        {
+            if (channel.size() < HEADER_SIZE)
+            {
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != (textured ? 1 : 0))
+            {
+                return null;
+            }
+            buffer.getInt(); // reserved
+
+            long cachedSize = buffer.getLong();
+            long cachedModified = buffer.getLong();
+            long cachedHash = buffer.getLong();
+            if (cachedSize != size || (cachedModified != modified && cachedHash != hash(content)))
+            {
+                return null;
+            }
+
+            int vertexCount = buffer.getInt();
+            int indexCount = buffer.getInt();
+            if (vertexCount < 0 || indexCount < 0
+                    || channel.size() != HEADER_SIZE + (vertexCount * 5L + indexCount) * 4)
+            {
+                return null;
+            }
+            BoundingBox bounds = new BoundingBox(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(),
+                    buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+
+            float[] positions = new float[vertexCount * 3];
+            float[] uvs = new float[vertexCount * 2];
+            int[] indices = new int[indexCount];
+            buffer.asFloatBuffer().get(positions);
+            buffer.position(buffer.position() + positions.length * 4);
+            buffer.asFloatBuffer().get(uvs);
+            buffer.position(buffer.position() + uvs.length * 4);
+            buffer.asIntBuffer().get(indices);
+
+            for (int index : indices)
+            {
+                if (index < 0 || index >= vertexCount)
+                {
+                    return null;
+                }
+            }
+
+            if (cachedModified != modified)
+            {
+                updateModified(cache, modified);
+            }
+            return new VertexBuffer(positions, uvs, indices, bounds);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            // a broken cache file is simply rebuilt
+            return null;
+        }
+    }
+
+    /**
+     * Writes a cache file, first into a temporary file that then replaces the old cache file, so readers never see
+     * a half written file. Failing to write the cache, e.g. in a read only directory, is not an error.
+     */
+    private static void write(Path cache, VertexBuffer vertexBuffer, boolean textured, long size, long modified, long hash)
+    {
+        BoundingBox bounds = vertexBuffer.bounds;
+        ByteBuffer buffer = ByteBuffer
+                .allocate(HEADER_SIZE + (vertexBuffer.positions.length + vertexBuffer.uvs.length + vertexBuffer.indices.length) * 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(textured ? 1 : 0).putInt(0);
+        buffer.putLong(size).putLong(modified).putLong(hash);
+        buffer.putInt(vertexBuffer.getVertexCount()).putInt(vertexBuffer.indices.length);
+        buffer.putFloat((float) bounds.minX).putFloat((float) bounds.minY).putFloat((float) bounds.minZ);
+        buffer.putFloat((float) bounds.maxX).putFloat((float) bounds.maxY).putFloat((float) bounds.maxZ);
+        buffer.asFloatBuffer().put(vertexBuffer.positions);
+        buffer.position(buffer.position() + vertexBuffer.positions.length * 4);
+        buffer.asFloatBuffer().put(vertexBuffer.uvs);
+        buffer.position(buffer.position() + vertexBuffer.uvs.length * 4);
+        buffer.asIntBuffer().put(vertexBuffer.indices);
+        buffer.rewind();
+
+        Path temp = null;
+        try
+        {
+            temp = Files.createTempFile(cache.toAbsolutePath().getParent(), cache.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+            {
+                while (buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            try
+            {
+                if (temp != null) Files.deleteIfExists(temp);
+            }
+            catch (IOException ignored)
+            {
+            }
+        }
+    }
+
+    /**
+     * Replaces the modification time in the header of a valid cache file whose source was only touched.
+     * Like writing, failing to update the cache is not an error, the next launch then hashes the source again.
+     */
+    private static void updateModified(Path cache, long modified)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(modified).flip();
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE))
+        {
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer, MODIFIED_OFFSET + buffer.position());
+            }
+        }
+        catch (IOException ignored)
+        {
+        }
+    }
+
+    private static long hash(ByteBuffer content)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(content.duplicate());
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,64 @@
+package org.test.math.triangle;
+
+import org.test.graphics.ColorUtils;
+import org.test.math.matrix.Transform;
+
+/**
+ * One placement of a shared {@link Mesh} in the scene. Any number of instances may reference the same mesh,
+ * its vertex buffer, triangles and texture exist only once, every instance only adds its transform and tint.
+ * The vertices of the mesh are never changed, the rasterizer applies the model matrix of the transform before
+ * the world matrix. Instances may share a transform, like all meshes of one object do.
+ */
+public class MeshInstance
+{
+    public final Mesh mesh;
+    // places the mesh in the scene
+    public final Transform transform;
+    // multiplied with the texel or color of every triangle before it is fogged and lit, see ColorUtils.modulate
+    public int tint = ColorUtils.CD_WHITE;
+
+    /**
+     * Constructs an untransformed and untinted instance of a mesh.
+     *
+     * @param mesh The shared geometry.
+     */
+    public MeshInstance(Mesh mesh)
+    {
+        this(mesh, new Transform(), ColorUtils.CD_WHITE);
+    }
+
+    /**
+     * Constructs an instance of a mesh.
+     *
+     * @param mesh      The shared geometry.
+     * @param transform The transform of the instance, it is shared and not copied.
+     * @param tint      The color the texels of the triangles are modulated with before shading.
+     */
+    public MeshInstance(Mesh mesh, Transform transform, int tint)
+    {
+        this.mesh = mesh;
+        this.transform = transform;
+        this.tint = tint;
+    }
+
+    /**
+     * Stores the axis aligned box of the transformed mesh in the layout of the scene hierarchy.
+     *
+     * @param bounds The array receiving minX, minY, minZ, maxX, maxY and maxZ.
+     * @param offset The index of minX in the array.
+     */
+    public void getBounds(double[] bounds, int offset)
+    {
+        mesh.vertexBuffer.bounds.transformInto(transform.getMatrix(), bounds, offset);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MeshInstance{" +
+                "triangles=" + mesh.vertexBuffer.getTriangleCount() +
+                ", transform=" + transform +
+                ", tint=" + Integer.toHexString(tint) +
+                '}';
+    }
+}
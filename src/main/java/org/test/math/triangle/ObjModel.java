@@ -0,0 +1,145 @@
+package org.test.math.triangle;
+
+import org.test.math.vector.Vector2D;
+import org.test.math.vector.Vector3D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The raw content of an OBJ file as produced by {@link ObjParser}.
+ * Faces are already triangulated, every triangle stores three zero based indices into each attribute array.
+ * Attributes that a face corner does not reference have the index -1.
+ */
+public class ObjModel
+{
+    // x, y, z for every "v" line
+    public final float[] positions;
+    // u, v for every "vt" line
+    public final float[] texCoords;
+    // x, y, z for every "vn" line
+    public final float[] normals;
+    // three indices per triangle into the attribute arrays above
+    public final int[] positionIndices;
+    public final int[] texCoordIndices;
+    public final int[] normalIndices;
+
+    /**
+     * Constructs a model from already parsed arrays.
+     *
+     * @param positions       The vertex positions, three floats per position.
+     * @param texCoords       The texture coordinates, two floats per coordinate.
+     * @param normals         The vertex normals, three floats per normal.
+     * @param positionIndices The position index of every triangle corner.
+     * @param texCoordIndices The texture coordinate index of every triangle corner or -1.
+     * @param normalIndices   The normal index of every triangle corner or -1.
+     */
+    public ObjModel(float[] positions, float[] texCoords, float[] normals,
+                    int[] positionIndices, int[] texCoordIndices, int[] normalIndices)
+    {
+        this.positions = positions;
+        this.texCoords = texCoords;
+        this.normals = normals;
+        this.positionIndices = positionIndices;
+        this.texCoordIndices = texCoordIndices;
+        this.normalIndices = normalIndices;
+    }
+
+    public int getTriangleCount()
+    {
+        return positionIndices.length / 3;
+    }
+
+    /**
+     * Creates one triangle per face triangle. Textured models have their x and y axis flipped and
+     * their texture coordinates clamped to [0, 1], untextured models ignore the texture coordinates.
+     *
+     * @param textured If the texture coordinates should be used.
+     * @return A new list of triangles.
+     */
+    public List<Triangle> toTriangles(boolean textured)
+    {
+        List<Triangle> triangles = new ArrayList<>(getTriangleCount());
+        for (int i = 0; i < positionIndices.length; i += 3)
+        {
+            if (textured)
+            {
+                triangles.add(new Triangle(
+                        position(i, true), position(i + 1, true), position(i + 2, true),
+                        texCoord(i), texCoord(i + 1), texCoord(i + 2)));
+            }
+            else
+            {
+                triangles.add(new Triangle(position(i, false), position(i + 1, false), position(i + 2, false)));
+            }
+        }
+        return triangles;
+    }
+
+    private Vector3D position(int corner, boolean flip)
+    {
+        int p = positionIndices[corner] * 3;
+        return flip
+                ? new Vector3D(-positions[p], -positions[p + 1], positions[p + 2])
+                : new Vector3D(positions[p], positions[p + 1], positions[p + 2]);
+    }
+
+    private Vector2D texCoord(int corner)
+    {
+        int t = texCoordIndices[corner] * 2;
+        return t < 0 ? new Vector2D() : new Vector2D(clamp(texCoords[t]), clamp(texCoords[t + 1]));
+    }
+
+    private static float clamp(float value)
+    {
+        return Math.min(1, Math.max(0, value));
+    }
+
+    /**
+     * Builds an indexed vertex buffer directly from the shared indices of the file, without creating triangles.
+     * Every distinct combination of position and texture coordinate index becomes one vertex.
+     * The geometry is the same as the one of {@link #toTriangles(boolean)}.
+     *
+     * @param textured If the texture coordinates should be used.
+     * @return The vertex buffer of the model.
+     */
+    public VertexBuffer toVertexBuffer(boolean textured)
+    {
+        Map<Long, Integer> vertexIndices = new HashMap<>();
+        int[] indices = new int[positionIndices.length];
+        float[] vertexPositions = new float[positionIndices.length * 3];
+        float[] vertexUvs = new float[positionIndices.length * 2];
+        int vertexCount = 0;
+
+        for (int i = 0; i < positionIndices.length; i++)
+        {
+            int t = textured ? texCoordIndices[i] : -1;
+            long key = ((long) positionIndices[i] << 32) | (t & 0xffffffffL);
+            Integer index = vertexIndices.get(key);
+            if (index == null)
+            {
+                index = vertexCount++;
+                vertexIndices.put(key, index);
+
+                int p = positionIndices[i] * 3;
+                vertexPositions[index * 3] = textured ? -positions[p] : positions[p];
+                vertexPositions[index * 3 + 1] = textured ? -positions[p + 1] : positions[p + 1];
+                vertexPositions[index * 3 + 2] = positions[p + 2];
+                if (t >= 0)
+                {
+                    vertexUvs[index * 2] = clamp(texCoords[t * 2]);
+                    vertexUvs[index * 2 + 1] = clamp(texCoords[t * 2 + 1]);
+                }
+            }
+            indices[i] = index;
+        }
+
+        return new VertexBuffer(
+                Arrays.copyOf(vertexPositions, vertexCount * 3),
+                Arrays.copyOf(vertexUvs, vertexCount * 2),
+                indices);
+    }
+}
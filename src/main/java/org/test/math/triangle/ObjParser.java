@@ -0,0 +1,352 @@
+package org.test.math.triangle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A streaming parser for the Wavefront OBJ format. The file is memory mapped and tokenized byte by byte,
+ * numbers are parsed straight from the bytes, so no line strings or split arrays are created.
+ * Supported are "v", "vt", "vn" and "f" statements, faces with any number of corners (triangulated as a fan),
+ * the corner formats v, v/vt, v//vn and v/vt/vn as well as negative (relative) indices.
+ * All other statements and comments are skipped.
+ */
+public class ObjParser
+{
+    // powers of ten that are exact as floats, used by the fast path of parseFloat
+    private static final float[] POW10 = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int pos;
+    private int line = 1;
+
+    private float[] positions = new float[3 * 1024];
+    private float[] texCoords = new float[2 * 1024];
+    private float[] normals = new float[3 * 1024];
+    private int positionCount, texCoordCount, normalCount;
+
+    private int[] positionIndices = new int[3 * 1024];
+    private int[] texCoordIndices = new int[3 * 1024];
+    private int[] normalIndices = new int[3 * 1024];
+    private int cornerCount;
+
+    private ObjParser(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        this.pos = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * Parses the OBJ file with the given name.
+     *
+     * @param filename The path of the file.
+     * @return The parsed model.
+     * @throws IllegalArgumentException If the file does not exist or is not a valid OBJ file.
+     * @throws UncheckedIOException     If the file can not be read.
+     */
+    public static ObjModel parse(String filename)
+    {
+        Path path = Path.of(filename);
+        if (!Files.exists(path))
+        {
+            throw new IllegalArgumentException("File not found");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses OBJ content between the position and the limit of the given buffer.
+     *
+     * @param buffer The OBJ content.
+     * @return The parsed model.
+     * @throws IllegalArgumentException If the content is not a valid OBJ file.
+     */
+    public static ObjModel parse(ByteBuffer buffer)
+    {
+        return new ObjParser(buffer).parse();
+    }
+
+    private ObjModel parse()
+    {
+        while (pos < limit)
+        {
+            skipBlanks();
+            if (pos < limit)
+            {
+                int c = byteAt(pos) | 0x20;
+                if (c == 'v' && isBlank(pos + 1))
+                {
+                    pos += 1;
+                    positions = ensure(positions, positionCount + 3);
+                    positions[positionCount++] = parseFloat();
+                    positions[positionCount++] = parseFloat();
+                    positions[positionCount++] = parseFloat();
+                }
+                else if (c == 'v' && (byteAt(pos + 1) | 0x20) == 't' && isBlank(pos + 2))
+                {
+                    pos += 2;
+                    texCoords = ensure(texCoords, texCoordCount + 2);
+                    texCoords[texCoordCount++] = parseFloat();
+                    texCoords[texCoordCount++] = parseFloat();
+                }
+                else if (c == 'v' && (byteAt(pos + 1) | 0x20) == 'n' && isBlank(pos + 2))
+                {
+                    pos += 2;
+                    normals = ensure(normals, normalCount + 3);
+                    normals[normalCount++] = parseFloat();
+                    normals[normalCount++] = parseFloat();
+                    normals[normalCount++] = parseFloat();
+                }
+                else if (c == 'f' && isBlank(pos + 1))
+                {
+                    pos += 1;
+                    parseFace();
+                }
+            }
+            skipLine();
+        }
+
+        return new ObjModel(
+                Arrays.copyOf(positions, positionCount),
+                Arrays.copyOf(texCoords, texCoordCount),
+                Arrays.copyOf(normals, normalCount),
+                Arrays.copyOf(positionIndices, cornerCount),
+                Arrays.copyOf(texCoordIndices, cornerCount),
+                Arrays.copyOf(normalIndices, cornerCount));
+    }
+
+    /**
+     * Parses the corners of a face and triangulates it as a fan around the first corner.
+     */
+    private void parseFace()
+    {
+        int firstP = 0, firstT = 0, firstN = 0;
+        int prevP = 0, prevT = 0, prevN = 0;
+        int corners = 0;
+
+        skipBlanks();
+        while (!isEndOfLine(pos))
+        {
+            int p = resolve(parseInt(), positionCount / 3);
+            int t = -1, n = -1;
+            if (byteAt(pos) == '/')
+            {
+                pos++;
+                if (byteAt(pos) != '/')
+                {
+                    t = resolve(parseInt(), texCoordCount / 2);
+                }
+                if (byteAt(pos) == '/')
+                {
+                    pos++;
+                    n = resolve(parseInt(), normalCount / 3);
+                }
+            }
+
+            if (corners == 0)
+            {
+                firstP = p;
+                firstT = t;
+                firstN = n;
+            }
+            else if (corners >= 2)
+            {
+                addCorner(firstP, firstT, firstN);
+                addCorner(prevP, prevT, prevN);
+                addCorner(p, t, n);
+            }
+            prevP = p;
+            prevT = t;
+            prevN = n;
+            corners++;
+            skipBlanks();
+        }
+
+        if (corners < 3)
+        {
+            throw error("Face with less than three corners");
+        }
+    }
+
+    private void addCorner(int p, int t, int n)
+    {
+        if (cornerCount == positionIndices.length)
+        {
+            positionIndices = Arrays.copyOf(positionIndices, cornerCount * 2);
+            texCoordIndices = Arrays.copyOf(texCoordIndices, cornerCount * 2);
+            normalIndices = Arrays.copyOf(normalIndices, cornerCount * 2);
+        }
+        positionIndices[cornerCount] = p;
+        texCoordIndices[cornerCount] = t;
+        normalIndices[cornerCount] = n;
+        cornerCount++;
+    }
+
+    /**
+     * Turns a one based or negative (relative to the end) OBJ index into a zero based index.
+     */
+    private int resolve(int index, int count)
+    {
+        int resolved = index < 0 ? count + index : index - 1;
+        if (index == 0 || resolved < 0 || resolved >= count)
+        {
+            throw error("Index " + index + " out of range");
+        }
+        return resolved;
+    }
+
+    private int parseInt()
+    {
+        int start = pos;
+        boolean negative = byteAt(pos) == '-';
+        if (negative || byteAt(pos) == '+')
+        {
+            pos++;
+        }
+
+        int value = 0;
+        int digitsStart = pos;
+        while (isDigit(pos))
+        {
+            value = value * 10 + (buffer.get(pos++) - '0');
+        }
+        if (pos == digitsStart)
+        {
+            pos = start;
+            throw error("Expected an integer");
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a decimal float. Numbers with at most seven significant digits and a small exponent are
+     * calculated exactly with a single float operation, all others fall back to {@link Float#parseFloat(String)},
+     * so the result is always identical to parseFloat.
+     */
+    private float parseFloat()
+    {
+        skipBlanks();
+        int start = pos;
+        boolean negative = byteAt(pos) == '-';
+        if (negative || byteAt(pos) == '+')
+        {
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        int digitsStart = pos;
+        while (isDigit(pos))
+        {
+            int d = buffer.get(pos++) - '0';
+            if (digits < 18)
+            {
+                mantissa = mantissa * 10 + d;
+                if (mantissa != 0) digits++;
+            }
+            else exponent++;
+        }
+        if (byteAt(pos) == '.')
+        {
+            pos++;
+            while (isDigit(pos))
+            {
+                int d = buffer.get(pos++) - '0';
+                if (digits < 18)
+                {
+                    mantissa = mantissa * 10 + d;
+                    if (mantissa != 0) digits++;
+                    exponent--;
+                }
+            }
+        }
+        if (pos == digitsStart || (pos == digitsStart + 1 && byteAt(digitsStart) == '.'))
+        {
+            pos = start;
+            throw error("Expected a number");
+        }
+        if ((byteAt(pos) | 0x20) == 'e')
+        {
+            pos++;
+            exponent += parseInt();
+        }
+
+        if (mantissa < (1 << 24) && exponent >= -10 && exponent <= 10)
+        {
+            float value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+            return negative ? -value : value;
+        }
+
+        byte[] bytes = new byte[pos - start];
+        buffer.get(start, bytes);
+        return Float.parseFloat(new String(bytes, StandardCharsets.US_ASCII));
+    }
+
+    private static float[] ensure(float[] array, int size)
+    {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private int byteAt(int index)
+    {
+        return index < limit ? buffer.get(index) & 0xff : -1;
+    }
+
+    private boolean isDigit(int index)
+    {
+        int c = byteAt(index);
+        return c >= '0' && c <= '9';
+    }
+
+    private boolean isBlank(int index)
+    {
+        int c = byteAt(index);
+        return c == ' ' || c == '\t';
+    }
+
+    private boolean isEndOfLine(int index)
+    {
+        int c = byteAt(index);
+        return c == -1 || c == '\n' || c == '\r' || c == '#';
+    }
+
+    private void skipBlanks()
+    {
+        while (isBlank(pos))
+        {
+            pos++;
+        }
+    }
+
+    private void skipLine()
+    {
+        while (pos < limit && buffer.get(pos) != '\n')
+        {
+            pos++;
+        }
+        pos++;
+        line++;
+    }
+
+    private IllegalArgumentException error(String message)
+    {
+        return new IllegalArgumentException(message + " in line " + line + " of the OBJ file");
+    }
+}
@@ -1,13 +1,27 @@
 package org.test.math.triangle;
 
+import org.test.math.BoundingBox;
+import org.test.math.BoundingVolumeHierarchy;
+import org.test.math.matrix.FlatMatrix4x4;
 import org.test.math.triangle.Mesh;
+import org.test.math.vector.Vector3D;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class PolygonGroup
 {
+    // meshes of a leaf of the scene hierarchy
+    static final int MESHES_PER_LEAF = 1;
+
     private List<Mesh> polygon = new ArrayList<>();
+    // instances grouped by their shared mesh, in the order the meshes were first added
+    private final List<InstanceBatch> batches = new ArrayList<>();
+
+    // hierarchy over the bounding boxes of the meshes and instances, rebuilt when either are added or removed
+    private final BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(MESHES_PER_LEAF);
+    private Object[] hierarchyItems = new Object[0];
+    private double[] meshBounds = new double[0];
 
     public void addMesh(Mesh m)
     {
@@ -23,5 +37,183 @@ public class PolygonGroup
     {
         return this.polygon;
     }
-}
 
+    /**
+     * Adds an instance of a shared mesh, it joins the batch of all other instances of the same mesh.
+     *
+     * @param instance The instance to add.
+     */
+    public void addInstance(MeshInstance instance)
+    {
+        for (InstanceBatch batch : batches)
+        {
+            if (batch.mesh == instance.mesh)
+            {
+                batch.instances.add(instance);
+                return;
+            }
+        }
+
+        InstanceBatch batch = new InstanceBatch(instance.mesh);
+        batch.instances.add(instance);
+        batches.add(batch);
+    }
+
+    /**
+     * Removes an instance, its batch is dropped together with its last instance.
+     *
+     * @param instance The instance to remove.
+     */
+    public void removeInstance(MeshInstance instance)
+    {
+        for (int b = 0; b < batches.size(); b++)
+        {
+            InstanceBatch batch = batches.get(b);
+            if (batch.mesh == instance.mesh && batch.instances.remove(instance))
+            {
+                if (batch.instances.isEmpty())
+                {
+                    batches.remove(b);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The instances grouped by their mesh, every batch holds at least one instance.
+     */
+    public List<InstanceBatch> getBatches()
+    {
+        return batches;
+    }
+
+    /**
+     * @return The number of instances in all batches.
+     */
+    public int getInstanceCount()
+    {
+        int count = 0;
+        for (InstanceBatch batch : batches)
+        {
+            count += batch.instances.size();
+        }
+        return count;
+    }
+
+    /**
+     * Brings the hierarchy over the meshes and instances up to date. It is rebuilt if either changed since
+     * the last call and only refitted to the current bounding boxes otherwise, so moving objects stay cheap.
+     *
+     * @return The hierarchy, its items are the indices of the meshes in {@link #getPolyGroup()}, followed by
+     * the instances of all {@link #getBatches() batches} in order.
+     */
+    public BoundingVolumeHierarchy updateHierarchy()
+    {
+        int meshCount = polygon.size();
+        int count = meshCount + getInstanceCount();
+        if (meshBounds.length < count * 6)
+        {
+            meshBounds = new double[count * 6];
+        }
+
+        boolean changed = hierarchyItems.length != count;
+        for (int m = 0; m < meshCount; m++)
+        {
+            Mesh mesh = polygon.get(m);
+            if (!changed && hierarchyItems[m] != mesh)
+            {
+                changed = true;
+            }
+
+            BoundingBox box = mesh.vertexBuffer.bounds;
+            meshBounds[m * 6] = box.minX;
+            meshBounds[m * 6 + 1] = box.minY;
+            meshBounds[m * 6 + 2] = box.minZ;
+            meshBounds[m * 6 + 3] = box.maxX;
+            meshBounds[m * 6 + 4] = box.maxY;
+            meshBounds[m * 6 + 5] = box.maxZ;
+        }
+
+        int item = meshCount;
+        for (InstanceBatch batch : batches)
+        {
+            for (MeshInstance instance : batch.instances)
+            {
+                if (!changed && hierarchyItems[item] != instance)
+                {
+                    changed = true;
+                }
+                instance.getBounds(meshBounds, item * 6);
+                item++;
+            }
+        }
+
+        if (changed)
+        {
+            hierarchyItems = new Object[count];
+            item = 0;
+            for (Mesh mesh : polygon)
+            {
+                hierarchyItems[item++] = mesh;
+            }
+            for (InstanceBatch batch : batches)
+            {
+                for (MeshInstance instance : batch.instances)
+                {
+                    hierarchyItems[item++] = instance;
+                }
+            }
+            hierarchy.build(meshBounds, count);
+        }
+        else
+        {
+            hierarchy.refit(meshBounds);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Finds the nearest triangle of all meshes and instances hit by a ray, in the space of the untransformed
+     * vertices of the meshes and the transformed ones of the instances. Meshes and instances are found through
+     * the scene hierarchy and their triangles through the hierarchy of every mesh. The ray is moved into the space
+     * of the mesh of an instance instead of transforming its vertices, affine transforms keep distances along the ray.
+     *
+     * @param origin    The start of the ray.
+     * @param direction The direction of the ray, distances are measured in multiples of it.
+     * @return The nearest hit, {@link RayHit#isHit()} is false if the ray hits nothing.
+     */
+    public RayHit raycast(Vector3D origin, Vector3D direction)
+    {
+        RayHit hit = new RayHit(Double.POSITIVE_INFINITY);
+        updateHierarchy().intersectRay(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z,
+                hit.distance, (item, maxDistance) ->
+                {
+                    if (hierarchyItems[item] instanceof MeshInstance instance)
+                    {
+                        FlatMatrix4x4 inverse = instance.transform.getMatrix().affineInverseInto(new FlatMatrix4x4());
+                        Vector3D localOrigin = inverse.transformInto(origin, new Vector3D());
+                        Vector3D localDirection = new Vector3D(direction.x, direction.y, direction.z);
+                        localDirection.w = 0;
+                        inverse.transformInto(localDirection, localDirection);
+
+                        if (instance.mesh.vertexBuffer.intersectRay(localOrigin, localDirection, hit))
+                        {
+                            hit.mesh = instance.mesh;
+                            hit.instance = instance;
+                        }
+                    }
+                    else
+                    {
+                        Mesh mesh = (Mesh) hierarchyItems[item];
+                        if (mesh.vertexBuffer.intersectRay(origin, direction, hit))
+                        {
+                            hit.mesh = mesh;
+                            hit.instance = null;
+                        }
+                    }
+                    return hit.distance;
+                });
+        return hit;
+    }
+}
@@ -0,0 +1,42 @@
+package org.test.math.triangle;
+
+/**
+ * The nearest intersection of a ray with the triangles of a mesh or a whole {@link PolygonGroup}.
+ */
+public class RayHit
+{
+    public Mesh mesh;
+    // the instance of the mesh that was hit, null for meshes added without an instance
+    public MeshInstance instance;
+    // index of the triangle in the index buffer of the mesh
+    public int triangle = -1;
+    // distance along the ray in multiples of its direction, only hits nearer than this are accepted
+    public double distance;
+
+    /**
+     * Constructs an empty hit that accepts every intersection up to the given distance.
+     *
+     * @param maxDistance The largest distance of an intersection.
+     */
+    public RayHit(double maxDistance)
+    {
+        this.distance = maxDistance;
+    }
+
+    /**
+     * @return True if an intersection was found.
+     */
+    public boolean isHit()
+    {
+        return triangle >= 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RayHit{" +
+                "triangle=" + triangle +
+                ", distance=" + distance +
+                '}';
+    }
+}
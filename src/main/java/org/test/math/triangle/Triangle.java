@@ -1,6 +1,8 @@
 package org.test.math.triangle;
 
+import org.test.graphics.ColorUtils;
 import org.test.graphics.Texture;
+import org.test.graphics.TextureFilter;
 import org.test.math.ExtraData;
 import org.test.math.vector.Vector2D;
 import org.test.math.vector.Vector3D;
@@ -23,6 +25,9 @@ public class Triangle implements Cloneable
     public Color color;
     public double dp;
     public Texture tex;
+    public TextureFilter textureFilter = TextureFilter.NEAREST;
+    // multiplied with the texel or color before it is fogged and lit, set from the instance the triangle belongs to
+    public int tint = ColorUtils.CD_WHITE;
 
     /**
      * Constructs a triangle with three 3D points.
@@ -89,6 +94,27 @@ public class Triangle implements Cloneable
         return this.color;
     }
 
+    /**
+     * Copies the vertices, texture coordinates and shading information of the input triangle into this triangle
+     * without sharing any vectors with it.
+     *
+     * @param in Input triangle
+     */
+    public void setTriangle(Triangle in)
+    {
+        this.vec3D.setVector(in.vec3D);
+        this.vec3D2.setVector(in.vec3D2);
+        this.vec3D3.setVector(in.vec3D3);
+        this.vec2D.setVector(in.vec2D);
+        this.vec2D2.setVector(in.vec2D2);
+        this.vec2D3.setVector(in.vec2D3);
+        this.color = in.color;
+        this.tex = in.tex;
+        this.textureFilter = in.textureFilter;
+        this.tint = in.tint;
+        this.dp = in.dp;
+    }
+
     /**
      * Clips the triangle against a plane defined by a point and a normal vector.
      *
@@ -168,6 +194,8 @@ public class Triangle implements Cloneable
         {
             out[0].color = this.color;
             out[0].tex = this.tex;
+            out[0].textureFilter = this.textureFilter;
+            out[0].tint = this.tint;
             out[0].dp = this.dp;
             out[0].vec3D = inside_points[0];
             out[0].vec2D = inside_tex[0];
@@ -190,6 +218,8 @@ public class Triangle implements Cloneable
 
         out[0].color = this.color;
         out[0].tex = this.tex;
+        out[0].textureFilter = this.textureFilter;
+        out[0].tint = this.tint;
         out[0].dp = this.dp;
         out[0].vec3D = inside_points[0];
         out[0].vec3D2 = inside_points[1];
@@ -203,6 +233,8 @@ public class Triangle implements Cloneable
 
         out[1].color = this.color;
         out[1].tex = this.tex;
+        out[1].textureFilter = this.textureFilter;
+        out[1].tint = this.tint;
         out[1].dp = this.dp;
 
         out[1].vec3D = inside_points[1];
@@ -217,6 +249,121 @@ public class Triangle implements Cloneable
         return 2;
     }
 
+    /**
+     * Clips the triangle against a plane like {@link #triangleClipAgainstPlane(Vector3D, Vector3D, Triangle[])},
+     * but writes the resulting vertices into the existing vectors of the output triangles instead of allocating
+     * new ones. The output triangles must not share vectors with this triangle or with each other.
+     *
+     * @param plane_p Point on the plane.
+     * @param plane_n Normalized normal vector of the plane.
+     * @param out     Two triangles receiving the result of the clipping.
+     * @return Number of resulting triangles after clipping.
+     */
+    public int triangleClipAgainstPlaneInto(Vector3D plane_p, Vector3D plane_n, Triangle[] out)
+    {
+        double plane_d = plane_n.dotProduct(plane_p);
+        double d0 = plane_n.dotProduct(this.vec3D) - plane_d;
+        double d1 = plane_n.dotProduct(this.vec3D2) - plane_d;
+        double d2 = plane_n.dotProduct(this.vec3D3) - plane_d;
+
+        // indices of the inside and outside points, in vertex order
+        int nInsidePointCount = 0, nOutsidePointCount = 0;
+        int inside0 = 0, inside1 = 0, outside0 = 0, outside1 = 0;
+        for (int i = 0; i < 3; i++)
+        {
+            double d = i == 0 ? d0 : i == 1 ? d1 : d2;
+            if (d >= 0)
+            {
+                if (nInsidePointCount++ == 0) inside0 = i;
+                else inside1 = i;
+            } else
+            {
+                if (nOutsidePointCount++ == 0) outside0 = i;
+                else outside1 = i;
+            }
+        }
+
+        if (nInsidePointCount == 0)
+        {
+            return 0;
+        }
+
+        if (nInsidePointCount == 3)
+        {
+            out[0].setTriangle(this);
+            return 1;
+        }
+
+        Triangle o = out[0];
+        o.color = this.color;
+        o.tex = this.tex;
+        o.textureFilter = this.textureFilter;
+        o.tint = this.tint;
+        o.dp = this.dp;
+
+        if (nInsidePointCount == 1)
+        {
+            // the inside point and the two intersections with the plane form the new triangle
+            o.vec3D.setVector(vertex(inside0));
+            o.vec2D.setVector(texture(inside0));
+            intersect(inside0, outside0, d0, d1, d2, o.vec3D2, o.vec2D2);
+            intersect(inside0, outside1, d0, d1, d2, o.vec3D3, o.vec2D3);
+            return 1;
+        }
+
+        // the two inside points and the intersections form a quad, which is split into two triangles
+        o.vec3D.setVector(vertex(inside0));
+        o.vec3D2.setVector(vertex(inside1));
+        o.vec2D.setVector(texture(inside0));
+        o.vec2D2.setVector(texture(inside1));
+        intersect(inside0, outside0, d0, d1, d2, o.vec3D3, o.vec2D3);
+
+        Triangle o2 = out[1];
+        o2.color = this.color;
+        o2.tex = this.tex;
+        o2.textureFilter = this.textureFilter;
+        o2.tint = this.tint;
+        o2.dp = this.dp;
+        o2.vec3D.setVector(vertex(inside1));
+        o2.vec2D.setVector(texture(inside1));
+        o2.vec3D2.setVector(o.vec3D3);
+        o2.vec2D2.setVector(o.vec2D3);
+        intersect(inside1, outside0, d0, d1, d2, o2.vec3D3, o2.vec2D3);
+
+        return 2;
+    }
+
+    private Vector3D vertex(int i)
+    {
+        return i == 0 ? vec3D : i == 1 ? vec3D2 : vec3D3;
+    }
+
+    private Vector2D texture(int i)
+    {
+        return i == 0 ? vec2D : i == 1 ? vec2D2 : vec2D3;
+    }
+
+    /**
+     * Calculates the point where the edge from an inside to an outside vertex crosses the plane
+     * and interpolates the texture coordinates at that point.
+     */
+    private void intersect(int inside, int outside, double d0, double d1, double d2, Vector3D point, Vector2D tex)
+    {
+        double dIn = inside == 0 ? d0 : inside == 1 ? d1 : d2;
+        double dOut = outside == 0 ? d0 : outside == 1 ? d1 : d2;
+        double t = dIn / (dIn - dOut);
+
+        Vector3D a = vertex(inside);
+        Vector3D b = vertex(outside);
+        point.setVector(a.x + (b.x - a.x) * t, a.y + (b.y - a.y) * t, a.z + (b.z - a.z) * t);
+
+        Vector2D ta = texture(inside);
+        Vector2D tb = texture(outside);
+        tex.u = t * (tb.u - ta.u) + ta.u;
+        tex.v = t * (tb.v - ta.v) + ta.v;
+        tex.w = t * (tb.w - ta.w) + ta.w;
+    }
+
     public static Triangle[] getNearestPlane()
     {
         return new Triangle[]
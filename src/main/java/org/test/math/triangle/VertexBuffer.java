@@ -0,0 +1,306 @@
+package org.test.math.triangle;
+
+import org.test.math.BoundingBox;
+import org.test.math.BoundingVolumeHierarchy;
+import org.test.math.vector.Vector2D;
+import org.test.math.vector.Vector3D;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the geometry of a mesh as flat primitive arrays (structure of arrays) instead of triangle objects.
+ * Every vertex is stored once in the position and uv arrays and the triangles reference them through an index buffer,
+ * so the geometry stage can stream over contiguous memory.
+ */
+public class VertexBuffer
+{
+    // x, y, z for every vertex
+    public final float[] positions;
+    // u, v for every vertex
+    public final float[] uvs;
+    // three vertex indices for every triangle
+    public final int[] indices;
+    // box around all positions, moved together with them
+    public final BoundingBox bounds;
+
+    // triangles of a leaf of the hierarchy used for ray queries
+    static final int TRIANGLES_PER_LEAF = 4;
+    // built on the first ray query, refitted on the next query after the vertices moved
+    private BoundingVolumeHierarchy hierarchy;
+    private boolean hierarchyMoved;
+
+    /**
+     * Constructs a vertex buffer from already flattened arrays.
+     *
+     * @param positions The vertex positions, three floats per vertex.
+     * @param uvs       The texture coordinates, two floats per vertex.
+     * @param indices   The index buffer, three vertex indices per triangle.
+     * @throws IllegalArgumentException If the array lengths do not match.
+     */
+    public VertexBuffer(float[] positions, float[] uvs, int[] indices)
+    {
+        this(positions, uvs, indices, BoundingBox.of(positions));
+    }
+
+    /**
+     * Constructs a vertex buffer from already flattened arrays and their already known bounds.
+     *
+     * @param positions The vertex positions, three floats per vertex.
+     * @param uvs       The texture coordinates, two floats per vertex.
+     * @param indices   The index buffer, three vertex indices per triangle.
+     * @param bounds    The bounding box of the positions.
+     * @throws IllegalArgumentException If the array lengths do not match.
+     */
+    public VertexBuffer(float[] positions, float[] uvs, int[] indices, BoundingBox bounds)
+    {
+        if (positions.length % 3 != 0 || uvs.length / 2 != positions.length / 3 || indices.length % 3 != 0)
+        {
+            throw new IllegalArgumentException("Invalid vertex buffer layout: " + positions.length + " positions, "
+                    + uvs.length + " uvs, " + indices.length + " indices");
+        }
+
+        this.positions = positions;
+        this.uvs = uvs;
+        this.indices = indices;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Builds a vertex buffer from a list of triangles. Vertices with equal position and texture coordinates
+     * are merged into a single entry.
+     *
+     * @param triangles The triangles of the mesh.
+     * @return The indexed vertex buffer.
+     */
+    public static VertexBuffer fromTriangles(List<Triangle> triangles)
+    {
+        Map<Vertex, Integer> vertexIndices = new HashMap<>();
+        List<Vertex> vertices = new ArrayList<>();
+        int[] indices = new int[triangles.size() * 3];
+
+        int i = 0;
+        for (Triangle tri : triangles)
+        {
+            indices[i++] = indexOf(new Vertex(tri.vec3D, tri.vec2D), vertexIndices, vertices);
+            indices[i++] = indexOf(new Vertex(tri.vec3D2, tri.vec2D2), vertexIndices, vertices);
+            indices[i++] = indexOf(new Vertex(tri.vec3D3, tri.vec2D3), vertexIndices, vertices);
+        }
+
+        float[] positions = new float[vertices.size() * 3];
+        float[] uvs = new float[vertices.size() * 2];
+        for (int v = 0; v < vertices.size(); v++)
+        {
+            Vertex vertex = vertices.get(v);
+            positions[v * 3] = vertex.x;
+            positions[v * 3 + 1] = vertex.y;
+            positions[v * 3 + 2] = vertex.z;
+            uvs[v * 2] = vertex.u;
+            uvs[v * 2 + 1] = vertex.v;
+        }
+
+        return new VertexBuffer(positions, uvs, indices);
+    }
+
+    private static int indexOf(Vertex vertex, Map<Vertex, Integer> vertexIndices, List<Vertex> vertices)
+    {
+        Integer index = vertexIndices.get(vertex);
+        if (index == null)
+        {
+            index = vertices.size();
+            vertexIndices.put(vertex, index);
+            vertices.add(vertex);
+        }
+        return index;
+    }
+
+    /**
+     * Copies the vertices of a triangle into the given triangle without allocating new vectors.
+     *
+     * @param index The index of the triangle.
+     * @param out   The triangle that receives the positions and texture coordinates.
+     */
+    public void getTriangle(int index, Triangle out)
+    {
+        setVertex(indices[index * 3], out.vec3D, out.vec2D);
+        setVertex(indices[index * 3 + 1], out.vec3D2, out.vec2D2);
+        setVertex(indices[index * 3 + 2], out.vec3D3, out.vec2D3);
+    }
+
+    private void setVertex(int vertex, Vector3D position, Vector2D uv)
+    {
+        position.x = positions[vertex * 3];
+        position.y = positions[vertex * 3 + 1];
+        position.z = positions[vertex * 3 + 2];
+        position.w = 1;
+        uv.u = uvs[vertex * 2];
+        uv.v = uvs[vertex * 2 + 1];
+        uv.w = 1;
+    }
+
+    /**
+     * Moves all vertices by the given offset in place.
+     *
+     * @param x The offset in the x direction.
+     * @param y The offset in the y direction.
+     * @param z The offset in the z direction.
+     */
+    public void translate(double x, double y, double z)
+    {
+        for (int i = 0; i < positions.length; i += 3)
+        {
+            positions[i] += (float) x;
+            positions[i + 1] += (float) y;
+            positions[i + 2] += (float) z;
+        }
+        bounds.translate(x, y, z);
+        hierarchyMoved = true;
+    }
+
+    /**
+     * Returns the hierarchy over the triangles, built on the first call and refitted if the vertices moved since.
+     *
+     * @return The hierarchy, its items are the triangle indices.
+     */
+    public BoundingVolumeHierarchy getHierarchy()
+    {
+        if (hierarchy == null)
+        {
+            hierarchy = new BoundingVolumeHierarchy(TRIANGLES_PER_LEAF);
+            hierarchy.build(getTriangleBounds(), getTriangleCount());
+        }
+        else if (hierarchyMoved)
+        {
+            hierarchy.refit(getTriangleBounds());
+        }
+        hierarchyMoved = false;
+        return hierarchy;
+    }
+
+    private double[] getTriangleBounds()
+    {
+        double[] triangleBounds = new double[getTriangleCount() * 6];
+        for (int t = 0; t < getTriangleCount(); t++)
+        {
+            for (int a = 0; a < 3; a++)
+            {
+                float p0 = positions[indices[t * 3] * 3 + a];
+                float p1 = positions[indices[t * 3 + 1] * 3 + a];
+                float p2 = positions[indices[t * 3 + 2] * 3 + a];
+                triangleBounds[t * 6 + a] = Math.min(p0, Math.min(p1, p2));
+                triangleBounds[t * 6 + a + 3] = Math.max(p0, Math.max(p1, p2));
+            }
+        }
+        return triangleBounds;
+    }
+
+    /**
+     * Intersects a ray with the triangles, both sides of a triangle are hit.
+     *
+     * @param origin    The start of the ray.
+     * @param direction The direction of the ray, distances are measured in multiples of it.
+     * @param hit       Receives the triangle and distance of the nearest intersection,
+     *                  only intersections nearer than its current distance are accepted.
+     * @return True if a nearer intersection was found.
+     */
+    public boolean intersectRay(Vector3D origin, Vector3D direction, RayHit hit)
+    {
+        int[] nearest = {-1};
+        double distance = getHierarchy().intersectRay(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z,
+                hit.distance, (t, maxDistance) ->
+                {
+                    double d = intersectTriangle(t, origin, direction);
+                    if (d < maxDistance)
+                    {
+                        nearest[0] = t;
+                        return d;
+                    }
+                    return maxDistance;
+                });
+
+        if (nearest[0] < 0)
+        {
+            return false;
+        }
+        hit.triangle = nearest[0];
+        hit.distance = distance;
+        return true;
+    }
+
+    /**
+     * Möller-Trumbore intersection of a ray with one triangle.
+     *
+     * @return The distance of the intersection, infinity if the ray misses the triangle.
+     */
+    private double intersectTriangle(int t, Vector3D o, Vector3D d)
+    {
+        int i0 = indices[t * 3] * 3, i1 = indices[t * 3 + 1] * 3, i2 = indices[t * 3 + 2] * 3;
+        double e1x = positions[i1] - positions[i0], e1y = positions[i1 + 1] - positions[i0 + 1], e1z = positions[i1 + 2] - positions[i0 + 2];
+        double e2x = positions[i2] - positions[i0], e2y = positions[i2 + 1] - positions[i0 + 1], e2z = positions[i2 + 2] - positions[i0 + 2];
+
+        double px = d.y * e2z - d.z * e2y, py = d.z * e2x - d.x * e2z, pz = d.x * e2y - d.y * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (Math.abs(det) < 1e-12)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        double invDet = 1.0 / det;
+
+        double sx = o.x - positions[i0], sy = o.y - positions[i0 + 1], sz = o.z - positions[i0 + 2];
+        double u = (sx * px + sy * py + sz * pz) * invDet;
+        if (u < 0 || u > 1)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double v = (d.x * qx + d.y * qy + d.z * qz) * invDet;
+        if (v < 0 || u + v > 1)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double distance = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+        return distance >= 0 ? distance : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Expands the buffer into separate triangle objects.
+     *
+     * @return A new list with one triangle per entry of the index buffer.
+     */
+    public List<Triangle> toTriangles()
+    {
+        List<Triangle> triangles = new ArrayList<>(getTriangleCount());
+        for (int t = 0; t < getTriangleCount(); t++)
+        {
+            Triangle tri = new Triangle();
+            getTriangle(t, tri);
+            triangles.add(tri);
+        }
+        return triangles;
+    }
+
+    public int getVertexCount()
+    {
+        return positions.length / 3;
+    }
+
+    public int getTriangleCount()
+    {
+        return indices.length / 3;
+    }
+
+    /**
+     * Key used to merge equal vertices while building the buffer.
+     */
+    private record Vertex(float x, float y, float z, float u, float v)
+    {
+        Vertex(Vector3D position, Vector2D uv)
+        {
+            this((float) position.x, (float) position.y, (float) position.z, (float) uv.u, (float) uv.v);
+        }
+    }
+}
@@ -32,6 +32,17 @@ public class Vector2D implements Cloneable
         this.w = 1;
     }
 
+    /**
+     * Sets the parameter of the input vector
+     * @param in Input vector
+     */
+    public void setVector(Vector2D in)
+    {
+        this.u = in.u;
+        this.v = in.v;
+        this.w = in.w;
+    }
+
     /**
      * Returns a string representation of the vector.
      *
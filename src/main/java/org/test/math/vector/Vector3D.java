@@ -47,6 +47,78 @@ public class Vector3D implements Cloneable
         this.w = in.w;
     }
 
+    /**
+     * Sets the coordinates of this vector, w is reset to 1.
+     *
+     * @param x The x-coordinate of the vector.
+     * @param y The y-coordinate of the vector.
+     * @param z The z-coordinate of the vector.
+     */
+    public void setVector(double x, double y, double z)
+    {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = 1;
+    }
+
+    /**
+     * Adds another vector to this vector and stores the result in out, which may be one of the operands.
+     *
+     * @param in  The vector to add.
+     * @param out The vector receiving the result.
+     * @return The out vector.
+     */
+    public Vector3D addInto(Vector3D in, Vector3D out)
+    {
+        out.setVector(this.x + in.x, this.y + in.y, this.z + in.z);
+        return out;
+    }
+
+    /**
+     * Subtracts another vector from this vector and stores the result in out, which may be one of the operands.
+     *
+     * @param in  The vector to subtract.
+     * @param out The vector receiving the result.
+     * @return The out vector.
+     */
+    public Vector3D subtractInto(Vector3D in, Vector3D out)
+    {
+        out.setVector(this.x - in.x, this.y - in.y, this.z - in.z);
+        return out;
+    }
+
+    /**
+     * Calculates the cross product of this vector with another vector and stores it in out,
+     * which may be one of the operands.
+     *
+     * @param in  The other vector.
+     * @param out The vector receiving the result.
+     * @return The out vector.
+     */
+    public Vector3D crossInto(Vector3D in, Vector3D out)
+    {
+        out.setVector(
+                this.y * in.z - this.z * in.y,
+                this.z * in.x - this.x * in.z,
+                this.x * in.y - this.y * in.x);
+        return out;
+    }
+
+    /**
+     * Normalizes this vector in place.
+     *
+     * @return This vector.
+     */
+    public Vector3D normalizeInPlace()
+    {
+        double f = this.length();
+        this.x /= f;
+        this.y /= f;
+        this.z /= f;
+        return this;
+    }
+
     /**
      * Adds another vector to this vector and returns the result as a new Vector3D.
      *
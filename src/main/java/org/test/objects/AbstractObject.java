@@ -1,35 +1,67 @@
 package org.test.objects;
 
+import org.test.graphics.ColorUtils;
+import org.test.math.matrix.Transform;
 import org.test.math.triangle.Mesh;
-import org.test.math.triangle.Triangle;
+import org.test.math.triangle.MeshInstance;
 import org.test.math.vector.Vector3D;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public abstract class AbstractObject
 {
     private List<Mesh> meshes;
+    // position, rotation and scale of the object, shared by all of its instances
+    private final Transform transform = new Transform();
+    // one instance per mesh, the object is drawn through them so the meshes can be shared with other objects
+    private final List<MeshInstance> instances = new ArrayList<>();
 
     public AbstractObject()
     {
-        meshes = this.loadObject();
+        setMeshes(this.loadObject());
     }
 
     protected abstract List<Mesh> loadObject();
 
+    /**
+     * Moves the object by changing its position, the vertices of the shared meshes are never changed.
+     * The model matrix is only recomputed once per frame, however often the object is moved.
+     *
+     * @param translationVector The offset of the movement.
+     */
     public void move(Vector3D translationVector)
     {
-        for (Mesh mesh : meshes)
+        transform.translate(translationVector.x, translationVector.y, translationVector.z);
+    }
+
+    /**
+     * @return The position, rotation and scale of the object.
+     */
+    public Transform getTransform()
+    {
+        return transform;
+    }
+
+    /**
+     * Modulates the color of all triangles of the object, white leaves them unchanged.
+     *
+     * @param tint The tint of the object.
+     */
+    public void setTint(int tint)
+    {
+        for (MeshInstance instance : instances)
         {
-            for (Triangle triangle : mesh.triangles)
-            {
-                triangle.vec3D = translationVector.addVector(triangle.vec3D);
-                triangle.vec3D2 = translationVector.addVector(triangle.vec3D2);
-                triangle.vec3D3 = translationVector.addVector(triangle.vec3D3);
-            }
+            instance.tint = tint;
         }
     }
 
+    /**
+     * Returns the meshes of the object. They may be shared with other objects, all cars draw the same mesh,
+     * so they must not be modified. Move or tint the object through {@link #getTransform()} and {@link #setTint(int)}.
+     *
+     * @return The meshes the instances of the object are drawn with.
+     */
     public List<Mesh> getMeshes()
     {
         return meshes;
@@ -38,5 +70,18 @@ public abstract class AbstractObject
     public void setMeshes(List<Mesh> meshes)
     {
         this.meshes = meshes;
+        instances.clear();
+        for (Mesh mesh : meshes)
+        {
+            instances.add(new MeshInstance(mesh, transform, ColorUtils.CD_WHITE));
+        }
+    }
+
+    /**
+     * @return The instances the object is drawn with, one for each of its meshes.
+     */
+    public List<MeshInstance> getInstances()
+    {
+        return instances;
     }
 }
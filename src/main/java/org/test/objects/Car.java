@@ -1,39 +1,44 @@
 package org.test.objects;
 
-import org.test.graphics.Texture;
+import org.test.graphics.TextureCache;
 import org.test.math.triangle.DrawMode;
 import org.test.math.triangle.Mesh;
-import org.test.math.triangle.Triangle;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 import java.util.List;
 
 public class Car extends AbstractObject
 {
+    // all cars are instances of the same geometry, it is only loaded by the first one
+    private static Mesh carMesh;
+
     @Override
     protected List<Mesh> loadObject()
     {
-        BufferedImage img = null;
-        try
-        {
-            img = ImageIO.read(new File("./assets/car4/car4.png"));
-        }
-        catch (IOException ex)
+        return List.of(getCarMesh());
+    }
+
+    private static synchronized Mesh getCarMesh()
+    {
+        if (carMesh == null)
         {
-            ex.printStackTrace();
-        }
+            carMesh = Mesh.loadOBJFile("./assets/car4/car4.obj", true, DrawMode.TEXTURED);
 
-        Mesh carMesh = new Mesh(Mesh.ReadOBJFile("./assets/car4/car4.obj", true), DrawMode.TEXTURED);
+            // the rasterizer draws all triangles with the one cached texture of the mesh
+            carMesh.texture = TextureCache.getInstance().acquire("./assets/car4/car4.png");
+        }
+        return carMesh;
+    }
 
-        for(Triangle t : carMesh.triangles)
+    /**
+     * Discards the mesh shared by all cars and releases its texture, so the texture cache may evict it.
+     * The next car loads both again, cars constructed before must not be drawn anymore.
+     */
+    public static synchronized void releaseMesh()
+    {
+        if (carMesh != null)
         {
-            assert img != null;
-            t.tex = new Texture(img);
+            TextureCache.getInstance().release(carMesh.texture);
+            carMesh = null;
         }
-
-        return List.of(carMesh);
     }
 }
@@ -1,14 +1,22 @@
 package org.test.renderdata;
 
 import org.test.input.KeyHandler;
+import org.test.graphics.RasterAlgorithm;
 import org.test.graphics.ZBuffer;
 import org.test.math.matrix.Matrix4x4;
 import org.test.math.triangle.PolygonGroup;
 import org.test.renderer.Camera;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
 import java.awt.image.MemoryImageSource;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.test.renderer.PanelConfig.getImageHeight;
 import static org.test.renderer.PanelConfig.getImageWidth;
@@ -19,14 +27,24 @@ public class RenderSettings
     Thread gameThread;
 
     // Rendering Information
+    private final boolean headless; // no display available, render offscreen only
     private Image imageBuffer;
     private MemoryImageSource mImageProducer;
+    private BufferedImage frameImage; // offscreen view on the pixel array
     private int[] pixels;
     private final ZBuffer zBuffer;
 
     private KeyHandler keyH;
 
     private double fps = 60; // Frames per second
+    private int renderThreads = Runtime.getRuntime().availableProcessors(); // 1 rasterizes on the game thread
+    private ForkJoinPool renderPool; // created on first use with renderThreads workers
+    private RasterAlgorithm rasterAlgorithm = RasterAlgorithm.SCANLINE; // fills textured triangles
+    private int textureSubdivision = 0; // pixels between exact texture coordinates, 0 divides for every pixel
+    private boolean hierarchicalDepth = true; // rejects triangles behind the coarse depth tiles before rasterizing
+    private boolean visibilityBuffer = false; // textures every visible pixel once, after all textured triangles are rasterized
+    private boolean frontToBack = false; // sorts the triangles of textured meshes by depth before they are rendered
+    private boolean mipmapping = true; // samples smaller copies of the texture for triangles far from the camera
     private Matrix4x4 matProj; // projection matrix
     private Matrix4x4 matZ, matZX; // rotation matrix
     private PolygonGroup polygonGroup; // stores all Objects
@@ -34,6 +52,7 @@ public class RenderSettings
 
     public RenderSettings()
     {
+        headless = GraphicsEnvironment.isHeadless();
         vCamera = new Camera(0, 0, 0); // default Camera
         matProj = Matrix4x4.projektionMatrix(vCamera.getfNear(), vCamera.getfFar(), vCamera.getA(), vCamera.getFov());
         zBuffer = new ZBuffer((int) getImageWidth(), (int) getImageHeight());
@@ -44,8 +63,6 @@ public class RenderSettings
 
     private void setUpImageProducer()
     {
-        ColorModel cm = getCompatibleColorModel();
-
         // calculate the pixels depending on the current screen / Panel size
         int screenSize = (int) getImageWidth() * (int) getImageHeight();
         if(pixels == null || pixels.length < screenSize)
@@ -53,6 +70,17 @@ public class RenderSettings
             pixels = new int[screenSize];
         }
 
+        frameImage = createFrameImage(pixels);
+
+        // without a display there is no toolkit to produce images for, the frame image is all we need
+        if (headless)
+        {
+            imageBuffer = frameImage;
+            return;
+        }
+
+        ColorModel cm = getCompatibleColorModel();
+
         // This class is an implementation of the ImageProducer interface which uses an array
         // to produce pixel values for an Image.
         mImageProducer = new MemoryImageSource((int) getImageWidth(), (int) getImageHeight(), cm, pixels,0, (int) getImageWidth());
@@ -70,6 +98,25 @@ public class RenderSettings
         return instance;
     }
 
+    /**
+     * Wraps the pixel array in a BufferedImage without copying it, so every rendered frame
+     * is directly visible through the returned image.
+     *
+     * @param pixels The pixel array the renderer draws into.
+     * @return A RGB image backed by the given pixel array.
+     */
+    private static BufferedImage createFrameImage(int[] pixels)
+    {
+        int width = (int) getImageWidth();
+        int height = (int) getImageHeight();
+
+        DirectColorModel cm = new DirectColorModel(24, 0xff0000, 0x00ff00, 0x0000ff);
+        WritableRaster raster = Raster.createPackedRaster(
+                new DataBufferInt(pixels, width * height), width, height, width, cm.getMasks(), null);
+
+        return new BufferedImage(cm, raster, false, null);
+    }
+
     protected static ColorModel getCompatibleColorModel()
     {
         GraphicsConfiguration gfx_config = GraphicsEnvironment
@@ -89,6 +136,16 @@ public class RenderSettings
         this.gameThread = gameThread;
     }
 
+    public boolean isHeadless()
+    {
+        return headless;
+    }
+
+    public BufferedImage getFrameImage()
+    {
+        return frameImage;
+    }
+
     public Image getImageBuffer()
     {
         return imageBuffer;
@@ -117,6 +174,7 @@ public class RenderSettings
     public void setPixels(int[] pixels)
     {
         this.pixels = pixels;
+        this.frameImage = createFrameImage(pixels);
     }
 
     public ZBuffer getzBuffer()
@@ -144,6 +202,124 @@ public class RenderSettings
         this.fps = fps;
     }
 
+    public int getRenderThreads()
+    {
+        return renderThreads;
+    }
+
+    /**
+     * Sets the number of threads used for rasterization, a value of 1 disables the tiled rasterizer.
+     *
+     * @param renderThreads The number of rasterization threads.
+     * @throws IllegalArgumentException If the thread count is less than 1.
+     */
+    public void setRenderThreads(int renderThreads)
+    {
+        if (renderThreads < 1)
+        {
+            throw new IllegalArgumentException("Invalid number of render threads: " + renderThreads);
+        }
+
+        if (renderPool != null && renderThreads != this.renderThreads)
+        {
+            renderPool.shutdown();
+            renderPool = null;
+        }
+        this.renderThreads = renderThreads;
+    }
+
+    public RasterAlgorithm getRasterAlgorithm()
+    {
+        return rasterAlgorithm;
+    }
+
+    public void setRasterAlgorithm(RasterAlgorithm rasterAlgorithm)
+    {
+        this.rasterAlgorithm = Objects.requireNonNull(rasterAlgorithm);
+    }
+
+    public int getTextureSubdivision()
+    {
+        return textureSubdivision;
+    }
+
+    /**
+     * Sets how many pixels of a scanline share one perspective correct texture coordinate calculation,
+     * the pixels in between are interpolated affinely. 0 calculates exact coordinates for every pixel.
+     *
+     * @param textureSubdivision The length of the affine runs, e.g. 8 or 16.
+     * @throws IllegalArgumentException If the subdivision is negative.
+     */
+    public void setTextureSubdivision(int textureSubdivision)
+    {
+        if (textureSubdivision < 0)
+        {
+            throw new IllegalArgumentException("Invalid texture subdivision: " + textureSubdivision);
+        }
+        this.textureSubdivision = textureSubdivision;
+    }
+
+    public boolean isHierarchicalDepth()
+    {
+        return hierarchicalDepth;
+    }
+
+    public void setHierarchicalDepth(boolean hierarchicalDepth)
+    {
+        this.hierarchicalDepth = hierarchicalDepth;
+    }
+
+    public boolean isVisibilityBuffer()
+    {
+        return visibilityBuffer;
+    }
+
+    /**
+     * Switches between forward texturing and a visibility buffer. With the visibility buffer the textured triangles
+     * only write their depth and their index, the texture is sampled afterwards for the pixels that stayed visible.
+     *
+     * @param visibilityBuffer True to resolve textures once per visible pixel instead of once per drawn pixel.
+     */
+    public void setVisibilityBuffer(boolean visibilityBuffer)
+    {
+        this.visibilityBuffer = visibilityBuffer;
+    }
+
+    public boolean isFrontToBack()
+    {
+        return frontToBack;
+    }
+
+    /**
+     * Sorts the triangles of every textured mesh nearest first, so more pixels fail the depth test before
+     * they are shaded. Filled and wireframe meshes aren't depth tested, they are drawn in their original order.
+     *
+     * @param frontToBack True to sort the triangles by depth.
+     */
+    public void setFrontToBack(boolean frontToBack)
+    {
+        this.frontToBack = frontToBack;
+    }
+
+    public boolean isMipmapping()
+    {
+        return mipmapping;
+    }
+
+    public void setMipmapping(boolean mipmapping)
+    {
+        this.mipmapping = mipmapping;
+    }
+
+    public ForkJoinPool getRenderPool()
+    {
+        if (renderPool == null)
+        {
+            renderPool = new ForkJoinPool(renderThreads);
+        }
+        return renderPool;
+    }
+
     public Matrix4x4 getMatProj()
     {
         return matProj;
@@ -0,0 +1,108 @@
+package org.test.renderer;
+
+import org.test.math.triangle.Triangle;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Orders projected triangles front to back, so the depth test rejects the pixels of triangles hidden behind
+ * nearer ones before they are textured, and whole triangles are more often rejected by the hierarchical depth.
+ * <p>
+ * The key of a triangle is its nearest depth, the largest 1 / w of its corners, quantized to the upper
+ * {@link #KEY_BITS} bits of its float representation. Positive floats compare like their bits, so the keys are sorted
+ * with a least significant digit radix sort of {@link #RADIX_BITS} bits per pass. The sort is stable, triangles with
+ * the same key keep their submission order. All buffers are reused, sorting doesn't allocate once they are large enough.
+ */
+class DepthSorter
+{
+    static final int KEY_BITS = 24;
+    static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int KEY_MASK = (1 << KEY_BITS) - 1;
+
+    private int[] keys = new int[1024];
+    private int[] sortedKeys = new int[1024];
+    private Triangle[] triangles = new Triangle[1024];
+    private Triangle[] sortedTriangles = new Triangle[1024];
+    private final int[] counts = new int[RADIX];
+
+    /**
+     * Sorts the triangles in place, nearest first.
+     *
+     * @param list The triangles after the perspective divide.
+     */
+    void sort(List<Triangle> list)
+    {
+        int n = list.size();
+        if (n < 2)
+        {
+            return;
+        }
+        if (keys.length < n)
+        {
+            int capacity = Math.max(n, keys.length * 2);
+            keys = new int[capacity];
+            sortedKeys = new int[capacity];
+            triangles = new Triangle[capacity];
+            sortedTriangles = new Triangle[capacity];
+        }
+
+        for (int i = 0; i < n; i++)
+        {
+            Triangle triangle = list.get(i);
+            triangles[i] = triangle;
+            keys[i] = key(triangle);
+        }
+
+        for (int shift = 0; shift < KEY_BITS; shift += RADIX_BITS)
+        {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++)
+            {
+                counts[(keys[i] >>> shift) & (RADIX - 1)]++;
+            }
+
+            // all keys share this digit, the pass wouldn't change the order
+            if (counts[(keys[0] >>> shift) & (RADIX - 1)] == n)
+            {
+                continue;
+            }
+
+            for (int d = 0, offset = 0; d < RADIX; d++)
+            {
+                int count = counts[d];
+                counts[d] = offset;
+                offset += count;
+            }
+            for (int i = 0; i < n; i++)
+            {
+                int target = counts[(keys[i] >>> shift) & (RADIX - 1)]++;
+                sortedKeys[target] = keys[i];
+                sortedTriangles[target] = triangles[i];
+            }
+
+            int[] swapKeys = keys;
+            keys = sortedKeys;
+            sortedKeys = swapKeys;
+            Triangle[] swapTriangles = triangles;
+            triangles = sortedTriangles;
+            sortedTriangles = swapTriangles;
+        }
+
+        for (int i = 0; i < n; i++)
+        {
+            list.set(i, triangles[i]);
+        }
+    }
+
+    /**
+     * The quantized nearest depth of a triangle, inverted so that nearer triangles get smaller keys.
+     */
+    static int key(Triangle triangle)
+    {
+        double nearest = Math.max(Math.abs(triangle.vec2D.w), Math.max(Math.abs(triangle.vec2D2.w), Math.abs(triangle.vec2D3.w)));
+        int bits = Float.floatToRawIntBits((float) nearest) >>> (Integer.SIZE - 1 - KEY_BITS);
+        return KEY_MASK - bits;
+    }
+}
@@ -0,0 +1,187 @@
+package org.test.renderer;
+
+import org.test.math.matrix.FlatMatrix4x4;
+import org.test.math.triangle.Triangle;
+import org.test.math.vector.Vector2D;
+import org.test.math.vector.Vector3D;
+
+/**
+ * Clips projected triangles in homogeneous clip space, before the perspective divide.
+ * <p>
+ * Every vertex gets an outcode for the four sides of the screen and for the four sides of the guard band,
+ * a rectangle {@link #GUARD_BAND} times as large as the screen around it. Triangles with all vertices outside the same
+ * side of the screen are rejected, triangles inside the guard band are accepted unchanged and only the rest is clipped.
+ * The rasterizers clip against the screen per pixel anyway, so accepted triangles may reach beyond the screen;
+ * the guard band only keeps their coordinates small enough for the integer edge functions.
+ * <p>
+ * Every geometry chunk owns its own clipper, the clipped polygon is kept in reused arrays.
+ */
+class GuardBandClipper
+{
+    static final double GUARD_BAND = 2.0;
+
+    static final int REJECT = 0;
+    static final int ACCEPT = 1;
+    static final int CLIP = 2;
+
+    // a triangle clipped by four planes has at most seven corners
+    private static final int MAX_VERTICES = 7;
+    // x, y, z, w of the position and u, v, w of the texture coordinates
+    private static final int STRIDE = 7;
+
+    private double[] polygon = new double[MAX_VERTICES * STRIDE];
+    private double[] clipped = new double[MAX_VERTICES * STRIDE];
+    private int vertexCount;
+
+    // the sign of w in front of the camera, the projection matrix decides it
+    private double wSign = 1.0;
+
+    /**
+     * Takes the sign of w in front of the camera from the projection matrix, see {@link org.test.math.Frustum}.
+     *
+     * @param matProj The projection matrix.
+     */
+    void setProjection(FlatMatrix4x4 matProj)
+    {
+        wSign = Math.signum(matProj.get(2, 3) + matProj.get(3, 3));
+    }
+
+    /**
+     * Decides whether a projected triangle is invisible, lies inside the guard band or has to be clipped.
+     *
+     * @param triangle The triangle in clip space, already clipped against the near plane.
+     * @return {@link #REJECT}, {@link #ACCEPT} or {@link #CLIP}.
+     */
+    int classify(Triangle triangle)
+    {
+        int screen = outcode(triangle.vec3D, 1.0) & outcode(triangle.vec3D2, 1.0) & outcode(triangle.vec3D3, 1.0);
+        if (screen != 0)
+        {
+            return REJECT;
+        }
+
+        int guardBand = outcode(triangle.vec3D, GUARD_BAND) | outcode(triangle.vec3D2, GUARD_BAND) | outcode(triangle.vec3D3, GUARD_BAND);
+        return guardBand == 0 ? ACCEPT : CLIP;
+    }
+
+    /**
+     * One bit for every side of the rectangle, scaled by band around the screen, the vertex lies outside of.
+     */
+    private int outcode(Vector3D v, double band)
+    {
+        double w = wSign * v.w * band;
+        int code = 0;
+        if (w + v.x < 0) code |= 1;
+        if (w - v.x < 0) code |= 2;
+        if (w + v.y < 0) code |= 4;
+        if (w - v.y < 0) code |= 8;
+        return code;
+    }
+
+    /**
+     * Clips a triangle against the four sides of the guard band. The result is a convex polygon
+     * that is read back as a fan of triangles with {@link #getTriangle(int, Triangle)}.
+     *
+     * @param triangle The triangle in clip space.
+     * @return The number of triangles of the clipped polygon, 0 if nothing is left.
+     */
+    int clip(Triangle triangle)
+    {
+        vertexCount = 0;
+        add(polygon, triangle.vec3D, triangle.vec2D);
+        add(polygon, triangle.vec3D2, triangle.vec2D2);
+        add(polygon, triangle.vec3D3, triangle.vec2D3);
+
+        for (int plane = 0; plane < 4 && vertexCount >= 3; plane++)
+        {
+            clipPolygon(plane);
+        }
+        return Math.max(vertexCount - 2, 0);
+    }
+
+    private void add(double[] vertices, Vector3D position, Vector2D texture)
+    {
+        int i = vertexCount++ * STRIDE;
+        vertices[i] = position.x;
+        vertices[i + 1] = position.y;
+        vertices[i + 2] = position.z;
+        vertices[i + 3] = position.w;
+        vertices[i + 4] = texture.u;
+        vertices[i + 5] = texture.v;
+        vertices[i + 6] = texture.w;
+    }
+
+    /**
+     * The signed distance of a polygon corner to one side of the guard band, negative outside.
+     */
+    private double distance(double[] vertices, int vertex, int plane)
+    {
+        int i = vertex * STRIDE;
+        double w = wSign * vertices[i + 3] * GUARD_BAND;
+        return switch (plane)
+        {
+            case 0 -> w + vertices[i];
+            case 1 -> w - vertices[i];
+            case 2 -> w + vertices[i + 1];
+            default -> w - vertices[i + 1];
+        };
+    }
+
+    /**
+     * Sutherland-Hodgman step, keeps the corners inside the plane and adds the intersections of the crossing edges.
+     */
+    private void clipPolygon(int plane)
+    {
+        int count = 0;
+        for (int v = 0; v < vertexCount; v++)
+        {
+            int next = v + 1 == vertexCount ? 0 : v + 1;
+            double d = distance(polygon, v, plane);
+            double dNext = distance(polygon, next, plane);
+
+            if (d >= 0)
+            {
+                System.arraycopy(polygon, v * STRIDE, clipped, count++ * STRIDE, STRIDE);
+            }
+            if ((d >= 0) != (dNext >= 0))
+            {
+                double t = d / (d - dNext);
+                int a = v * STRIDE, b = next * STRIDE, o = count++ * STRIDE;
+                for (int c = 0; c < STRIDE; c++)
+                {
+                    clipped[o + c] = polygon[a + c] + t * (polygon[b + c] - polygon[a + c]);
+                }
+            }
+        }
+
+        double[] tmp = polygon;
+        polygon = clipped;
+        clipped = tmp;
+        vertexCount = count;
+    }
+
+    /**
+     * Copies one triangle of the fan of the last clipped polygon.
+     *
+     * @param index The index of the triangle, smaller than the count returned by {@link #clip(Triangle)}.
+     * @param out   The triangle receiving the clip space positions and texture coordinates.
+     */
+    void getTriangle(int index, Triangle out)
+    {
+        set(0, out.vec3D, out.vec2D);
+        set(index + 1, out.vec3D2, out.vec2D2);
+        set(index + 2, out.vec3D3, out.vec2D3);
+    }
+
+    private void set(int vertex, Vector3D position, Vector2D texture)
+    {
+        int i = vertex * STRIDE;
+        position.x = polygon[i];
+        position.y = polygon[i + 1];
+        position.z = polygon[i + 2];
+        position.w = polygon[i + 3];
+        texture.u = polygon[i + 4];
+        texture.v = polygon[i + 5];
+        texture.w = polygon[i + 6];
+    }
+}
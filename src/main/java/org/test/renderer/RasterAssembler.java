@@ -1,19 +1,27 @@
 package org.test.renderer;
 
-import org.test.math.matrix.Matrix4x4;
+import org.test.math.matrix.FlatMatrix4x4;
 import org.test.math.triangle.Triangle;
+import org.test.math.vector.Vector2D;
 import org.test.math.vector.Vector3D;
 
-import java.util.Arrays;
-
 import static org.test.renderer.PanelConfig.getImageHeight;
 import static org.test.renderer.PanelConfig.getImageWidth;
 
 /**
  * The RasterAssembler class provides methods for assembling, transforming, and projecting triangles for rendering.
+ * All methods write into the given triangles and vectors instead of allocating new ones, so the geometry stage
+ * does not produce garbage per triangle. Only {@link #calculateViewMatrix} uses scratch state of the instance,
+ * the per triangle methods may be called from several threads at once.
  */
 public class RasterAssembler
 {
+    private final Vector3D vUp = new Vector3D(0, 1, 0);
+    private final Vector3D vTarget = new Vector3D();
+    private final FlatMatrix4x4 matCameraRot = new FlatMatrix4x4();
+    private final FlatMatrix4x4 matPitch = new FlatMatrix4x4();
+    private final FlatMatrix4x4 matCamera = new FlatMatrix4x4();
+
     /**
      * Assembles the world matrix for a triangle.
      *
@@ -21,19 +29,77 @@ public class RasterAssembler
      * @param tri       The original triangle.
      * @param matWorld  The world matrix.
      */
-    public void assembleWorldMatrix(Triangle triTrans, Triangle tri, Matrix4x4 matWorld)
+    public void assembleWorldMatrix(Triangle triTrans, Triangle tri, FlatMatrix4x4 matWorld)
+    {
+        transform(triTrans, tri, matWorld);
+    }
+
+    private void transform(Triangle out, Triangle in, FlatMatrix4x4 mat)
+    {
+        mat.transformInto(in.vec3D, out.vec3D);
+        mat.transformInto(in.vec3D2, out.vec3D2);
+        mat.transformInto(in.vec3D3, out.vec3D3);
+        out.vec2D.setVector(in.vec2D);
+        out.vec2D2.setVector(in.vec2D2);
+        out.vec2D3.setVector(in.vec2D3);
+    }
+
+    /**
+     * Transforms a range of shared vertices into world and view space, so every vertex is transformed
+     * only once per frame no matter how many triangles use it.
+     *
+     * @param positions The untransformed vertex positions, three floats per vertex.
+     * @param from      The first vertex to transform.
+     * @param to        The vertex after the last one to transform.
+     * @param matWorld  The world matrix.
+     * @param matView   The view matrix.
+     * @param world     The array receiving the world space positions, three values per vertex.
+     * @param view      The array receiving the view space positions, three values per vertex.
+     */
+    public void assembleVertices(float[] positions, int from, int to, FlatMatrix4x4 matWorld, FlatMatrix4x4 matView,
+                                 double[] world, double[] view)
+    {
+        double[] w = matWorld.m;
+        double[] v = matView.m;
+
+        for (int i = from * 3; i < to * 3; i += 3)
+        {
+            double x = positions[i], y = positions[i + 1], z = positions[i + 2];
+            double wx = x * w[0] + y * w[4] + z * w[8] + w[12];
+            double wy = x * w[1] + y * w[5] + z * w[9] + w[13];
+            double wz = x * w[2] + y * w[6] + z * w[10] + w[14];
+            world[i] = wx;
+            world[i + 1] = wy;
+            world[i + 2] = wz;
+
+            view[i] = wx * v[0] + wy * v[4] + wz * v[8] + v[12];
+            view[i + 1] = wx * v[1] + wy * v[5] + wz * v[9] + v[13];
+            view[i + 2] = wx * v[2] + wy * v[6] + wz * v[10] + v[14];
+        }
+    }
+
+    /**
+     * Assembles a triangle from already transformed shared vertices.
+     *
+     * @param out       The triangle receiving the vertices.
+     * @param positions The transformed vertex positions, three values per vertex.
+     * @param uvs       The texture coordinates, two floats per vertex.
+     * @param indices   The index buffer, three vertex indices per triangle.
+     * @param t         The index of the triangle.
+     */
+    public void assembleTriangle(Triangle out, double[] positions, float[] uvs, int[] indices, int t)
     {
-        test(triTrans, tri, matWorld);
+        setVertex(out.vec3D, out.vec2D, positions, uvs, indices[t * 3]);
+        setVertex(out.vec3D2, out.vec2D2, positions, uvs, indices[t * 3 + 1]);
+        setVertex(out.vec3D3, out.vec2D3, positions, uvs, indices[t * 3 + 2]);
     }
 
-    private void test(Triangle triTrans, Triangle tri, Matrix4x4 matWorld)
+    private void setVertex(Vector3D position, Vector2D uv, double[] positions, float[] uvs, int vertex)
     {
-        triTrans.vec3D = matWorld.multiplyMatrixVector(tri.vec3D);
-        triTrans.vec3D2 = matWorld.multiplyMatrixVector(tri.vec3D2);
-        triTrans.vec3D3 = matWorld.multiplyMatrixVector(tri.vec3D3);
-        triTrans.vec2D = tri.vec2D;
-        triTrans.vec2D2 = tri.vec2D2;
-        triTrans.vec2D3 = tri.vec2D3;
+        position.setVector(positions[vertex * 3], positions[vertex * 3 + 1], positions[vertex * 3 + 2]);
+        uv.u = uvs[vertex * 2];
+        uv.v = uvs[vertex * 2 + 1];
+        uv.w = 1;
     }
 
     /**
@@ -42,17 +108,15 @@ public class RasterAssembler
      * @param triTrans The transformed triangle.
      * @param line1    The first line vector.
      * @param line2    The second line vector.
+     * @param normal   The vector receiving the normal.
      * @return The calculated normal vector.
      */
-    public Vector3D assembleVertexNormals(Triangle triTrans, Vector3D line1, Vector3D line2)
+    public Vector3D assembleVertexNormals(Triangle triTrans, Vector3D line1, Vector3D line2, Vector3D normal)
     {
-        line1.setVector(triTrans.vec3D2.subtractVector(triTrans.vec3D));
-        line2.setVector(triTrans.vec3D3.subtractVector(triTrans.vec3D));
-
-        Vector3D normal = line1.crossProduct(line2);
-        normal = normal.normalizeVector();
+        triTrans.vec3D2.subtractInto(triTrans.vec3D, line1);
+        triTrans.vec3D3.subtractInto(triTrans.vec3D, line2);
 
-        return normal;
+        return line1.crossInto(line2, normal).normalizeInPlace();
     }
 
     /**
@@ -62,48 +126,33 @@ public class RasterAssembler
      * @param triTrans  The transformed triangle.
      * @param matView   The view matrix.
      */
-    public void assembleViewMatrix(Triangle triViewed, Triangle triTrans, Matrix4x4 matView)
+    public void assembleViewMatrix(Triangle triViewed, Triangle triTrans, FlatMatrix4x4 matView)
     {
-        test(triViewed, triTrans, matView);
+        transform(triViewed, triTrans, matView);
     }
 
     /**
-     * Calculates the view matrix based on camera parameters.
+     * Calculates the view matrix based on camera parameters and updates the look direction of the camera.
      *
      * @param fPitch    The pitch angle.
      * @param fYaw      The yaw angle.
      * @param camera    The camera object.
+     * @param matView   The matrix receiving the view matrix.
      * @return The calculated view matrix.
      */
-    public Matrix4x4 calculateViewMatrix(double fPitch, double fYaw, Camera camera)
+    public FlatMatrix4x4 calculateViewMatrix(double fPitch, double fYaw, Camera camera, FlatMatrix4x4 matView)
     {
-        Vector3D vUp = new Vector3D(0, 1, 0);
-        Vector3D vTarget = new Vector3D(0, 0, 1);
-        Matrix4x4 matCameraRot = Matrix4x4.rotateMatrixX(fPitch).multiplyMatrix(Matrix4x4.rotateMatrixY(fYaw));
-        
-        camera.setvLookDir(matCameraRot.multiplyMatrixVector(vTarget));
-        vTarget = camera.getPosition().addVector(camera.getvLookDir());
+        matPitch.setRotationX(fPitch).mulInto(matCameraRot.setRotationY(fYaw), matCameraRot);
+
+        vTarget.setVector(0, 0, 1);
+        matCameraRot.transformInto(vTarget, camera.getvLookDir());
+        camera.getPosition().addInto(camera.getvLookDir(), vTarget);
 
         // using the information provided above to define a camera matrix
-        Matrix4x4 matCamera = new Matrix4x4().pointAtMatrix(camera.getPosition(), vTarget, vUp);
+        matCamera.setPointAt(camera.getPosition(), vTarget, vUp);
 
         // matView
-        return matCamera.inverseMatrix();
-    }
-
-    /**
-     * Assembles the projection matrix for a triangle.
-     *
-     * @param triProjection The projected triangle.
-     * @param triViewed     The viewed triangle.
-     * @param matProj       The projection matrix.
-     */
-    public void assembleProjectionMatrix(Triangle triProjection, Triangle triViewed, Matrix4x4 matProj)
-    {
-        // project 3d to 2d screen
-        triProjection.vec3D = matProj.multiplyMatrixVector(triViewed.vec3D);
-        triProjection.vec3D2 = matProj.multiplyMatrixVector(triViewed.vec3D2);
-        triProjection.vec3D3 = matProj.multiplyMatrixVector(triViewed.vec3D3);
+        return matCamera.inverseInto(matView);
     }
 
     /**
@@ -114,16 +163,10 @@ public class RasterAssembler
      * @param n             The index of the clipped triangle.
      * @param matProj       The projection matrix.
      */
-    public void assembleClipSpace(Triangle triProjection, Triangle[] clipped, int n, Matrix4x4 matProj)
+    public void assembleClipSpace(Triangle triProjection, Triangle[] clipped, int n, FlatMatrix4x4 matProj)
     {
         // project 3d geometrical data to normalize 2d screen
-        triProjection.vec3D = matProj.multiplyMatrixVector(clipped[n].vec3D);
-        triProjection.vec3D2 = matProj.multiplyMatrixVector(clipped[n].vec3D2);
-        triProjection.vec3D3 = matProj.multiplyMatrixVector(clipped[n].vec3D3);
-
-        triProjection.vec2D = clipped[n].vec2D.clone();
-        triProjection.vec2D2 = clipped[n].vec2D2.clone();
-        triProjection.vec2D3 = clipped[n].vec2D3.clone();
+        transform(triProjection, clipped[n], matProj);
     }
 
     /**
@@ -146,9 +189,14 @@ public class RasterAssembler
         triProjection.vec2D3.w = 1.0d / triProjection.vec3D3.w;
 
         // Scale into view, we moved the normalising into cartesian space
-        triProjection.vec3D = triProjection.vec3D.divideVector(triProjection.vec3D.w);
-        triProjection.vec3D2 = triProjection.vec3D2.divideVector(triProjection.vec3D2.w);
-        triProjection.vec3D3 = triProjection.vec3D3.divideVector(triProjection.vec3D3.w);
+        divide(triProjection.vec3D);
+        divide(triProjection.vec3D2);
+        divide(triProjection.vec3D3);
+    }
+
+    private void divide(Vector3D vec)
+    {
+        vec.setVector(vec.x / vec.w, vec.y / vec.w, vec.z / vec.w);
     }
 
     /**
@@ -158,25 +206,15 @@ public class RasterAssembler
      */
     public void scaleIntoView(Triangle triProjection)
     {
-        // X/Y are inverted so put them back
-        triProjection.vec3D.x *= -1.0;
-        triProjection.vec3D2.x *= -1.0;
-        triProjection.vec3D3.x *= -1.0;
-        triProjection.vec3D.y *= -1.0;
-        triProjection.vec3D2.y *= -1.0;
-        triProjection.vec3D3.y *= -1.0;
-
-        // Offset verts into visible normalised space
-        Vector3D vOffsetView = new Vector3D(1, 1, 0);
-        triProjection.vec3D = triProjection.vec3D.addVector(vOffsetView);
-        triProjection.vec3D2 = triProjection.vec3D2.addVector(vOffsetView);
-        triProjection.vec3D3 = triProjection.vec3D3.addVector(vOffsetView);
-
-        triProjection.vec3D.x *= 0.5 * getImageWidth();
-        triProjection.vec3D.y *= 0.5 * getImageHeight();
-        triProjection.vec3D2.x *= 0.5 * getImageWidth();
-        triProjection.vec3D2.y *= 0.5 * getImageHeight();
-        triProjection.vec3D3.x *= 0.5 * getImageWidth();
-        triProjection.vec3D3.y *= 0.5 * getImageHeight();
+        scale(triProjection.vec3D);
+        scale(triProjection.vec3D2);
+        scale(triProjection.vec3D3);
+    }
+
+    private void scale(Vector3D vec)
+    {
+        // X/Y are inverted so put them back and offset verts into visible normalised space
+        vec.x = (1.0 - vec.x) * 0.5 * getImageWidth();
+        vec.y = (1.0 - vec.y) * 0.5 * getImageHeight();
     }
 }
@@ -1,15 +1,24 @@
 package org.test.renderer;
 
+import org.test.math.BoundingVolumeHierarchy;
+import org.test.math.Frustum;
+import org.test.math.matrix.FlatMatrix4x4;
 import org.test.math.triangle.DrawMode;
+import org.test.math.triangle.InstanceBatch;
+import org.test.math.triangle.MeshInstance;
 import org.test.renderdata.RenderSettings;
 import org.test.math.matrix.Matrix4x4;
 import org.test.math.triangle.Mesh;
 import org.test.math.triangle.Triangle;
+import org.test.math.triangle.VertexBuffer;
 import org.test.math.vector.Vector3D;
 
-import java.util.*;
+import org.test.graphics.ColorUtils;
 
-import static org.test.math.triangle.Triangle.getNearestPlane;
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The Rasterizer class is responsible for converting geometric primitives into a rasterized image during rendering.
@@ -24,6 +33,54 @@ public class Rasterizer
     private final RenderSettings settings = RenderSettings.getInstance();
     private final RasterAssembler rasterAssembler;
 
+    // Directional lighting specifying the direction from which the light should project
+    private final Vector3D lightDirection = new Vector3D(0, 0, -1).normalizeVector();
+    // Near clipping plane in view space
+    private final Vector3D nearPlaneP = new Vector3D(0, 0, 0.1);
+    private final Vector3D nearPlaneN = new Vector3D(0, 0, 1);
+    // One shade of gray for every lighting value, so lit triangles share their colors
+    private static final Color[] SHADES = new Color[256];
+
+    static
+    {
+        for (int i = 0; i < SHADES.length; i++)
+        {
+            SHADES[i] = new Color(i, i, i);
+        }
+    }
+
+    // triangles and vertices handed to one worker at a time, large meshes are split into several chunks
+    static final int CHUNK_SIZE = 2048;
+    static final int VERTEX_CHUNK_SIZE = 4096;
+
+    // matrices reused for every frame, only read while the chunks are processed
+    private final FlatMatrix4x4 matRotation = new FlatMatrix4x4();
+    private final FlatMatrix4x4 matWorld = new FlatMatrix4x4();
+    private final FlatMatrix4x4 matView = new FlatMatrix4x4();
+    private final FlatMatrix4x4 matProj = new FlatMatrix4x4();
+    private final FlatMatrix4x4 matTrans = new FlatMatrix4x4();
+    private final FlatMatrix4x4 matWorldView = new FlatMatrix4x4();
+    private final Frustum frustum = new Frustum();
+    private boolean[] visibleMeshes = new boolean[0];
+    // model matrix times world matrix of every visible instance
+    private final List<FlatMatrix4x4> instanceMatrices = new ArrayList<>();
+    private int instanceMatrixCount;
+    private double lastTheta = Double.NaN;
+
+    // work of the current frame, every chunk owns its scratch geometry and output buffer
+    private final List<VertexChunk> vertexChunks = new ArrayList<>();
+    private int vertexChunkCount;
+    private final List<GeometryChunk> chunks = new ArrayList<>();
+    private int chunkCount;
+
+    // world and view space positions of the shared vertices of every visible mesh and instance, transformed once per frame
+    private final List<TransformedVertices> transformedVertices = new ArrayList<>();
+
+    // output of the last frame, reused by the next call of raster
+    private final Map<List<Triangle>, DrawMode> vecTrianglesToRasterMap = new IdentityHashMap<>();
+    private final List<List<Triangle>> meshTriangleLists = new ArrayList<>();
+    private final DepthSorter depthSorter = new DepthSorter();
+
     /**
      * Constructs a Rasterizer with the specified RasterAssembler.
      *
@@ -36,94 +93,425 @@ public class Rasterizer
 
     /**
      * Rasterizes geometric primitives and returns a list of triangles for rendering.
+     * The returned map, lists and triangles are reused by the next call, so they are only valid until then.
+     * Meshes and instances whose bounding box lies outside the view frustum are skipped as a whole, they are found
+     * through the bounding volume hierarchy of the polygon group.
+     * The shared vertices of every other mesh are transformed first, then the triangles are assembled from them.
+     * The vertices of an instance are transformed by its model matrix before the world matrix, and the triangles
+     * of all instances of one mesh are collected in one list, so a batch costs no more setup than a single mesh.
+     * With more than one render thread both passes are split into chunks that run in parallel,
+     * the output keeps the order of the serial geometry stage. Optionally the triangles of textured meshes are then
+     * sorted front to back.
      *
      * @return A map of triangles to be rasterized, with the content, if the mesh is textured or not.
      */
     public Map<List<Triangle>, DrawMode> raster()
     {
-        Map<List<Triangle>, DrawMode> vecTrianglesToRasterMap = new HashMap<>();
+        vecTrianglesToRasterMap.clear();
 
-        // Rotation matrix
-        settings.setMatZ(Matrix4x4.rotateMatrixZ(settings.getvCamera().getfTheta()));
-        settings.setMatZX(Matrix4x4.rotateMatrixX(settings.getvCamera().getfTheta()));
+        // Rotation matrix, only rebuilt when the angle changes
+        double fTheta = settings.getvCamera().getfTheta();
+        if (fTheta != lastTheta)
+        {
+            settings.setMatZ(Matrix4x4.rotateMatrixZ(fTheta));
+            settings.setMatZX(Matrix4x4.rotateMatrixX(fTheta));
+            matRotation.set(settings.getMatZ()).mulInto(new FlatMatrix4x4(settings.getMatZX()), matRotation);
+            lastTheta = fTheta;
+        }
 
         // Translation matrix
-        Matrix4x4 trans = Matrix4x4.translationMatrix(0, 0, 5);
+        matTrans.setTranslation(0, 0, 5);
 
         // Matrix multiplication to accumulate multiple transformations
-        Matrix4x4 matWorld = settings.getMatZ().multiplyMatrix(settings.getMatZX());
-        matWorld = matWorld.multiplyMatrix(trans);
+        matRotation.mulInto(matTrans, matWorld);
 
-        Matrix4x4 matView = rasterAssembler.calculateViewMatrix(
+        rasterAssembler.calculateViewMatrix(
                 settings.getvCamera().getfPitch(),
                 settings.getvCamera().getfYaw(),
-                settings.getvCamera()
+                settings.getvCamera(),
+                matView
         );
+        matProj.set(settings.getMatProj());
+        frustum.set(matWorld.mulInto(matView, matWorldView), matProj,
+                settings.getvCamera().getfNear(), settings.getvCamera().getfFar());
+
+        // Find the visible meshes and instances through the scene hierarchy
+        List<Mesh> meshes = settings.getPolygonGroup().getPolyGroup();
+        List<InstanceBatch> batches = settings.getPolygonGroup().getBatches();
+        BoundingVolumeHierarchy hierarchy = settings.getPolygonGroup().updateHierarchy();
+        int itemCount = meshes.size() + settings.getPolygonGroup().getInstanceCount();
+        if (visibleMeshes.length < itemCount)
+        {
+            visibleMeshes = new boolean[itemCount];
+        }
+        Arrays.fill(visibleMeshes, false);
+        hierarchy.cull(frustum, visibleMeshes);
+
+        // Split the visible meshes and instances into chunks of vertices and triangles, in submission order
+        vertexChunkCount = 0;
+        chunkCount = 0;
+        instanceMatrixCount = 0;
+        int transformed = 0;
+        for (int m = 0; m < meshes.size(); m++)
+        {
+            if (visibleMeshes[m])
+            {
+                addChunks(m, meshes.get(m), matWorld, ColorUtils.CD_WHITE, transformed++);
+            }
+        }
+
+        // Every batch gets the output list after the meshes, its instances follow the meshes in the hierarchy as well
+        int item = meshes.size();
+        for (int b = 0; b < batches.size(); b++)
+        {
+            InstanceBatch batch = batches.get(b);
+            for (int i = 0; i < batch.instances.size(); i++, item++)
+            {
+                if (visibleMeshes[item])
+                {
+                    MeshInstance instance = batch.instances.get(i);
+                    FlatMatrix4x4 matModelWorld = instance.transform.getMatrix().mulInto(matWorld, nextInstanceMatrix());
+                    addChunks(meshes.size() + b, batch.mesh, matModelWorld, instance.tint, transformed++);
+                }
+            }
+        }
 
-        for (Mesh mesh : settings.getPolygonGroup().getPolyGroup())
+        // Every triangle chunk may use vertices of every vertex chunk of its mesh, so the passes run one after another
+        process(vertexChunks, vertexChunkCount);
+        process(chunks, chunkCount);
+
+        // Merge the chunk outputs in submission order, every mesh and batch owns a contiguous run of chunks
+        int c = 0;
+        for (int l = 0; l < meshes.size() + batches.size(); l++)
         {
-            List<Triangle> vecTrianglesToRaster = new ArrayList<>();
+            Mesh mesh = l < meshes.size() ? meshes.get(l) : batches.get(l - meshes.size()).mesh;
+            List<Triangle> vecTrianglesToRaster = getTriangleList(l);
+            for (; c < chunkCount && chunks.get(c).listIndex == l; c++)
+            {
+                List<Triangle> output = chunks.get(c).output;
+                for (int i = 0; i < output.size(); i++)
+                {
+                    vecTrianglesToRaster.add(output.get(i));
+                }
+            }
 
-            for (Triangle tri : mesh.triangles)
+            // Depth tested triangles nearest first, so hidden pixels are rejected before they are shaded
+            if (settings.isFrontToBack() && mesh.drawMode == DrawMode.TEXTURED)
             {
-                Triangle triProjection = new Triangle();
-                Triangle triTrans = new Triangle();
-                Triangle triViewed = new Triangle();
+                depthSorter.sort(vecTrianglesToRaster);
+            }
+
+            vecTrianglesToRasterMap.put(vecTrianglesToRaster, mesh.drawMode);
+        }
+
+        return vecTrianglesToRasterMap;
+    }
+
+    /**
+     * Splits a visible mesh or instance into chunks of vertices and triangles.
+     *
+     * @param listIndex The output list of the triangles, the index of the mesh or the list of its batch.
+     * @param matrix    The matrix that transforms the shared vertices into world space.
+     * @param tint      The tint of the triangles.
+     * @param slot      The index of the transformed vertices, every visible mesh and instance needs its own.
+     */
+    private void addChunks(int listIndex, Mesh mesh, FlatMatrix4x4 matrix, int tint, int slot)
+    {
+        TransformedVertices vertices = getTransformedVertices(slot, mesh.vertexBuffer.getVertexCount());
+
+        int vertexCount = mesh.vertexBuffer.getVertexCount();
+        for (int from = 0; from < vertexCount; from += VERTEX_CHUNK_SIZE)
+        {
+            nextVertexChunk().set(mesh, matrix, vertices, from, Math.min(from + VERTEX_CHUNK_SIZE, vertexCount));
+        }
 
-                // Assemble World Matrix
-                rasterAssembler.assembleWorldMatrix(triTrans, tri, matWorld);
+        int triangleCount = mesh.vertexBuffer.getTriangleCount();
+        for (int from = 0; from < triangleCount; from += CHUNK_SIZE)
+        {
+            nextChunk().set(listIndex, mesh, tint, vertices, from, Math.min(from + CHUNK_SIZE, triangleCount));
+        }
+    }
+
+    /**
+     * Returns the next unused instance matrix, matrices are only created when a frame needs more of them than any before.
+     */
+    private FlatMatrix4x4 nextInstanceMatrix()
+    {
+        if (instanceMatrixCount == instanceMatrices.size())
+        {
+            instanceMatrices.add(new FlatMatrix4x4());
+        }
+        return instanceMatrices.get(instanceMatrixCount++);
+    }
 
-                Vector3D line1 = new Vector3D();
-                Vector3D line2 = new Vector3D();
-                Vector3D normal = rasterAssembler.assembleVertexNormals(triTrans, line1, line2);
+    /**
+     * Returns the cleared output list with the given index.
+     */
+    private List<Triangle> getTriangleList(int index)
+    {
+        if (index == meshTriangleLists.size())
+        {
+            meshTriangleLists.add(new ArrayList<>());
+        }
+        List<Triangle> list = meshTriangleLists.get(index);
+        list.clear();
+        return list;
+    }
 
-                Vector3D vCameraRay = triTrans.vec3D.subtractVector(settings.getvCamera().getPosition());
+    /**
+     * Returns the transformed vertex arrays with the given index, grown to hold the given vertex count.
+     */
+    private TransformedVertices getTransformedVertices(int slot, int vertexCount)
+    {
+        if (slot == transformedVertices.size())
+        {
+            transformedVertices.add(new TransformedVertices());
+        }
+        TransformedVertices vertices = transformedVertices.get(slot);
+        if (vertices.world.length < vertexCount * 3)
+        {
+            vertices.world = new double[vertexCount * 3];
+            vertices.view = new double[vertexCount * 3];
+        }
+        return vertices;
+    }
+
+    /**
+     * Returns the next unused vertex chunk, chunks are only created when a frame needs more of them than any before.
+     */
+    private VertexChunk nextVertexChunk()
+    {
+        if (vertexChunkCount == vertexChunks.size())
+        {
+            vertexChunks.add(new VertexChunk());
+        }
+        return vertexChunks.get(vertexChunkCount++);
+    }
+
+    /**
+     * Returns the next unused triangle chunk, chunks are only created when a frame needs more of them than any before.
+     */
+    private GeometryChunk nextChunk()
+    {
+        if (chunkCount == chunks.size())
+        {
+            chunks.add(new GeometryChunk());
+        }
+        return chunks.get(chunkCount++);
+    }
+
+    /**
+     * Processes the first count chunks, on the render pool when more than one render thread is configured.
+     */
+    private void process(List<? extends Runnable> chunks, int count)
+    {
+        if (settings.getRenderThreads() > 1 && count > 1)
+        {
+            settings.getRenderPool().invoke(new ChunkTask(chunks, 0, count));
+        }
+        else
+        {
+            for (int c = 0; c < count; c++)
+            {
+                chunks.get(c).run();
+            }
+        }
+    }
+
+    /**
+     * World and view space positions of the shared vertices of one mesh or instance, three values per vertex.
+     */
+    private static class TransformedVertices
+    {
+        private double[] world = new double[0];
+        private double[] view = new double[0];
+    }
+
+    /**
+     * A range of shared vertices of one mesh or instance that are transformed into world and view space.
+     */
+    private class VertexChunk implements Runnable
+    {
+        private Mesh mesh;
+        private FlatMatrix4x4 matrix;
+        private TransformedVertices vertices;
+        private int from, to;
+
+        void set(Mesh mesh, FlatMatrix4x4 matrix, TransformedVertices vertices, int from, int to)
+        {
+            this.mesh = mesh;
+            this.matrix = matrix;
+            this.vertices = vertices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run()
+        {
+            rasterAssembler.assembleVertices(mesh.vertexBuffer.positions, from, to, matrix, matView,
+                    vertices.world, vertices.view);
+        }
+    }
+
+    /**
+     * A range of triangles of one mesh or instance together with everything needed to transform it.
+     * Chunks never share mutable state, so any number of them can be processed at the same time.
+     */
+    private class GeometryChunk implements Runnable
+    {
+        private final Triangle triTrans = new Triangle();
+        private final Triangle triViewed = new Triangle();
+        private final Triangle[] clipped = {new Triangle(), new Triangle()};
+        private final Vector3D line1 = new Vector3D();
+        private final Vector3D line2 = new Vector3D();
+        private final Vector3D normal = new Vector3D();
+        private final Vector3D vCameraRay = new Vector3D();
+        private final GuardBandClipper clipper = new GuardBandClipper();
+
+        private final List<Triangle> output = new ArrayList<>();
+        private final List<Triangle> trianglePool = new ArrayList<>();
+        private int trianglePoolIndex;
+
+        private int listIndex;
+        private Mesh mesh;
+        private int tint;
+        private TransformedVertices vertices;
+        private int from, to;
+
+        void set(int listIndex, Mesh mesh, int tint, TransformedVertices vertices, int from, int to)
+        {
+            this.listIndex = listIndex;
+            this.mesh = mesh;
+            this.tint = tint;
+            this.vertices = vertices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run()
+        {
+            output.clear();
+            trianglePoolIndex = 0;
+            clipper.setProjection(matProj);
+
+            VertexBuffer vertexBuffer = mesh.vertexBuffer;
+            Vector3D cameraPosition = settings.getvCamera().getPosition();
+
+            for (int t = from; t < to; t++)
+            {
+                // Vertices in world space
+                rasterAssembler.assembleTriangle(triTrans, vertices.world, vertexBuffer.uvs, vertexBuffer.indices, t);
+                rasterAssembler.assembleVertexNormals(triTrans, line1, line2, normal);
+
+                triTrans.vec3D.subtractInto(cameraPosition, vCameraRay);
 
                 // Calculate surface normal projection onto the camera
                 if (normal.dotProduct(vCameraRay) < 0.0)
                 {
-                    // Directional lighting specifying the direction from which the light should project
-                    Vector3D light_direction = new Vector3D(0, 0, -1);
-                    light_direction.normalizeVector();
+                    double dp = Math.max(0.1, lightDirection.dotProduct(normal));
 
-                    double dp = Math.max(0.1, light_direction.dotProduct(normal));
-
-                    // WORLD SPACE TO VIEW SPACE
-                    rasterAssembler.assembleViewMatrix(triViewed, triTrans, matView);
-
-                    // PROJECT 3D GEOMETRICAL DATA TO NORMALIZED 2D SCREEN
-                    rasterAssembler.assembleProjectionMatrix(triProjection, triViewed, settings.getMatProj());
+                    // Vertices in view space
+                    rasterAssembler.assembleTriangle(triViewed, vertices.view, vertexBuffer.uvs, vertexBuffer.indices, t);
 
                     // CLIP TRIANGLE AGAINST NEAR PLANE
-                    int clippedTriangles;
-                    Triangle[] clipped = getNearestPlane();
-                    clippedTriangles = triViewed.triangleClipAgainstPlane(new Vector3D(0, 0, 0.1), new Vector3D(0, 0, 1), clipped);
+                    int clippedTriangles = triViewed.triangleClipAgainstPlaneInto(nearPlaneP, nearPlaneN, clipped);
 
                     for (int n = 0; n < clippedTriangles; n++)
                     {
-                        // Project 3D geometrical data to normalized 2D screen
-                        rasterAssembler.assembleClipSpace(triProjection, clipped, n, settings.getMatProj());
-
-                        // Scale texture coordinates
-                        rasterAssembler.assemblePerspectiveDivide(triProjection);
+                        Triangle triProjection = nextTriangle();
 
-                        // Scale into view
-                        rasterAssembler.scaleIntoView(triProjection);
+                        // Project 3D geometrical data to homogeneous clip space
+                        rasterAssembler.assembleClipSpace(triProjection, clipped, n, matProj);
 
-                        // Set the current lighting color
-                        int value = (int) Math.abs(dp * 255);
-                        triProjection.color(value, value, value);
-                        triProjection.tex = tri.tex;
-                        triProjection.dp = dp;
-
-                        vecTrianglesToRaster.add(triProjection);
+                        // Only triangles crossing the guard band are clipped, the rasterizers clip the rest per pixel
+                        switch (clipper.classify(triProjection))
+                        {
+                            case GuardBandClipper.REJECT -> trianglePoolIndex--;
+                            case GuardBandClipper.ACCEPT -> project(triProjection, dp);
+                            default ->
+                            {
+                                int fanTriangles = clipper.clip(triProjection);
+                                if (fanTriangles == 0)
+                                {
+                                    trianglePoolIndex--;
+                                }
+                                for (int i = 0; i < fanTriangles; i++)
+                                {
+                                    Triangle triClipped = i == 0 ? triProjection : nextTriangle();
+                                    clipper.getTriangle(i, triClipped);
+                                    project(triClipped, dp);
+                                }
+                            }
+                        }
                     }
                 }
             }
+        }
 
-            vecTrianglesToRasterMap.put(vecTrianglesToRaster, mesh.drawMode);
+        /**
+         * Divides a clip space triangle by w, scales it into view and adds it to the output.
+         */
+        private void project(Triangle triProjection, double dp)
+        {
+            // Scale texture coordinates
+            rasterAssembler.assemblePerspectiveDivide(triProjection);
+
+            // Scale into view
+            rasterAssembler.scaleIntoView(triProjection);
+
+            // Set the current lighting color
+            triProjection.color = SHADES[(int) Math.abs(dp * 255)];
+            triProjection.tex = mesh.texture;
+            triProjection.textureFilter = mesh.textureFilter;
+            triProjection.tint = tint;
+            triProjection.dp = dp;
+
+            output.add(triProjection);
         }
 
-        return vecTrianglesToRasterMap;
+        /**
+         * Returns the next free output triangle, the pool only grows when the chunk produces more triangles than before.
+         */
+        private Triangle nextTriangle()
+        {
+            if (trianglePoolIndex == trianglePool.size())
+            {
+                trianglePool.add(new Triangle());
+            }
+            return trianglePool.get(trianglePoolIndex++);
+        }
+    }
+
+    /**
+     * Splits the range of chunks until a single chunk is left, so idle workers can steal the remaining halves.
+     */
+    // only ever forked within one frame, never serialized
+    @SuppressWarnings("serial")
+    private static class ChunkTask extends RecursiveAction
+    {
+        private final List<? extends Runnable> chunks;
+        private final int from, to;
+
+        ChunkTask(List<? extends Runnable> chunks, int from, int to)
+        {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from == 1)
+            {
+                chunks.get(from).run();
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(chunks, from, mid), new ChunkTask(chunks, mid, to));
+        }
     }
 }
@@ -11,6 +11,8 @@ import org.test.scene.AbstractScene;
 
 import javax.swing.*;
 
+import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.Map;
 
@@ -23,9 +25,21 @@ public class RenderEngine implements Runnable
     private AbstractScene scene;
     private final Rasterizer rasterizer;
     private final Renderer renderer;
-    private final RenderPanel renderPanel;
+    private final RenderPanel renderPanel; // null when rendering headless
 
     public RenderEngine(AbstractScene scene)
+    {
+        this(scene, GraphicsEnvironment.isHeadless());
+    }
+
+    /**
+     * Constructs a RenderEngine for the given scene.
+     *
+     * @param scene    The scene to render.
+     * @param headless If true, no window is created and frames are only rendered into the pixel buffer,
+     *                 use {@link #renderFrame()} to drive the pipeline.
+     */
+    public RenderEngine(AbstractScene scene, boolean headless)
     {
         this.scene = scene;
         this.scene.setKeyH(settings.getKeyH());
@@ -34,9 +48,16 @@ public class RenderEngine implements Runnable
         rasterizer = new Rasterizer(new RasterAssembler());
         renderer = new Renderer();
 
-        renderPanel = new RenderPanel();
         initializeMesh();
 
+        if (headless)
+        {
+            renderPanel = null;
+            return;
+        }
+
+        renderPanel = new RenderPanel();
+
         JFrame jFrame = new JFrame();
         jFrame.setSize((int) getImageWidth(), (int) getImageHeight());
         jFrame.setResizable(false);
@@ -74,7 +95,7 @@ public class RenderEngine implements Runnable
             if (delta >= 1)
             {
                 update();
-                renderPanel.repaint();
+                if (renderPanel != null) renderPanel.repaint();
                 delta--;
                 drawCount++;
             }
@@ -93,7 +114,7 @@ public class RenderEngine implements Runnable
 
         for (AbstractObject object: scene.initializeObjects())
         {
-            poly.getPolyGroup().addAll(object.getMeshes());
+            object.getInstances().forEach(poly::addInstance);
         }
         settings.setPolygonGroup(poly);
     }
@@ -105,6 +126,22 @@ public class RenderEngine implements Runnable
         renderer.render(trisToRender);
     }
 
+    /**
+     * Updates the scene and renders a single frame without any windowing.
+     *
+     * @return The rendered frame, backed by the pixel buffer of the render settings.
+     */
+    public BufferedImage renderFrame()
+    {
+        update();
+        return settings.getFrameImage();
+    }
+
+    public boolean isHeadless()
+    {
+        return renderPanel == null;
+    }
+
     public AbstractScene getScene()
     {
         return scene;
@@ -1,20 +1,22 @@
 package org.test.renderer;
 
+import org.test.graphics.HalfSpaceRasterizer;
+import org.test.graphics.RasterAlgorithm;
+import org.test.graphics.Texture;
+import org.test.graphics.VisibilityBuffer;
+import org.test.graphics.ZBuffer;
 import org.test.math.triangle.DrawMode;
 import org.test.math.triangle.Mesh;
 import org.test.renderdata.RenderSettings;
 import org.test.math.triangle.Triangle;
-import org.test.math.vector.Vector3D;
 
-import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import static org.test.graphics.ColorUtils.CD_BLACK;
 import static org.test.graphics.ColorUtils.CD_WHITE;
+import static org.test.graphics.ColorUtils.modulate;
 import static org.test.graphics.DrawUtils.*;
-import static org.test.math.triangle.Triangle.getNearestPlane;
 import static org.test.renderer.PanelConfig.getImageHeight;
 import static org.test.renderer.PanelConfig.getImageWidth;
 
@@ -24,49 +26,77 @@ import static org.test.renderer.PanelConfig.getImageWidth;
 public class Renderer
 {
     private final RenderSettings settings = RenderSettings.getInstance();
+    private TileRasterizer tileRasterizer; // created when more than one render thread is first configured
+    private VisibilityBuffer visibilityBuffer; // created when the visibility buffer is first enabled
+
+    // the triangle isn't drawn through the visibility buffer
+    static final int NO_VISIBILITY_ID = -1;
 
     /**
      * Renders the provided list of triangles onto the specified graphics context.
+     * With more than one render thread configured the triangles are binned into tiles that are rasterized in parallel.
+     * With the visibility buffer enabled the textured triangles are drawn first and textured once per visible pixel,
+     * the other triangles are drawn on top of them afterwards.
      *
      * @param vecTrianglesToRasterMap A map of triangles to be rasterized, with the content, if the mesh is textured or not.
      */
     public void render(Map<List<Triangle>, DrawMode> vecTrianglesToRasterMap)
     {
-        clearScreen();
+        boolean tiled = settings.getRenderThreads() > 1;
+        boolean deferred = settings.isVisibilityBuffer();
+        TileRasterizer tiles = tiled ? getTileRasterizer() : null;
+
+        // the tiles clear their own part of the screen, the depth buffer is reset by starting a new generation
         resetZBuffer();
+        if (!tiled)
+        {
+            clearScreen();
+        }
+        if (deferred)
+        {
+            getVisibilityBuffer().reset();
+        }
 
         // print to screen
-        for (List<Triangle> triList : vecTrianglesToRasterMap.keySet())
+        for (Map.Entry<List<Triangle>, DrawMode> entry : vecTrianglesToRasterMap.entrySet())
         {
-            for (Triangle t : triList)
+            DrawMode drawMode = entry.getValue();
+            boolean deferredMode = deferred && drawMode == DrawMode.TEXTURED;
+
+            // the geometry stage already clipped against the guard band, the rasterizers clip to the screen
+            List<Triangle> triangles = entry.getKey();
+            for (int i = 0; i < triangles.size(); i++)
             {
-                Triangle[] clipped;
-                LinkedList<Triangle> listTriangles = new LinkedList<>();
-                listTriangles.add(t);
-                int nNewTriangles = 1;
+                Triangle triangle = triangles.get(i);
+                int id = deferredMode ? addToVisibilityBuffer(triangle) : NO_VISIBILITY_ID;
 
-                for (int plane = 0; plane < 4; plane++)
+                if (tiled)
                 {
-                    int trisToAdd;
-
-                    while (nNewTriangles > 0)
-                    {
-                        clipped = getNearestPlane();
-
-                        Triangle test = listTriangles.peek();
-                        listTriangles.pollFirst();
-                        nNewTriangles--;
-
-                        trisToAdd = getClippedTriangles(test, clipped, plane);
-
-                        listTriangles.addAll(Arrays.asList(clipped).subList(0, trisToAdd));
-                    }
-                    nNewTriangles = listTriangles.size();
+                    tiles.add(triangle, drawMode, id);
+                }
+                else if (deferredMode || !deferred)
+                {
+                    renderTriangle(triangle, drawMode, id);
                 }
+            }
+        }
+
+        if (tiled)
+        {
+            tiles.rasterize(settings.getRenderPool(), settings.getPixels(), CD_BLACK, deferred);
+        }
+        else if (deferred)
+        {
+            resolveVisibility(0, 0, (int) getImageWidth() - 1, (int) getImageHeight() - 1);
 
-                for (Triangle triangle : listTriangles)
+            for (Map.Entry<List<Triangle>, DrawMode> entry : vecTrianglesToRasterMap.entrySet())
+            {
+                if (entry.getValue() != DrawMode.TEXTURED)
                 {
-                    renderTriangle(triangle, vecTrianglesToRasterMap.get(triList));
+                    for (Triangle triangle : entry.getKey())
+                    {
+                        renderTriangle(triangle, entry.getValue(), NO_VISIBILITY_ID);
+                    }
                 }
             }
         }
@@ -74,37 +104,44 @@ public class Renderer
         updateImage();
     }
 
+    private TileRasterizer getTileRasterizer()
+    {
+        if (tileRasterizer == null)
+        {
+            tileRasterizer = new TileRasterizer(this);
+        }
+        return tileRasterizer;
+    }
+
+    private VisibilityBuffer getVisibilityBuffer()
+    {
+        if (visibilityBuffer == null)
+        {
+            visibilityBuffer = new VisibilityBuffer((int) getImageWidth(), (int) getImageHeight());
+        }
+        return visibilityBuffer;
+    }
+
+    private int addToVisibilityBuffer(Triangle triangle)
+    {
+        return visibilityBuffer.add(
+                pixel(triangle.vec3D.x), pixel(triangle.vec3D.y), triangle.vec2D.u, triangle.vec2D.v, triangle.vec2D.w,
+                pixel(triangle.vec3D2.x), pixel(triangle.vec3D2.y), triangle.vec2D2.u, triangle.vec2D2.v, triangle.vec2D2.w,
+                pixel(triangle.vec3D3.x), pixel(triangle.vec3D3.y), triangle.vec2D3.u, triangle.vec2D3.v, triangle.vec2D3.w,
+                selectMipLevel(triangle), triangle.textureFilter, triangle.tint, triangle.dp);
+    }
+
     /**
-     * Clips the given triangle against the specified plane and stores the result in the provided array.
+     * Textures the pixels inside the clip rectangle that the deferred triangles have been rasterized to.
      *
-     * @param test    The triangle to clip.
-     * @param clipped The array to store the clipped triangles.
-     * @param plane   The index of the plane to clip against. 0 for the bottom, 1 for the top, 2 for the left, 3 for the right.
-     * @return The number of triangles resulting from the clipping operation.
-     * @throws IllegalArgumentException If the plane index is invalid.
+     * @param minX The inclusive left edge of the clip rectangle.
+     * @param minY The inclusive top edge of the clip rectangle.
+     * @param maxX The exclusive right edge of the clip rectangle.
+     * @param maxY The exclusive bottom edge of the clip rectangle.
      */
-    private int getClippedTriangles(Triangle test, Triangle[] clipped, int plane)
+    void resolveVisibility(int minX, int minY, int maxX, int maxY)
     {
-        switch (plane)
-        {
-            case 0 ->
-            {
-                return test.triangleClipAgainstPlane(new Vector3D(0, 0, 0), new Vector3D(0, 1, 0), clipped);
-            }
-            case 1 ->
-            {
-                return test.triangleClipAgainstPlane(new Vector3D(0, getImageHeight() - 1.0, 0), new Vector3D(0, -1, 0), clipped);
-            }
-            case 2 ->
-            {
-                return test.triangleClipAgainstPlane(new Vector3D(0, 0, 0), new Vector3D(1, 0, 0), clipped);
-            }
-            case 3 ->
-            {
-                return test.triangleClipAgainstPlane(new Vector3D(getImageWidth() - 1.0, 0, 0), new Vector3D(-1, 0, 0), clipped);
-            }
-            default -> throw new IllegalArgumentException("Invalid value for plane: " + plane);
-        }
+        visibilityBuffer.resolve(settings.getPixels(), settings.getzBuffer(), minX, minY, maxX, maxY, 0, false, false);
     }
 
     /**
@@ -112,57 +149,169 @@ public class Renderer
      *
      * @param triangle The triangle to render.
      * @param drawMode option for rendering the triangle
+     * @param id       The index of the triangle in the visibility buffer or {@link #NO_VISIBILITY_ID}.
+     */
+    private void renderTriangle(Triangle triangle, DrawMode drawMode, int id)
+    {
+        renderTriangle(triangle, drawMode, id, 0, 0, (int) getImageWidth() - 1, (int) getImageHeight() - 1);
+    }
+
+    /**
+     * Renders a triangle, only touching the pixels inside the given clip rectangle.
+     *
+     * @param triangle The triangle to render.
+     * @param drawMode option for rendering the triangle
+     * @param id       The index of the triangle in the visibility buffer or {@link #NO_VISIBILITY_ID}.
+     * @param minX     The inclusive left edge of the clip rectangle.
+     * @param minY     The inclusive top edge of the clip rectangle.
+     * @param maxX     The exclusive right edge of the clip rectangle.
+     * @param maxY     The exclusive bottom edge of the clip rectangle.
      */
-    private void renderTriangle(Triangle triangle, DrawMode drawMode)
+    void renderTriangle(Triangle triangle, DrawMode drawMode, int id, int minX, int minY, int maxX, int maxY)
     {
         switch (drawMode)
         {
-            case DrawMode.TEXTURED -> renderTexturedTriangle(triangle);
-            case DrawMode.WIREFRAME -> renderWireframeTriangle(triangle);
-            case DrawMode.SURFACE -> renderSurfaceTriangle(triangle);
+            case DrawMode.TEXTURED -> renderTexturedTriangle(triangle, id, minX, minY, maxX, maxY);
+            case DrawMode.WIREFRAME -> renderWireframeTriangle(triangle, minX, minY, maxX, maxY);
+            case DrawMode.SURFACE -> renderSurfaceTriangle(triangle, minX, minY, maxX, maxY);
         }
     }
 
     /**
-     * Renders a textured triangle.
+     * Renders a textured triangle with the configured {@link RasterAlgorithm}.
+     * Triangles behind the coarse depth tiles of the {@link ZBuffer} are skipped if hierarchical depth is enabled.
+     * Triangles in the visibility buffer only store their depth and index.
      *
      * @param triangle The triangle to render.
+     * @param id       The index of the triangle in the visibility buffer or {@link #NO_VISIBILITY_ID}.
      */
-    private void renderTexturedTriangle(Triangle triangle)
+    private void renderTexturedTriangle(Triangle triangle, int id, int minX, int minY, int maxX, int maxY)
+    {
+        ZBuffer zBuffer = settings.getzBuffer();
+
+        // the bounding rectangle inside the clip rectangle, it decides which depth tiles the triangle can touch
+        int left = Math.max(pixel(Math.min(triangle.vec3D.x, Math.min(triangle.vec3D2.x, triangle.vec3D3.x))), minX);
+        int right = Math.min(pixel(Math.max(triangle.vec3D.x, Math.max(triangle.vec3D2.x, triangle.vec3D3.x))), maxX - 1);
+        int top = Math.max(pixel(Math.min(triangle.vec3D.y, Math.min(triangle.vec3D2.y, triangle.vec3D3.y))), minY);
+        int bottom = Math.min(pixel(Math.max(triangle.vec3D.y, Math.max(triangle.vec3D2.y, triangle.vec3D3.y))), maxY - 1);
+        if (left > right || top > bottom)
+        {
+            return;
+        }
+
+        if (settings.isHierarchicalDepth())
+        {
+            double nearest = Math.max(Math.abs(triangle.vec2D.w), Math.max(Math.abs(triangle.vec2D2.w), Math.abs(triangle.vec2D3.w)));
+            if (zBuffer.isOccluded(left, top, right, bottom, nearest))
+            {
+                return;
+            }
+        }
+
+        if (id != NO_VISIBILITY_ID)
+        {
+            visibilityBuffer.rasterize(id, zBuffer, minX, minY, maxX, maxY);
+        }
+        else
+        {
+            rasterizeTexturedTriangle(triangle, selectMipLevel(triangle), zBuffer, minX, minY, maxX, maxY);
+        }
+        zBuffer.invalidate(left, top, right, bottom);
+    }
+
+    private void rasterizeTexturedTriangle(Triangle triangle, Texture tex, ZBuffer zBuffer, int minX, int minY, int maxX, int maxY)
     {
+        if (settings.getRasterAlgorithm() == RasterAlgorithm.HALF_SPACE)
+        {
+            HalfSpaceRasterizer.texturedTriangle(
+                    pixel(triangle.vec3D.x), pixel(triangle.vec3D.y), triangle.vec2D.u, triangle.vec2D.v, triangle.vec2D.w,
+                    pixel(triangle.vec3D2.x), pixel(triangle.vec3D2.y), triangle.vec2D2.u, triangle.vec2D2.v, triangle.vec2D2.w,
+                    pixel(triangle.vec3D3.x), pixel(triangle.vec3D3.y), triangle.vec2D3.u, triangle.vec2D3.v, triangle.vec2D3.w,
+                    tex, 0, false, false, settings.getPixels(), zBuffer, triangle.dp,
+                    minX, minY, maxX, maxY, triangle.textureFilter, triangle.tint);
+            return;
+        }
+
         TexturedTriangle(
-                (int) triangle.vec3D.x, (int) triangle.vec3D.y, triangle.vec2D.u, triangle.vec2D.v, triangle.vec2D.w,
-                (int) triangle.vec3D2.x, (int) triangle.vec3D2.y, triangle.vec2D2.u, triangle.vec2D2.v, triangle.vec2D2.w,
-                (int) triangle.vec3D3.x, (int) triangle.vec3D3.y, triangle.vec2D3.u, triangle.vec2D3.v, triangle.vec2D3.w,
-                triangle.tex, 0, false, false, settings.getPixels(), settings.getzBuffer(), triangle.dp);
+                pixel(triangle.vec3D.x), pixel(triangle.vec3D.y), triangle.vec2D.u, triangle.vec2D.v, triangle.vec2D.w,
+                pixel(triangle.vec3D2.x), pixel(triangle.vec3D2.y), triangle.vec2D2.u, triangle.vec2D2.v, triangle.vec2D2.w,
+                pixel(triangle.vec3D3.x), pixel(triangle.vec3D3.y), triangle.vec2D3.u, triangle.vec2D3.v, triangle.vec2D3.w,
+                tex, 0, false, false, settings.getPixels(), zBuffer, triangle.dp,
+                minX, minY, maxX, maxY, settings.getTextureSubdivision(), triangle.textureFilter, triangle.tint);
+    }
+
+    /**
+     * Picks the mip level of the texture of a triangle whose texels are closest to the size of a pixel, from the ratio
+     * of the area the triangle covers in the texture to the area it covers on the screen.
+     * Prefers the sharper level when the ratio lies between two levels.
+     *
+     * @param triangle The triangle after the perspective divide.
+     * @return The texture level to sample, the full texture if mipmapping is disabled.
+     */
+    private Texture selectMipLevel(Triangle triangle)
+    {
+        Texture tex = triangle.tex;
+        if (!settings.isMipmapping() || tex.getMipLevelCount() == 1)
+        {
+            return tex;
+        }
+
+        // the texture coordinates are divided by w, the corners need the real ones
+        double u1 = triangle.vec2D.u / triangle.vec2D.w, v1 = triangle.vec2D.v / triangle.vec2D.w;
+        double u2 = triangle.vec2D2.u / triangle.vec2D2.w, v2 = triangle.vec2D2.v / triangle.vec2D2.w;
+        double u3 = triangle.vec2D3.u / triangle.vec2D3.w, v3 = triangle.vec2D3.v / triangle.vec2D3.w;
+        double texelArea = Math.abs((u2 - u1) * (v3 - v1) - (u3 - u1) * (v2 - v1)) * tex.getWidth() * tex.getHeight();
+        double pixelArea = Math.abs((triangle.vec3D2.x - triangle.vec3D.x) * (triangle.vec3D3.y - triangle.vec3D.y)
+                - (triangle.vec3D3.x - triangle.vec3D.x) * (triangle.vec3D2.y - triangle.vec3D.y));
+        if (!(texelArea > pixelArea) || pixelArea == 0)
+        {
+            return tex;
+        }
+
+        // every level halves both sides of the texture, so it divides the texel area by four
+        return tex.getMipLevel(Math.getExponent(texelArea / pixelArea) >> 1);
     }
 
     /**
-     * Renders a wireframe triangle.
+     * Renders a wireframe triangle in the tint of its instance, white by default.
      *
      * @param triangle The triangle to render.
      */
-    private void renderWireframeTriangle(Triangle triangle)
+    private void renderWireframeTriangle(Triangle triangle, int minX, int minY, int maxX, int maxY)
     {
         slDrawTriangle(settings.getPixels(),
-                (int) triangle.vec3D.x, (int) triangle.vec3D.y,
-                (int) triangle.vec3D2.x, (int) triangle.vec3D2.y,
-                (int) triangle.vec3D3.x, (int) triangle.vec3D3.y,
-                CD_WHITE);
+                pixel(triangle.vec3D.x), pixel(triangle.vec3D.y),
+                pixel(triangle.vec3D2.x), pixel(triangle.vec3D2.y),
+                pixel(triangle.vec3D3.x), pixel(triangle.vec3D3.y),
+                triangle.tint, minX, minY, maxX, maxY);
     }
 
     /**
-     * Renders a surface-filled triangle.
+     * Renders a surface-filled triangle, its lighting color modulated with its tint.
      *
      * @param triangle The triangle to render.
      */
-    private void renderSurfaceTriangle(Triangle triangle)
+    private void renderSurfaceTriangle(Triangle triangle, int minX, int minY, int maxX, int maxY)
     {
+        int color = triangle.color.getRGB();
+        if (triangle.tint != CD_WHITE)
+        {
+            color = modulate(color, triangle.tint);
+        }
+
         slFillTriangle(settings.getPixels(),
-                (int) triangle.vec3D.x, (int) triangle.vec3D.y,
-                (int) triangle.vec3D2.x, (int) triangle.vec3D2.y,
-                (int) triangle.vec3D3.x, (int) triangle.vec3D3.y,
-                triangle.color.getRGB(), settings.getzBuffer());
+                pixel(triangle.vec3D.x), pixel(triangle.vec3D.y),
+                pixel(triangle.vec3D2.x), pixel(triangle.vec3D2.y),
+                pixel(triangle.vec3D3.x), pixel(triangle.vec3D3.y),
+                color, settings.getzBuffer(), minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Converts a screen coordinate to the pixel containing it, triangles may reach beyond the left and top edge.
+     */
+    private static int pixel(double coordinate)
+    {
+        return (int) Math.floor(coordinate);
     }
 
     /**
@@ -186,6 +335,10 @@ public class Renderer
      */
     private void updateImage()
     {
-        settings.getmImageProducer().newPixels();
+        // headless rendering has no image producer, the frame image shares the pixel array
+        if (settings.getmImageProducer() != null)
+        {
+            settings.getmImageProducer().newPixels();
+        }
     }
 }
@@ -0,0 +1,185 @@
+package org.test.renderer;
+
+import org.test.math.triangle.DrawMode;
+import org.test.math.triangle.Triangle;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.test.renderer.PanelConfig.getImageHeight;
+import static org.test.renderer.PanelConfig.getImageWidth;
+
+/**
+ * The TileRasterizer splits the framebuffer into square tiles, bins every screen space triangle into the tiles
+ * its bounding rectangle overlaps and then rasterizes the tiles in parallel. Every tile only clears and draws the pixels
+ * and depth values inside its own rectangle, so the tiles never write to the same memory and no locking is needed.
+ * The triangles are drawn through the renderer and its depth buffer, which the renderer resets by only starting a new
+ * generation of depth values.
+ * Triangles keep their submission order inside a tile, which makes the result identical to drawing them one by one.
+ * With the visibility buffer every tile first rasterizes its textured triangles, resolves their textures and then draws
+ * the remaining triangles, in the same order as the untiled renderer.
+ */
+class TileRasterizer
+{
+    static final int TILE_SIZE = 64;
+
+    private final Renderer renderer;
+    private final int width = (int) getImageWidth();
+    private final int height = (int) getImageHeight();
+    private final int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+    private final int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+    // triangles of the current frame and, per tile, the indices of the triangles overlapping it
+    private Triangle[] triangles = new Triangle[1024];
+    private DrawMode[] drawModes = new DrawMode[1024];
+    private int[] visibilityIds = new int[1024];
+    private int triangleCount;
+    private final int[][] bins = new int[tilesX * tilesY][16];
+    private final int[] binSizes = new int[tilesX * tilesY];
+
+    TileRasterizer(Renderer renderer)
+    {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Adds a screen space triangle to every tile overlapped by its bounding rectangle.
+     *
+     * @param triangle The triangle, already clipped against the guard band, so it may reach beyond the screen.
+     * @param drawMode The mode used to draw the triangle.
+     * @param id       The index of the triangle in the visibility buffer of the renderer, if it has one.
+     */
+    void add(Triangle triangle, DrawMode drawMode, int id)
+    {
+        if (triangleCount == triangles.length)
+        {
+            triangles = Arrays.copyOf(triangles, triangleCount * 2);
+            drawModes = Arrays.copyOf(drawModes, triangleCount * 2);
+            visibilityIds = Arrays.copyOf(visibilityIds, triangleCount * 2);
+        }
+        int index = triangleCount++;
+        triangles[index] = triangle;
+        drawModes[index] = drawMode;
+        visibilityIds[index] = id;
+
+        int minX = (int) Math.floor(Math.min(triangle.vec3D.x, Math.min(triangle.vec3D2.x, triangle.vec3D3.x)));
+        int maxX = (int) Math.floor(Math.max(triangle.vec3D.x, Math.max(triangle.vec3D2.x, triangle.vec3D3.x)));
+        int minY = (int) Math.floor(Math.min(triangle.vec3D.y, Math.min(triangle.vec3D2.y, triangle.vec3D3.y)));
+        int maxY = (int) Math.floor(Math.max(triangle.vec3D.y, Math.max(triangle.vec3D2.y, triangle.vec3D3.y)));
+
+        int tileMinX = Math.max(0, Math.floorDiv(minX, TILE_SIZE));
+        int tileMaxX = Math.min(tilesX - 1, Math.floorDiv(maxX, TILE_SIZE));
+        int tileMinY = Math.max(0, Math.floorDiv(minY, TILE_SIZE));
+        int tileMaxY = Math.min(tilesY - 1, Math.floorDiv(maxY, TILE_SIZE));
+
+        for (int ty = tileMinY; ty <= tileMaxY; ty++)
+        {
+            for (int tx = tileMinX; tx <= tileMaxX; tx++)
+            {
+                int tile = tx + ty * tilesX;
+                if (binSizes[tile] == bins[tile].length)
+                {
+                    bins[tile] = Arrays.copyOf(bins[tile], binSizes[tile] * 2);
+                }
+                bins[tile][binSizes[tile]++] = index;
+            }
+        }
+    }
+
+    /**
+     * Clears and rasterizes all tiles on the given pool and resets the bins for the next frame.
+     *
+     * @param pool       The pool running the tiles.
+     * @param pixels     The pixel array of the framebuffer.
+     * @param clearColor The color every pixel is reset to before drawing.
+     * @param deferred   True if the textured triangles are drawn through the visibility buffer, every tile then
+     *                   rasterizes and resolves them before it draws the other triangles.
+     */
+    void rasterize(ForkJoinPool pool, int[] pixels, int clearColor, boolean deferred)
+    {
+        pool.invoke(new TileTask(0, tilesX * tilesY, pixels, clearColor, deferred));
+
+        Arrays.fill(triangles, 0, triangleCount, null);
+        Arrays.fill(binSizes, 0);
+        triangleCount = 0;
+    }
+
+    private void rasterizeTile(int tile, int[] pixels, int clearColor, boolean deferred)
+    {
+        int minX = (tile % tilesX) * TILE_SIZE;
+        int minY = (tile / tilesX) * TILE_SIZE;
+        int maxX = Math.min(minX + TILE_SIZE, width);
+        int maxY = Math.min(minY + TILE_SIZE, height);
+
+        for (int y = minY; y < maxY; y++)
+        {
+            Arrays.fill(pixels, minX + y * width, maxX + y * width, clearColor);
+        }
+
+        // like the untiled renderer the last column and row of the screen are never drawn
+        maxX = Math.min(maxX, width - 1);
+        maxY = Math.min(maxY, height - 1);
+
+        int[] bin = bins[tile];
+        if (deferred)
+        {
+            for (int i = 0; i < binSizes[tile]; i++)
+            {
+                if (drawModes[bin[i]] == DrawMode.TEXTURED)
+                {
+                    renderTriangle(bin[i], minX, minY, maxX, maxY);
+                }
+            }
+            renderer.resolveVisibility(minX, minY, maxX, maxY);
+        }
+
+        for (int i = 0; i < binSizes[tile]; i++)
+        {
+            if (!deferred || drawModes[bin[i]] != DrawMode.TEXTURED)
+            {
+                renderTriangle(bin[i], minX, minY, maxX, maxY);
+            }
+        }
+    }
+
+    private void renderTriangle(int index, int minX, int minY, int maxX, int maxY)
+    {
+        renderer.renderTriangle(triangles[index], drawModes[index], visibilityIds[index], minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Splits the range of tiles until a single tile is left, so idle workers can steal the remaining halves.
+     */
+    // only ever forked within one frame, never serialized
+    @SuppressWarnings("serial")
+    private class TileTask extends RecursiveAction
+    {
+        private final int from, to;
+        private final int[] pixels;
+        private final int clearColor;
+        private final boolean deferred;
+
+        TileTask(int from, int to, int[] pixels, int clearColor, boolean deferred)
+        {
+            this.from = from;
+            this.to = to;
+            this.pixels = pixels;
+            this.clearColor = clearColor;
+            this.deferred = deferred;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from == 1)
+            {
+                rasterizeTile(from, pixels, clearColor, deferred);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(from, mid, pixels, clearColor, deferred), new TileTask(mid, to, pixels, clearColor, deferred));
+        }
+    }
+}
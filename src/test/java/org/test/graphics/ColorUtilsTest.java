@@ -0,0 +1,55 @@
+package org.test.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColorUtilsTest
+{
+    @Test
+    void lerpMatchesChannelWiseInterpolation()
+    {
+        Random random = new Random(5);
+        for (int i = 0; i < 10000; i++)
+        {
+            int col = random.nextInt(), col2 = random.nextInt(), weight = random.nextInt(257);
+            int expected = 0;
+            for (int shift = 0; shift < 32; shift += 8)
+            {
+                int a = (col >>> shift) & 0xFF, b = (col2 >>> shift) & 0xFF;
+                expected |= ((a * (256 - weight) + b * weight + 128) >> 8) << shift;
+            }
+            assertEquals(expected, ColorUtils.lerp(col, col2, weight));
+        }
+
+        assertEquals(0xFF123456, ColorUtils.lerp(0xFF123456, 0x00ABCDEF, 0));
+        assertEquals(0x00ABCDEF, ColorUtils.lerp(0xFF123456, 0x00ABCDEF, 256));
+        assertEquals(0x80808080, ColorUtils.lerp(0xFFFFFFFF, 0x00000000, 128));
+    }
+
+    @Test
+    void convertsRgb565()
+    {
+        assertEquals(0, ColorUtils.fromRgb565(ColorUtils.toRgb565(0)));
+        assertEquals(0xFFFFFF, ColorUtils.fromRgb565(ColorUtils.toRgb565(0xFFFFFFFF)));
+        assertEquals(0xF800, ColorUtils.toRgb565(0xFF0000));
+        assertEquals(0x07E0, ColorUtils.toRgb565(0x00FF00));
+
+        for (int col = 0; col < 0x10000; col++)
+        {
+            assertEquals(col, ColorUtils.toRgb565(ColorUtils.fromRgb565(col)));
+        }
+    }
+
+    @Test
+    void modulate()
+    {
+        assertEquals(0xFF123456, ColorUtils.modulate(0xFF123456, ColorUtils.CD_WHITE));
+        assertEquals(0xFF000000, ColorUtils.modulate(0xFF123456, ColorUtils.CD_BLACK));
+        assertEquals(ColorUtils.CD_ORANGE, ColorUtils.modulate(ColorUtils.CD_WHITE, ColorUtils.CD_ORANGE));
+        // every channel is scaled on its own
+        assertEquals(0x400080, ColorUtils.modulate(0x80FF80, 0x800000 | 0x0000FF));
+    }
+}
@@ -0,0 +1,119 @@
+package org.test.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.test.renderer.PanelConfig.getImageHeight;
+import static org.test.renderer.PanelConfig.getImageWidth;
+
+class DrawUtilsTest
+{
+    private static final int WIDTH = (int) getImageWidth();
+    private static final int HEIGHT = (int) getImageHeight();
+
+    // every texel stores its own coordinates, x in the lowest byte and y in the byte above
+    private static final Texture TEXTURE = createTexture();
+
+    private static Texture createTexture()
+    {
+        BufferedImage img = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 256; y++)
+        {
+            for (int x = 0; x < 256; x++)
+            {
+                img.setRGB(x, y, 0x10000 | x | (y << 8));
+            }
+        }
+        return new Texture(img);
+    }
+
+    private static int[] render(int subdivision, double[] depth, double wb, double wc, int xb, int yb, int xc, int yc)
+    {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        ZBuffer zBuffer = new ZBuffer(WIDTH, HEIGHT);
+        DrawUtils.TexturedTriangle(
+                100, 100, 0, 0, 1,
+                xb, yb, 0.999 * wb, 0, wb,
+                xc, yc, 0, 0.999 * wc, wc,
+                TEXTURE, 0, false, false, pixels, zBuffer, 1,
+                0, 0, WIDTH - 1, HEIGHT - 1, subdivision);
+        if (depth != null)
+        {
+            for (int i = 0; i < depth.length; i++)
+            {
+                depth[i] = zBuffer.getDepth(i % WIDTH, i / WIDTH);
+            }
+        }
+        return pixels;
+    }
+
+    @Test
+    void subdivisionOfOneIsExact()
+    {
+        assertArrayEquals(render(0, null, 0.25, 0.5, 900, 150, 300, 700), render(1, null, 0.25, 0.5, 900, 150, 300, 700));
+    }
+
+    @Test
+    void subdivisionErrorIsBounded()
+    {
+        // a magnified and a strongly minified triangle, both with a large depth range
+        int[][] corners = {{900, 150, 300, 700}, {228, 110, 120, 228}};
+        double[][] ws = {{0.25, 0.5}, {0.125, 0.125}};
+
+        for (int c = 0; c < corners.length; c++)
+        {
+            int[] k = corners[c];
+            double[] depth = new double[WIDTH * HEIGHT];
+            int[] exact = render(0, depth, ws[c][0], ws[c][1], k[0], k[1], k[2], k[3]);
+
+            for (int subdivision : new int[]{4, 8, 16})
+            {
+                int[] subdivided = render(subdivision, null, ws[c][0], ws[c][1], k[0], k[1], k[2], k[3]);
+                assertSubdivisionError(exact, subdivided, depth, subdivision);
+            }
+        }
+    }
+
+    /**
+     * Inside a run from j0 to j1 the affine coordinate deviates from the perspective correct one by at most
+     * |s(j1) - s(j0)| * (sqrt(r) - 1) / (sqrt(r) + 1) with r the ratio of w at both ends, plus one texel for each
+     * truncated end point.
+     */
+    private static void assertSubdivisionError(int[] exact, int[] subdivided, double[] depth, int subdivision)
+    {
+        int checked = 0;
+        for (int y = 0; y < HEIGHT; y++)
+        {
+            int row = y * WIDTH;
+            int start = 0;
+            while (start < WIDTH && exact[row + start] == 0) start++;
+            int end = start;
+            while (end < WIDTH && exact[row + end] != 0) end++;
+
+            // the last run of a span ends on a pixel that is not drawn, so only complete runs can be checked
+            for (int j0 = start; j0 + subdivision < end; j0 += subdivision)
+            {
+                int j1 = j0 + subdivision;
+                double r = Math.max(depth[row + j0], depth[row + j1]) / Math.min(depth[row + j0], depth[row + j1]);
+                double factor = (Math.sqrt(r) - 1) / (Math.sqrt(r) + 1);
+
+                for (int shift = 0; shift <= 8; shift += 8)
+                {
+                    int s0 = (exact[row + j0] >> shift) & 255;
+                    int s1 = (exact[row + j1] >> shift) & 255;
+                    double bound = Math.abs(s1 - s0) * factor + 2;
+
+                    for (int j = j0; j < j1; j++)
+                    {
+                        int error = Math.abs(((exact[row + j] >> shift) & 255) - ((subdivided[row + j] >> shift) & 255));
+                        assertTrue(error <= bound, "error " + error + " above " + bound + " at " + j + ", " + y);
+                        checked++;
+                    }
+                }
+            }
+        }
+        assertTrue(checked > 0);
+    }
+}
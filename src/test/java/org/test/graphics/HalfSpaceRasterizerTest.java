@@ -0,0 +1,153 @@
+package org.test.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.test.renderer.PanelConfig.getImageHeight;
+import static org.test.renderer.PanelConfig.getImageWidth;
+
+class HalfSpaceRasterizerTest
+{
+    private static final int SIZE = 64;
+
+    private static Texture texture()
+    {
+        BufferedImage img = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 4; y++)
+        {
+            for (int x = 0; x < 4; x++)
+            {
+                img.setRGB(x, y, x + y * 4 + 1);
+            }
+        }
+        return new Texture(img);
+    }
+
+    private static int[] fill(int x1, int y1, int x2, int y2, int x3, int y3, int minX, int minY, int maxX, int maxY)
+    {
+        int[] pixels = new int[SIZE * SIZE];
+        HalfSpaceRasterizer.texturedTriangle(
+                x1, y1, 0, 0, 1,
+                x2, y2, 0, 0, 1,
+                x3, y3, 0, 0, 1,
+                texture(), 0, false, false, pixels, new ZBuffer(SIZE, SIZE), 0,
+                minX, minY, maxX, maxY);
+        return pixels;
+    }
+
+    @Test
+    void sharedEdgeIsCoveredOnce()
+    {
+        // a quad split along its diagonal, once for each winding of the triangles
+        int[][] quads = {
+                {10, 10, 50, 12, 48, 40, 8, 38},
+                {8, 38, 48, 40, 50, 12, 10, 10},
+                {5, 5, 40, 5, 40, 30, 5, 30}
+        };
+
+        for (int[] q : quads)
+        {
+            int[] first = fill(q[0], q[1], q[2], q[3], q[4], q[5], 0, 0, SIZE, SIZE);
+            int[] second = fill(q[0], q[1], q[4], q[5], q[6], q[7], 0, 0, SIZE, SIZE);
+
+            int covered = 0;
+            for (int i = 0; i < first.length; i++)
+            {
+                assertFalse(first[i] != 0 && second[i] != 0, "pixel " + i + " drawn twice");
+                if (first[i] != 0 || second[i] != 0) covered++;
+            }
+            assertTrue(covered > 0);
+        }
+
+        // an axis aligned rectangle covers exactly its width times height under the top left rule
+        int[] first = fill(5, 5, 40, 5, 40, 30, 0, 0, SIZE, SIZE);
+        int[] second = fill(5, 5, 40, 30, 5, 30, 0, 0, SIZE, SIZE);
+        int covered = 0;
+        for (int i = 0; i < first.length; i++)
+        {
+            if (first[i] != 0 || second[i] != 0) covered++;
+        }
+        assertEquals(35 * 25, covered);
+    }
+
+    @Test
+    void interpolatesTextureCoordinates()
+    {
+        int[] pixels = new int[SIZE * SIZE];
+        HalfSpaceRasterizer.texturedTriangle(
+                0, 0, 0, 0, 1,
+                SIZE, 0, 1, 0, 1,
+                0, SIZE, 0, 1, 1,
+                texture(), 0, false, false, pixels, new ZBuffer(SIZE, SIZE), 0,
+                0, 0, SIZE, SIZE);
+
+        // every texel spans 16 by 16 pixels
+        assertEquals(1, pixels[2 + 2 * SIZE]);
+        assertEquals(2, pixels[20 + 5 * SIZE]);
+        assertEquals(5, pixels[5 + 20 * SIZE]);
+        assertEquals(6, pixels[20 + 20 * SIZE]);
+        assertEquals(0, pixels[50 + 50 * SIZE]);
+    }
+
+    @Test
+    void respectsClipRectangle()
+    {
+        int[] pixels = fill(0, 0, 60, 0, 0, 60, 8, 8, 24, 16);
+        for (int y = 0; y < SIZE; y++)
+        {
+            for (int x = 0; x < SIZE; x++)
+            {
+                boolean inside = x >= 8 && x < 24 && y >= 8 && y < 16;
+                assertEquals(inside, pixels[x + y * SIZE] != 0, "pixel " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    void shadesLikeScanlineRasterizer()
+    {
+        // a smooth gradient, so texels sampled one apart by the two rasterizers differ only a little
+        BufferedImage img = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 16; y++)
+        {
+            for (int x = 0; x < 16; x++)
+            {
+                img.setRGB(x, y, (x * 8 + 64) << 16 | (y * 8 + 64) << 8 | 160);
+            }
+        }
+        Texture tex = new Texture(img);
+
+        // the scanline rasterizer writes rows of the screen width
+        int width = (int) getImageWidth(), height = (int) getImageHeight();
+        int[] scanline = new int[width * height], halfSpace = new int[width * height];
+        DrawUtils.TexturedTriangle(
+                20, 10, 0, 0, 1,
+                120, 30, 1, 0, 1,
+                40, 90, 0, 1, 1,
+                tex, 0.6, true, true, scanline, new ZBuffer(width, height), 0.7,
+                0, 0, width - 1, height - 1);
+        HalfSpaceRasterizer.texturedTriangle(
+                20, 10, 0, 0, 1,
+                120, 30, 1, 0, 1,
+                40, 90, 0, 1, 1,
+                tex, 0.6, true, true, halfSpace, new ZBuffer(width, height), 0.7,
+                0, 0, width - 1, height - 1);
+
+        // the fill rules differ along the edges, only pixels drawn by both are compared
+        int compared = 0;
+        for (int i = 0; i < scanline.length; i++)
+        {
+            if (scanline[i] != 0 && halfSpace[i] != 0)
+            {
+                for (int shift = 0; shift < 24; shift += 8)
+                {
+                    assertEquals(scanline[i] >> shift & 0xff, halfSpace[i] >> shift & 0xff, 8, "pixel " + i);
+                }
+                compared++;
+            }
+        }
+        assertTrue(compared > 2000);
+    }
+}
@@ -0,0 +1,54 @@
+package org.test.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaletteTest
+{
+    @Test
+    void findsNearestColor()
+    {
+        Palette palette = new Palette(new int[]{0x000000, 0xFF0000, 0x00FF00, 0x0000FF, 0xFFFFFF});
+        assertEquals(5, palette.getSize());
+        assertEquals(0, palette.indexOf(0x101010));
+        assertEquals(1, palette.indexOf(0xC02010));
+        assertEquals(3, palette.indexOf(0x0000A0));
+        assertEquals(4, palette.indexOf(0xE0E0E0));
+        assertEquals(0x00FF00, palette.getColor(palette.indexOf(0x20F040)));
+    }
+
+    @Test
+    void defaultPaletteKeepsItsColors()
+    {
+        Palette palette = Palette.getDefault();
+        assertEquals(Palette.MAX_SIZE, palette.getSize());
+        assertEquals(0x000000, palette.getColor(palette.indexOf(0x000000)));
+        assertEquals(0xFFFFFF, palette.getColor(palette.indexOf(0xFFFFFF)));
+
+        // grays closer together than the 5 bits of the table may find a neighbour
+        for (int i = 0; i < palette.getSize(); i++)
+        {
+            int col = palette.getColor(i);
+            assertTrue(ColorUtils.distanceSquared(col, palette.getColor(palette.indexOf(col))) <= 3 * 8 * 8, Integer.toHexString(col));
+        }
+    }
+
+    @Test
+    void rejectsInvalidSizes()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new Palette(new int[0]));
+        assertThrows(IllegalArgumentException.class, () -> new Palette(new int[Palette.MAX_SIZE + 1]));
+    }
+
+    @Test
+    void memorySizeIncludesTheNearestColorTable()
+    {
+        Palette palette = new Palette(new int[]{0x000000, 0xFFFFFF});
+        long size = palette.getMemorySize();
+        assertEquals(2 * 4 + (1 << 15), size);
+
+        palette.indexOf(0x808080);
+        assertEquals(size, palette.getMemorySize());
+    }
+}
@@ -0,0 +1,98 @@
+package org.test.graphics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextureCacheTest
+{
+    // a 16 x 16 texture together with its mip levels
+    private static final int TEXTURE_SIZE = (16 * 16 + 8 * 8 + 4 * 4 + 2 * 2 + 1) * 4;
+
+    @TempDir
+    Path dir;
+
+    private String writeImage(String name, int size) throws IOException
+    {
+        Path file = dir.resolve(name);
+        ImageIO.write(new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        return file.toString();
+    }
+
+    @Test
+    void sharesTextures() throws IOException
+    {
+        String file = writeImage("a.png", 16);
+        TextureCache cache = new TextureCache(TextureCache.DEFAULT_MEMORY_BUDGET);
+
+        Texture texture = cache.acquire(file);
+        assertSame(texture, cache.acquire(dir.resolve("./a.png").toString()));
+        assertEquals(2, cache.getReferenceCount(file));
+        assertEquals(TEXTURE_SIZE, cache.getMemoryUsage());
+
+        cache.release(texture);
+        cache.release(texture);
+        assertEquals(0, cache.getReferenceCount(file));
+        assertTrue(cache.contains(file));
+        assertThrows(IllegalArgumentException.class, () -> cache.release(texture));
+    }
+
+    @Test
+    void evictsUnusedTexturesOverBudget() throws IOException
+    {
+        String a = writeImage("a.png", 16);
+        String b = writeImage("b.png", 16);
+        String c = writeImage("c.png", 16);
+        TextureCache cache = new TextureCache(2 * TEXTURE_SIZE);
+
+        Texture textureA = cache.acquire(a);
+        Texture textureB = cache.acquire(b);
+        cache.release(textureA);
+        cache.release(textureB);
+
+        // a is the least recently used unused texture
+        cache.acquire(c);
+        assertFalse(cache.contains(a));
+        assertTrue(cache.contains(b));
+
+        // textures in use are kept even above the budget
+        cache.acquire(b);
+        cache.setMemoryBudget(0);
+        assertTrue(cache.contains(b));
+        assertTrue(cache.contains(c));
+        assertEquals(2 * TEXTURE_SIZE, cache.getMemoryUsage());
+    }
+
+    @Test
+    void missingFile()
+    {
+        TextureCache cache = new TextureCache(0);
+        assertThrows(IllegalArgumentException.class, () -> cache.acquire(dir.resolve("missing.png").toString()));
+        assertThrows(IllegalArgumentException.class, () -> cache.setMemoryBudget(-1));
+    }
+
+    @Test
+    void reportsMemoryOfCompactTextures() throws IOException
+    {
+        String a = writeImage("a.png", 16);
+        String b = writeImage("b.png", 16);
+        TextureCache cache = new TextureCache(TextureCache.DEFAULT_MEMORY_BUDGET);
+
+        cache.acquire(a);
+        cache.setTextureFormat(TextureFormat.RGB565);
+        Texture compact = cache.acquire(b);
+        assertEquals(TextureFormat.RGB565, compact.getFormat());
+        assertEquals(TEXTURE_SIZE + TEXTURE_SIZE / 2, cache.getMemoryUsage());
+
+        String report = cache.getMemoryReport();
+        assertTrue(report.contains("a.png: 16x16 INT_RGB ROW_MAJOR, 5 mip levels, " + TEXTURE_SIZE + " bytes, 1 references"), report);
+        assertTrue(report.contains("b.png: 16x16 RGB565 ROW_MAJOR, 5 mip levels, " + TEXTURE_SIZE / 2 + " bytes, 1 references"), report);
+        assertTrue(report.endsWith("total: " + (TEXTURE_SIZE + TEXTURE_SIZE / 2) + " of " + TextureCache.DEFAULT_MEMORY_BUDGET + " bytes\n"), report);
+    }
+}
@@ -0,0 +1,348 @@
+package org.test.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextureTest
+{
+    private static Texture texture(int width, int height)
+    {
+        return texture(width, height, TexelLayout.ROW_MAJOR);
+    }
+
+    private static Texture texture(int width, int height, TexelLayout layout)
+    {
+        return texture(width, height, layout, TextureFormat.INT_RGB);
+    }
+
+    private static Texture texture(int width, int height, TexelLayout layout, TextureFormat format)
+    {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                // red rises to the right, blue downwards, green alternates between neighbouring texels
+                img.setRGB(x, y, (x * 16 << 16) | ((x + y) % 2 * 200 << 8) | (y * 16));
+            }
+        }
+        return new Texture(img, layout, format);
+    }
+
+    @Test
+    void buildsMipChain()
+    {
+        Texture texture = texture(16, 4);
+        assertEquals(5, texture.getMipLevelCount());
+        assertSame(texture, texture.getMipLevel(0));
+
+        int[][] sizes = {{16, 4}, {8, 2}, {4, 1}, {2, 1}, {1, 1}};
+        for (int level = 0; level < sizes.length; level++)
+        {
+            Texture mip = texture.getMipLevel(level);
+            assertEquals(sizes[level][0], mip.getWidth());
+            assertEquals(sizes[level][1], mip.getHeight());
+            assertEquals(mip.getWidth() - 1, mip.getWidthMask());
+            assertEquals(mip.getWidth(), 1 << mip.getWidthShift());
+        }
+        assertSame(texture.getMipLevel(4), texture.getMipLevel(10));
+        assertEquals((64 + 16 + 4 + 2 + 1) * 4, texture.getMemorySize());
+    }
+
+    @Test
+    void averagesTexels()
+    {
+        Texture texture = texture(4, 4);
+        Texture mip = texture.getMipLevel(1);
+
+        // the texels (2, 0), (3, 0), (2, 1) and (3, 1)
+        int col = mip.getPixel(1, 0);
+        assertEquals((32 + 48 + 32 + 48) / 4, (col >> 16) & 0xFF);
+        assertEquals(100, (col >> 8) & 0xFF);
+        assertEquals(8, col & 0xFF);
+
+        // the checkered green averages out on every level
+        int last = texture.getMipLevel(2).getPixel(0, 0);
+        assertEquals(100, (last >> 8) & 0xFF);
+    }
+
+    @Test
+    void updatesMipLevels()
+    {
+        Texture texture = texture(2, 2);
+        for (int y = 0; y < 2; y++)
+        {
+            for (int x = 0; x < 2; x++)
+            {
+                texture.setPixel(x, y, 0x804020);
+            }
+        }
+        texture.updateMipLevels();
+        assertEquals(0x804020, texture.getMipLevel(1).getPixel(0, 0));
+    }
+
+    @Test
+    void onlyPowerOfTwoTexturesHaveMipLevels()
+    {
+        Texture texture = texture(12, 8);
+        assertEquals(1, texture.getMipLevelCount());
+        assertSame(texture, texture.getMipLevel(3));
+    }
+
+    @Test
+    void swizzlesTexels()
+    {
+        Texture rowMajor = texture(16, 4);
+        Texture morton = texture(16, 4, TexelLayout.MORTON);
+        assertEquals(TexelLayout.MORTON, morton.getLayout());
+        assertEquals(rowMajor.getMipLevelCount(), morton.getMipLevelCount());
+
+        for (int level = 0; level < morton.getMipLevelCount(); level++)
+        {
+            Texture expected = rowMajor.getMipLevel(level), actual = morton.getMipLevel(level);
+            assertEquals(TexelLayout.MORTON, actual.getLayout());
+
+            // every texel has its own place in the array
+            boolean[] used = new boolean[actual.getTexArray().length];
+            for (int y = 0; y < actual.getHeight(); y++)
+            {
+                for (int x = 0; x < actual.getWidth(); x++)
+                {
+                    assertEquals(expected.getPixel(x, y), actual.getPixel(x, y));
+                    int index = actual.getColumnOffsets()[x] + actual.getRowOffsets()[y];
+                    assertFalse(used[index]);
+                    used[index] = true;
+                }
+            }
+        }
+
+        // the two by two blocks are contiguous
+        assertArrayEquals(new int[]{0, 1, 4, 5}, Arrays.copyOf(morton.getColumnOffsets(), 4));
+        assertArrayEquals(new int[]{0, 2, 8, 10}, morton.getRowOffsets());
+    }
+
+    @Test
+    void onlyPowerOfTwoTexturesAreSwizzled()
+    {
+        Texture texture = texture(12, 8, TexelLayout.MORTON);
+        assertEquals(TexelLayout.ROW_MAJOR, texture.getLayout());
+        assertEquals(texture(12, 8).getPixel(11, 7), texture.getPixel(11, 7));
+    }
+
+    @Test
+    void layoutsRenderTheSame()
+    {
+        int size = 64;
+        int[] rowMajor = new int[size * size];
+        int[] morton = new int[size * size];
+        Texture[] textures = {texture(16, 4), texture(16, 4, TexelLayout.MORTON)};
+        int[][] pixels = {rowMajor, morton};
+
+        for (int i = 0; i < 2; i++)
+        {
+            // the texture is repeated and rotated, so the texels are read along both axes
+            HalfSpaceRasterizer.texturedTriangle(
+                    0, 0, 0.0, 3.0, 1.0,
+                    size, 0, 3.0, 2.0, 1.0,
+                    0, size, -1.0, 0.0, 1.0,
+                    textures[i], 0, false, false, pixels[i], new ZBuffer(size, size), 0,
+                    0, 0, size, size);
+        }
+        assertArrayEquals(rowMajor, morton);
+    }
+
+    @Test
+    void mipLevelsAreTexturesOfTheirOwn()
+    {
+        for (TextureFormat format : TextureFormat.values())
+        {
+            Texture level = texture(16, 4, TexelLayout.ROW_MAJOR, format).getMipLevel(2);
+
+            assertEquals(4, level.getWidth());
+            assertEquals(1, level.getMipLevelCount());
+            assertSame(level, level.getMipLevel(3));
+            assertTrue(level.getMemorySize() > 0);
+            assertTrue(level.toString().startsWith("4x1 " + format), level.toString());
+        }
+    }
+
+    @Test
+    void filtersBilinear()
+    {
+        Texture texture = texture(4, 4);
+
+        // the centre of a texel is the texel itself
+        assertEquals(texture.getPixel(2, 1), texture.getPixelBilinear(2 * 256 + 128, 256 + 128));
+
+        // halfway between (1, 1) and (2, 1), the red values 16 and 32 and the alternating green average out
+        int col = texture.getPixelBilinear(2 * 256, 256 + 128);
+        assertEquals(24, (col >> 16) & 0xFF);
+        assertEquals(100, (col >> 8) & 0xFF);
+        assertEquals(16, col & 0xFF);
+
+        // the left edge mixes the first and the last column of the repeated texture
+        col = texture.getPixelBilinear(0, 128);
+        assertEquals(24, (col >> 16) & 0xFF);
+        assertEquals(texture.getPixelBilinear(0, 128), texture(4, 4, TexelLayout.MORTON).getPixelBilinear(0, 128));
+    }
+
+    private static int maxChannelError(Texture expected, Texture actual)
+    {
+        int max = 0;
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                int a = expected.getPixel(x, y), b = actual.getPixel(x, y);
+                for (int shift = 0; shift < 24; shift += 8)
+                {
+                    max = Math.max(max, Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF)));
+                }
+            }
+        }
+        return max;
+    }
+
+    @Test
+    void compactFormatsKeepColorsClose()
+    {
+        Texture original = texture(16, 16);
+        Texture rgb565 = texture(16, 16, TexelLayout.MORTON, TextureFormat.RGB565);
+        Texture palettized = texture(16, 16, TexelLayout.MORTON, TextureFormat.PALETTE8);
+        Texture compressed = texture(16, 16, TexelLayout.MORTON, TextureFormat.BLOCK_COMPRESSED);
+
+        assertNull(rgb565.getTexArray());
+        assertSame(Palette.getDefault(), palettized.getPalette());
+        assertEquals(TexelLayout.MORTON, rgb565.getLayout());
+        assertEquals(TexelLayout.ROW_MAJOR, compressed.getLayout());
+
+        for (int level = 0; level < original.getMipLevelCount(); level++)
+        {
+            assertEquals(TextureFormat.RGB565, rgb565.getMipLevel(level).getFormat());
+            assertTrue(maxChannelError(original.getMipLevel(level), rgb565.getMipLevel(level)) <= 8);
+            // half the distance between the 6 levels per channel of the default palette,
+            // plus the 8 values of a channel that share an entry of the nearest color table
+            assertTrue(maxChannelError(original.getMipLevel(level), palettized.getMipLevel(level)) <= 32);
+        }
+
+        // the four colors of a block lie on a line, the red and blue gradients across the alternating green don't
+        assertTrue(maxChannelError(original, compressed) <= 64);
+    }
+
+    @Test
+    void blockCompressionKeepsTwoColorBlocks()
+    {
+        BufferedImage img = new BufferedImage(8, 4, BufferedImage.TYPE_INT_RGB);
+        int[] colors = {0x000000, 0xFFFFFF, 0xFF0000, 0x0000FF};
+        for (int y = 0; y < 4; y++)
+        {
+            for (int x = 0; x < 8; x++)
+            {
+                // the left block is black and white, the right one red and blue
+                img.setRGB(x, y, colors[(x >> 2) * 2 + ((x + y) & 1)]);
+            }
+        }
+        Texture texture = new Texture(img, TexelLayout.ROW_MAJOR, TextureFormat.BLOCK_COMPRESSED);
+
+        for (int y = 0; y < 4; y++)
+        {
+            for (int x = 0; x < 8; x++)
+            {
+                assertEquals(img.getRGB(x, y) & 0xFFFFFF, texture.getPixel(x, y));
+            }
+        }
+    }
+
+    @Test
+    void setsBlockCompressedTexels()
+    {
+        BufferedImage img = new BufferedImage(8, 4, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 4; y++)
+        {
+            for (int x = 0; x < 8; x++)
+            {
+                img.setRGB(x, y, ((x + y) & 1) == 0 ? 0x000000 : 0xFFFFFF);
+            }
+        }
+        Texture texture = new Texture(img, TexelLayout.ROW_MAJOR, TextureFormat.BLOCK_COMPRESSED);
+
+        // a color the block can already hold round-trips exactly and leaves the other texels alone
+        assertEquals(0x000000, texture.setPixel(1, 0, 0x000000));
+        assertEquals(0x000000, texture.getPixel(1, 0));
+        assertEquals(0xFFFFFF, texture.getPixel(0, 1));
+        assertEquals(0xFFFFFF, texture.getPixel(5, 0));
+
+        // a third of the way from black to white is one of the interpolated colors of the block
+        assertEquals(0x555555, texture.setPixel(6, 2, 0x555555));
+        assertEquals(0x555555, texture.getPixel(6, 2));
+        assertEquals(0x000000, texture.getPixel(0, 0));
+
+        // callers that change textures texel by texel work on every format
+        DrawUtils.slBlendTexture(texture, 0x0000FF, 0.5);
+        assertNotEquals(0xFFFFFF, texture.getPixel(0, 1));
+    }
+
+    @Test
+    void compactFormatsUseLessMemory()
+    {
+        // the levels 16 x 4, 8 x 2, 4 x 1, 2 x 1 and 1 x 1
+        int texels = 64 + 16 + 4 + 2 + 1;
+        assertEquals(texels * 4, texture(16, 4).getMemorySize());
+        assertEquals(texels * 2, texture(16, 4, TexelLayout.ROW_MAJOR, TextureFormat.RGB565).getMemorySize());
+        assertEquals(texels, texture(16, 4, TexelLayout.ROW_MAJOR, TextureFormat.PALETTE8).getMemorySize());
+        // 4 + 2 + 1 + 1 + 1 blocks of 8 bytes
+        assertEquals(9 * 8, texture(16, 4, TexelLayout.ROW_MAJOR, TextureFormat.BLOCK_COMPRESSED).getMemorySize());
+    }
+
+    @Test
+    void setsCompactTexels()
+    {
+        Texture texture = texture(4, 4, TexelLayout.ROW_MAJOR, TextureFormat.PALETTE8);
+        assertEquals(0x336699, texture.setPixel(1, 2, 0x346598));
+        assertEquals(0x336699, texture.getPixel(1, 2));
+
+        texture = texture(4, 4, TexelLayout.ROW_MAJOR, TextureFormat.RGB565);
+        assertEquals(0xFF0000, texture.setPixel(3, 3, 0xFF0000));
+        assertEquals(0xFF0000, texture.getPixel(3, 3));
+    }
+
+    @Test
+    void compactFormatsRenderTheirTexels()
+    {
+        // colors RGB565 stores exactly
+        BufferedImage img = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 8; y++)
+        {
+            for (int x = 0; x < 8; x++)
+            {
+                img.setRGB(x, y, ColorUtils.fromRgb565(x * 2113 + y * 7919));
+            }
+        }
+
+        int size = 64;
+        int[] expected = new int[size * size];
+        int[] actual = new int[size * size];
+        Texture[] textures = {new Texture(img), new Texture(img, TexelLayout.MORTON, TextureFormat.RGB565)};
+        int[][] pixels = {expected, actual};
+        for (int i = 0; i < 2; i++)
+        {
+            HalfSpaceRasterizer.texturedTriangle(
+                    0, 0, 0.0, 0.0, 1.0,
+                    size, 0, 1.0, 0.0, 1.0,
+                    0, size, 0.0, 1.0, 1.0,
+                    textures[i], 0, false, false, pixels[i], new ZBuffer(size, size), 0,
+                    0, 0, size, size);
+            HalfSpaceRasterizer.texturedTriangle(
+                    size, size, 3.0, 3.0, 1.0,
+                    size, 0, 3.0, 0.0, 1.0,
+                    0, size, 0.0, 3.0, 1.0,
+                    textures[i], 0, false, false, pixels[i], new ZBuffer(size, size), 0,
+                    0, 0, size, size, TextureFilter.BILINEAR, ColorUtils.CD_WHITE);
+        }
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,104 @@
+package org.test.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisibilityBufferTest
+{
+    private static final int SIZE = 64;
+
+    private static Texture texture(int offset)
+    {
+        BufferedImage img = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 4; y++)
+        {
+            for (int x = 0; x < 4; x++)
+            {
+                img.setRGB(x, y, x + y * 4 + offset);
+            }
+        }
+        return new Texture(img);
+    }
+
+    @Test
+    void matchesForwardHalfSpace()
+    {
+        Random random = new Random(3);
+        Texture[] textures = {texture(1), texture(100)};
+
+        int[] forward = new int[SIZE * SIZE];
+        ZBuffer forwardDepth = new ZBuffer(SIZE, SIZE);
+        int[] deferred = new int[SIZE * SIZE];
+        ZBuffer deferredDepth = new ZBuffer(SIZE, SIZE);
+        VisibilityBuffer visibilityBuffer = new VisibilityBuffer(SIZE, SIZE);
+
+        for (int t = 0; t < 20; t++)
+        {
+            int[] xy = new int[6];
+            double[] uvw = new double[9];
+            for (int i = 0; i < 6; i++) xy[i] = random.nextInt(SIZE + 20) - 10;
+            for (int i = 0; i < 3; i++)
+            {
+                uvw[i * 3 + 2] = 0.2 + random.nextDouble();
+                uvw[i * 3] = random.nextDouble() * uvw[i * 3 + 2];
+                uvw[i * 3 + 1] = random.nextDouble() * uvw[i * 3 + 2];
+            }
+            Texture tex = textures[t % 2];
+
+            HalfSpaceRasterizer.texturedTriangle(
+                    xy[0], xy[1], uvw[0], uvw[1], uvw[2],
+                    xy[2], xy[3], uvw[3], uvw[4], uvw[5],
+                    xy[4], xy[5], uvw[6], uvw[7], uvw[8],
+                    tex, 0, false, false, forward, forwardDepth, 0,
+                    0, 0, SIZE, SIZE);
+
+            int id = visibilityBuffer.add(
+                    xy[0], xy[1], uvw[0], uvw[1], uvw[2],
+                    xy[2], xy[3], uvw[3], uvw[4], uvw[5],
+                    xy[4], xy[5], uvw[6], uvw[7], uvw[8],
+                    tex, 0);
+            assertEquals(t, id);
+
+            // split into two clip rectangles like the tiles of the renderer
+            visibilityBuffer.rasterize(id, deferredDepth, 0, 0, SIZE, SIZE / 2);
+            visibilityBuffer.rasterize(id, deferredDepth, 0, SIZE / 2, SIZE, SIZE);
+        }
+        visibilityBuffer.resolve(deferred, deferredDepth, 0, 0, SIZE, SIZE, 0, false, false);
+
+        int mismatches = 0, drawn = 0;
+        for (int i = 0; i < forward.length; i++)
+        {
+            if (forward[i] != deferred[i]) mismatches++;
+            if (forward[i] != 0) drawn++;
+        }
+        assertTrue(drawn > SIZE * SIZE / 2);
+        // the planes are evaluated from the origin instead of stepped from the corner of the triangle,
+        // so pixels exactly between two texels may round differently
+        assertTrue(mismatches <= drawn / 100, mismatches + " of " + drawn + " pixels differ");
+    }
+
+    @Test
+    void resolveOnlyTouchesPixelsOfTheCurrentFrame()
+    {
+        int[] pixels = new int[SIZE * SIZE];
+        ZBuffer zBuffer = new ZBuffer(SIZE, SIZE);
+        VisibilityBuffer visibilityBuffer = new VisibilityBuffer(SIZE, SIZE);
+
+        int id = visibilityBuffer.add(0, 0, 0, 0, 1, SIZE, 0, 0, 0, 1, 0, SIZE, 0, 0, 1, texture(1), 0);
+        visibilityBuffer.rasterize(id, zBuffer, 0, 0, SIZE, SIZE);
+
+        zBuffer.resetBuffer();
+        visibilityBuffer.reset();
+        assertEquals(0, visibilityBuffer.getTriangleCount());
+
+        visibilityBuffer.resolve(pixels, zBuffer, 0, 0, SIZE, SIZE, 0, false, false);
+        for (int pixel : pixels)
+        {
+            assertEquals(0, pixel);
+        }
+    }
+}
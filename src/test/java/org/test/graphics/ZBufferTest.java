@@ -0,0 +1,86 @@
+package org.test.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZBufferTest
+{
+    @Test
+    void keepsNearestDepth()
+    {
+        ZBuffer zBuffer = new ZBuffer(4, 4);
+        assertTrue(zBuffer.checkDepth(1, 2, 0.5));
+        assertTrue(zBuffer.testAndSet(1 + 2 * 4, 0.5));
+        assertFalse(zBuffer.testAndSet(1 + 2 * 4, 0.25));
+        assertFalse(zBuffer.checkDepth(1, 2, 0.5));
+        assertTrue(zBuffer.checkDepth(1, 2, 0.75));
+        assertEquals(0.5, zBuffer.getDepth(1, 2));
+
+        // checked accessors ignore pixels outside the buffer
+        zBuffer.setDepthValue(4, 0, 1.0);
+        assertFalse(zBuffer.checkDepth(-1, 0, 1.0));
+    }
+
+    @Test
+    void quantizesWithSmallRelativeError()
+    {
+        ZBuffer zBuffer = new ZBuffer(1, 1);
+        for (double depth = 0.001; depth < 1000; depth *= 1.37)
+        {
+            zBuffer.resetBuffer();
+            zBuffer.setDepthValue(0, 0, depth);
+            assertEquals(depth, zBuffer.getDepth(0, 0), depth * 0x1p-18);
+            assertTrue(zBuffer.checkDepth(0, 0, depth * (1 + 0x1p-17)));
+        }
+    }
+
+    @Test
+    void resetSurvivesGenerationWrap()
+    {
+        ZBuffer zBuffer = new ZBuffer(2, 1);
+        for (int frame = 0; frame < 3 * ZBuffer.MAX_GENERATION; frame++)
+        {
+            zBuffer.resetBuffer();
+            assertEquals(0.0, zBuffer.getDepth(0, 0));
+            assertTrue(zBuffer.checkDepth(0, 0, 0.001));
+
+            // a near value of an older frame must not hide a far value of the current one
+            zBuffer.setDepthValue(frame % 2, 0, frame % 2 == 0 ? 100.0 : 0.01);
+            assertFalse(zBuffer.checkDepth(frame % 2, 0, frame % 2 == 0 ? 100.0 : 0.01));
+        }
+    }
+
+    @Test
+    void rejectsTrianglesBehindCoveredTiles()
+    {
+        ZBuffer zBuffer = new ZBuffer(32, 32);
+        assertFalse(zBuffer.isOccluded(0, 0, 7, 7, 0.001));
+
+        // cover the tiles of the top left 16 by 16 pixels, one pixel farther than the rest
+        for (int y = 0; y < 16; y++)
+        {
+            for (int x = 0; x < 16; x++)
+            {
+                zBuffer.testAndSet(x + y * 32, x == 9 && y == 3 ? 0.5 : 1.0);
+            }
+        }
+        zBuffer.invalidate(0, 0, 15, 15);
+
+        assertTrue(zBuffer.isOccluded(0, 0, 7, 7, 0.75));
+        assertTrue(zBuffer.isOccluded(2, 9, 15, 15, 1.0));
+        assertFalse(zBuffer.isOccluded(0, 0, 7, 7, 1.5));
+        assertFalse(zBuffer.isOccluded(8, 0, 15, 7, 0.75));
+        assertFalse(zBuffer.isOccluded(12, 12, 16, 16, 0.75));
+
+        // tiles are only updated when invalidated
+        zBuffer.testAndSet(9 + 3 * 32, 2.0);
+        assertFalse(zBuffer.isOccluded(8, 0, 15, 7, 0.75));
+        zBuffer.invalidate(9, 3, 9, 3);
+        assertTrue(zBuffer.isOccluded(8, 0, 15, 7, 0.75));
+
+        // a new frame is never occluded by the last one
+        zBuffer.resetBuffer();
+        assertFalse(zBuffer.isOccluded(0, 0, 7, 7, 0.001));
+    }
+}
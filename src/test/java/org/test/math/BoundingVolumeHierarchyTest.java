@@ -0,0 +1,155 @@
+package org.test.math;
+
+import org.junit.jupiter.api.Test;
+import org.test.math.matrix.FlatMatrix4x4;
+import org.test.math.matrix.Matrix4x4;
+import org.test.renderer.Camera;
+import org.test.renderer.RasterAssembler;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundingVolumeHierarchyTest
+{
+    private static double[] randomBoxes(Random random, int count)
+    {
+        double[] bounds = new double[count * 6];
+        for (int i = 0; i < count; i++)
+        {
+            for (int a = 0; a < 3; a++)
+            {
+                double min = random.nextDouble() * 100 - 50;
+                bounds[i * 6 + a] = min;
+                bounds[i * 6 + a + 3] = min + random.nextDouble() * 3;
+            }
+        }
+        return bounds;
+    }
+
+    private static Frustum frustum()
+    {
+        Camera camera = new Camera(0, 0, -60);
+        FlatMatrix4x4 matView = new RasterAssembler().calculateViewMatrix(0.1, 0.2, camera, new FlatMatrix4x4());
+        FlatMatrix4x4 matProj = new FlatMatrix4x4(Matrix4x4.projektionMatrix(camera.getfNear(), camera.getfFar(), camera.getA(), camera.getFov()));
+        return new Frustum().set(matView, matProj, camera.getfNear(), camera.getfFar());
+    }
+
+    private static void assertCullMatchesBruteForce(BoundingVolumeHierarchy hierarchy, Frustum frustum, double[] bounds, int count)
+    {
+        boolean[] visible = new boolean[count];
+        hierarchy.cull(frustum, visible);
+
+        int visibleCount = 0;
+        for (int i = 0; i < count; i++)
+        {
+            int b = i * 6;
+            boolean expected = frustum.classify(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4], bounds[b + 5])
+                    != Frustum.Containment.OUTSIDE;
+            assertEquals(expected, visible[i], "item " + i);
+            visibleCount += expected ? 1 : 0;
+        }
+        assertTrue(visibleCount > 0 && visibleCount < count);
+    }
+
+    @Test
+    void cullsLikeBruteForce()
+    {
+        Random random = new Random(1);
+        int count = 2000;
+        double[] bounds = randomBoxes(random, count);
+        BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(4);
+        hierarchy.build(bounds, count);
+
+        assertTrue(hierarchy.getNodeCount() < 2 * count);
+        assertCullMatchesBruteForce(hierarchy, frustum(), bounds, count);
+
+        // move every box and refit the tree instead of rebuilding it
+        for (int i = 0; i < count; i++)
+        {
+            for (int a = 0; a < 3; a++)
+            {
+                double offset = random.nextGaussian() * 20;
+                bounds[i * 6 + a] += offset;
+                bounds[i * 6 + a + 3] += offset;
+            }
+        }
+        hierarchy.refit(bounds);
+        assertCullMatchesBruteForce(hierarchy, frustum(), bounds, count);
+    }
+
+    @Test
+    void findsNearestRayHit()
+    {
+        Random random = new Random(2);
+        int count = 500;
+        double[] bounds = randomBoxes(random, count);
+        BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(2);
+        hierarchy.build(bounds, count);
+
+        for (int r = 0; r < 200; r++)
+        {
+            double ox = random.nextGaussian() * 30, oy = random.nextGaussian() * 30, oz = random.nextGaussian() * 30;
+            double dx = random.nextGaussian(), dy = random.nextGaussian(), dz = random.nextGaussian();
+
+            // the items are the boxes themselves, hit where the ray enters them
+            double expected = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < count; i++)
+            {
+                expected = Math.min(expected, enter(bounds, i, ox, oy, oz, dx, dy, dz));
+            }
+
+            double actual = hierarchy.intersectRay(ox, oy, oz, dx, dy, dz, Double.POSITIVE_INFINITY,
+                    (item, maxDistance) -> Math.min(maxDistance, enter(bounds, item, ox, oy, oz, dx, dy, dz)));
+            assertEquals(expected, actual, 1e-9);
+        }
+    }
+
+    private static double enter(double[] bounds, int item, double ox, double oy, double oz, double dx, double dy, double dz)
+    {
+        double[] o = {ox, oy, oz}, d = {dx, dy, dz};
+        double near = 0, far = Double.POSITIVE_INFINITY;
+        for (int a = 0; a < 3; a++)
+        {
+            double t1 = (bounds[item * 6 + a] - o[a]) / d[a], t2 = (bounds[item * 6 + a + 3] - o[a]) / d[a];
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+
+    @Test
+    void handlesDegenerateInput()
+    {
+        BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(1);
+        hierarchy.build(new double[0], 0);
+        assertEquals(5.0, hierarchy.intersectRay(0, 0, 0, 1, 0, 0, 5.0, (item, max) -> 0.0));
+
+        // all boxes at the same place still end in leaves of one item
+        double[] bounds = new double[10 * 6];
+        for (int i = 0; i < 10; i++)
+        {
+            bounds[i * 6 + 3] = bounds[i * 6 + 4] = bounds[i * 6 + 5] = 1;
+        }
+        hierarchy.build(bounds, 10);
+        assertEquals(19, hierarchy.getNodeCount());
+        assertThrows(IllegalArgumentException.class, () -> new BoundingVolumeHierarchy(0));
+    }
+
+    @Test
+    void hitsWithRaysParallelToBoxFaces()
+    {
+        BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(1);
+        hierarchy.build(new double[]{0, 0, 0, 1, 1, 1, 3, 0, 0, 4, 1, 1}, 2);
+        BoundingVolumeHierarchy.RayIntersector boxHit = (item, max) -> item == 0 ? 1.0 : 2.0;
+
+        // starting exactly on the faces x = 1 and y = 0 along the z axis
+        assertEquals(1.0, hierarchy.intersectRay(1, 0, -1, 0, 0, 1, 10.0, boxHit));
+        assertEquals(1.0, hierarchy.intersectRay(1, 0, -1, -0.0, 0, 1, 10.0, boxHit));
+        // on the face x = 3 of the second box only
+        assertEquals(2.0, hierarchy.intersectRay(3, 0.5, -1, 0, 0, 1, 10.0, boxHit));
+        // just outside the slab of both boxes
+        assertEquals(10.0, hierarchy.intersectRay(2, 0.5, -1, 0, 0, 1, 10.0, boxHit));
+        assertEquals(10.0, hierarchy.intersectRay(0.5, 1.5, -1, 0, 0, 1, 10.0, boxHit));
+    }
+}
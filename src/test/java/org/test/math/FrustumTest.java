@@ -0,0 +1,102 @@
+package org.test.math;
+
+import org.junit.jupiter.api.Test;
+import org.test.math.matrix.FlatMatrix4x4;
+import org.test.math.matrix.Matrix4x4;
+import org.test.math.vector.Vector3D;
+import org.test.renderer.Camera;
+import org.test.renderer.RasterAssembler;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.test.renderer.PanelConfig.getImageHeight;
+import static org.test.renderer.PanelConfig.getImageWidth;
+
+class FrustumTest
+{
+    private final Camera camera = new Camera(1, 2, -3);
+    private final FlatMatrix4x4 matWorldView = new FlatMatrix4x4();
+    private final FlatMatrix4x4 matProj = new FlatMatrix4x4(Matrix4x4.projektionMatrix(
+            camera.getfNear(), camera.getfFar(), camera.getA(), camera.getFov()));
+    private final Frustum frustum;
+
+    FrustumTest()
+    {
+        camera.setfYaw(0.4);
+        camera.setfPitch(-0.2);
+        FlatMatrix4x4 matWorld = new FlatMatrix4x4().setRotationZ(0.3);
+        FlatMatrix4x4 matView = new RasterAssembler().calculateViewMatrix(camera.getfPitch(), camera.getfYaw(), camera, new FlatMatrix4x4());
+        matWorld.mulInto(matView, matWorldView);
+        frustum = new Frustum().set(matWorldView, matProj, camera.getfNear(), camera.getfFar());
+    }
+
+    /**
+     * Projects a point like the geometry stage does and checks if it lands on the screen.
+     * Returns null for points too close to the border to decide.
+     */
+    private Boolean isOnScreen(Vector3D point)
+    {
+        Vector3D view = matWorldView.transformInto(point, new Vector3D());
+        Vector3D clip = matProj.transformInto(view, new Vector3D());
+        double x = (1.0 - clip.x / clip.w) * 0.5 * getImageWidth();
+        double y = (1.0 - clip.y / clip.w) * 0.5 * getImageHeight();
+
+        double margin = Math.min(Math.min(x, getImageWidth() - x), Math.min(y, getImageHeight() - y));
+        double depth = Math.min(view.z - camera.getfNear(), camera.getfFar() - view.z);
+        if (Math.abs(depth) < 1e-6 || (depth > 0 && Math.abs(margin) < 1e-3))
+        {
+            return null;
+        }
+        return depth > 0 && margin > 0;
+    }
+
+    @Test
+    void containsMatchesProjection()
+    {
+        Random random = new Random(42);
+        int visible = 0;
+        for (int i = 0; i < 20000; i++)
+        {
+            Vector3D point = new Vector3D(random.nextGaussian() * 4, random.nextGaussian() * 4, random.nextGaussian() * 4);
+            Boolean onScreen = isOnScreen(point);
+            if (onScreen != null)
+            {
+                assertEquals(onScreen, frustum.contains(point.x, point.y, point.z), point.toString());
+                visible += onScreen ? 1 : 0;
+            }
+        }
+        assertTrue(visible > 100);
+    }
+
+    @Test
+    void classifiesBoxes()
+    {
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++)
+        {
+            double x = random.nextGaussian() * 4, y = random.nextGaussian() * 4, z = random.nextGaussian() * 4;
+            double size = random.nextDouble();
+            BoundingBox box = new BoundingBox(x, y, z, x + size, y + size, z + size);
+
+            // every corner of a box inside is visible, no corner of a box outside is
+            Frustum.Containment containment = frustum.classify(box);
+            for (int corner = 0; corner < 8; corner++)
+            {
+                boolean contains = frustum.contains(
+                        (corner & 1) == 0 ? box.minX : box.maxX,
+                        (corner & 2) == 0 ? box.minY : box.maxY,
+                        (corner & 4) == 0 ? box.minZ : box.maxZ);
+                if (containment == Frustum.Containment.INSIDE) assertTrue(contains);
+                if (containment == Frustum.Containment.OUTSIDE) assertFalse(contains);
+            }
+        }
+
+        // behind the camera, beyond the far plane and around the camera
+        Vector3D eye = camera.getPosition();
+        assertEquals(Frustum.Containment.OUTSIDE, frustum.classify(new BoundingBox(-10, -10, -500, 10, 10, -400)));
+        assertEquals(Frustum.Containment.OUTSIDE, frustum.classify(new BoundingBox(-10, -10, 5000, 10, 10, 5010)));
+        assertEquals(Frustum.Containment.INTERSECTING, frustum.classify(new BoundingBox(
+                eye.x - 1, eye.y - 1, eye.z - 1, eye.x + 1, eye.y + 1, eye.z + 1)));
+    }
+}
@@ -0,0 +1,105 @@
+package org.test.math.matrix;
+
+import org.junit.jupiter.api.Test;
+import org.test.math.vector.Vector3D;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatMatrix4x4Test
+{
+    private static final Matrix4x4 MATRIX = new Matrix4x4(new double[][]{
+            {1, 2, 3, 4},
+            {5, 6, 7, 8},
+            {9, 10, 11, 12},
+            {13, 14, 15, 16}
+    });
+
+    @Test
+    void set()
+    {
+        FlatMatrix4x4 matrix = new FlatMatrix4x4(MATRIX);
+
+        assertEquals(7, matrix.get(1, 2));
+        assertEquals(MATRIX, matrix.toMatrix4x4());
+    }
+
+    @Test
+    void transformInto()
+    {
+        FlatMatrix4x4 matrix = new FlatMatrix4x4(MATRIX);
+        Vector3D vector = new Vector3D(1, 2, 3);
+
+        Vector3D expected = MATRIX.multiplyMatrixVector(vector);
+        assertEquals(expected, matrix.transformInto(vector, new Vector3D()));
+
+        // the input vector can receive the result
+        assertSame(vector, matrix.transformInto(vector, vector));
+        assertEquals(expected, vector);
+    }
+
+    @Test
+    void mulInto()
+    {
+        FlatMatrix4x4 a = new FlatMatrix4x4(MATRIX);
+        FlatMatrix4x4 b = new FlatMatrix4x4(Matrix4x4.translationMatrix(1, 2, 3));
+        FlatMatrix4x4 expected = new FlatMatrix4x4(MATRIX.multiplyMatrix(Matrix4x4.translationMatrix(1, 2, 3)));
+
+        assertEquals(expected, a.mulInto(b, new FlatMatrix4x4()));
+        assertEquals(expected, new FlatMatrix4x4(MATRIX).mulInto(b, b));
+        assertEquals(expected, a.mulInto(new FlatMatrix4x4(Matrix4x4.translationMatrix(1, 2, 3)), a));
+    }
+
+    @Test
+    void rotationAndTranslation()
+    {
+        double angle = 0.7;
+
+        assertEquals(new FlatMatrix4x4(Matrix4x4.rotateMatrixX(angle)), new FlatMatrix4x4().setRotationX(angle));
+        assertEquals(new FlatMatrix4x4(Matrix4x4.rotateMatrixY(angle)), new FlatMatrix4x4().setRotationY(angle));
+        assertEquals(new FlatMatrix4x4(Matrix4x4.rotateMatrixZ(angle)), new FlatMatrix4x4().setRotationZ(angle));
+        assertEquals(new FlatMatrix4x4(Matrix4x4.translationMatrix(1, 2, 3)), new FlatMatrix4x4().setTranslation(1, 2, 3));
+        assertEquals(new FlatMatrix4x4(Matrix4x4.identityMatrix()), new FlatMatrix4x4().setIdentity());
+    }
+
+    @Test
+    void pointAtAndInverse()
+    {
+        Vector3D pos = new Vector3D(1, 2, 3);
+        Vector3D target = new Vector3D(4, 5, 6);
+        Vector3D up = new Vector3D(0, 1, 0);
+
+        Matrix4x4 pointAt = new Matrix4x4().pointAtMatrix(pos, target, up);
+        FlatMatrix4x4 flatPointAt = new FlatMatrix4x4().setPointAt(pos, target, up);
+        assertArrayEquals(new FlatMatrix4x4(pointAt).m, flatPointAt.m, 1e-12);
+
+        FlatMatrix4x4 inverse = flatPointAt.inverseInto(new FlatMatrix4x4());
+        assertArrayEquals(new FlatMatrix4x4(pointAt.inverseMatrix()).m, inverse.m, 1e-12);
+    }
+
+    @Test
+    void affineInverse()
+    {
+        // scaled, rotated and moved
+        FlatMatrix4x4 matrix = new FlatMatrix4x4().setRotationY(0.4)
+                .mulInto(new FlatMatrix4x4().setRotationX(1.1), new FlatMatrix4x4());
+        for (int i = 0; i < 12; i += 4)
+        {
+            matrix.m[i] *= 2;
+            matrix.m[i + 1] *= 0.5;
+            matrix.m[i + 2] *= 3;
+        }
+        matrix.m[12] = 1;
+        matrix.m[13] = -2;
+        matrix.m[14] = 5;
+
+        FlatMatrix4x4 inverse = matrix.affineInverseInto(new FlatMatrix4x4());
+        assertArrayEquals(new FlatMatrix4x4().setIdentity().m, matrix.mulInto(inverse, new FlatMatrix4x4()).m, 1e-12);
+        assertArrayEquals(new FlatMatrix4x4().setIdentity().m, inverse.mulInto(matrix, new FlatMatrix4x4()).m, 1e-12);
+
+        // rotations and translations invert like with inverseInto
+        FlatMatrix4x4 pointAt = new FlatMatrix4x4().setPointAt(new Vector3D(1, 2, 3), new Vector3D(4, 5, 6), new Vector3D(0, 1, 0));
+        assertArrayEquals(pointAt.inverseInto(new FlatMatrix4x4()).m, pointAt.affineInverseInto(new FlatMatrix4x4()).m, 1e-12);
+
+        assertThrows(ArithmeticException.class, () -> new FlatMatrix4x4().affineInverseInto(new FlatMatrix4x4()));
+    }
+}
@@ -0,0 +1,56 @@
+package org.test.math.matrix;
+
+import org.junit.jupiter.api.Test;
+import org.test.math.vector.Vector3D;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformTest
+{
+    @Test
+    void identityByDefault()
+    {
+        assertEquals(new FlatMatrix4x4().setIdentity(), new Transform().getMatrix());
+    }
+
+    @Test
+    void scalesRotatesAndMoves()
+    {
+        Transform transform = new Transform();
+        transform.setScale(2, 3, 4);
+        transform.setRotation(0.3, -1.2, 0.7);
+        transform.setPosition(1, 2, 3);
+
+        FlatMatrix4x4 expected = new FlatMatrix4x4().setIdentity();
+        expected.m[0] = 2;
+        expected.m[5] = 3;
+        expected.m[10] = 4;
+        expected.mulInto(new FlatMatrix4x4().setRotationX(0.3), expected)
+                .mulInto(new FlatMatrix4x4().setRotationY(-1.2), expected)
+                .mulInto(new FlatMatrix4x4().setRotationZ(0.7), expected)
+                .mulInto(new FlatMatrix4x4().setTranslation(1, 2, 3), expected);
+        assertArrayEquals(expected.m, transform.getMatrix().m, 1e-12);
+
+        assertEquals(new Vector3D(1, 2, 3), transform.getPosition());
+        assertEquals(new Vector3D(0.3, -1.2, 0.7), transform.getRotation());
+        assertEquals(new Vector3D(2, 3, 4), transform.getScale());
+    }
+
+    @Test
+    void recomputesOnlyAfterChanges()
+    {
+        Transform transform = new Transform();
+        FlatMatrix4x4 matrix = transform.getMatrix();
+
+        // moving many times only changes the position until the matrix is read
+        for (int i = 0; i < 100; i++)
+        {
+            transform.translate(0, 0, -0.5);
+        }
+        assertEquals(0.0, matrix.m[14]);
+
+        assertSame(matrix, transform.getMatrix());
+        assertEquals(-50.0, matrix.m[14]);
+        assertEquals(new FlatMatrix4x4().setTranslation(0, 0, -50), matrix);
+    }
+}
@@ -0,0 +1,117 @@
+package org.test.math.triangle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MeshCacheTest
+{
+    @TempDir
+    Path dir;
+
+    private Path copyCar() throws IOException
+    {
+        Path source = dir.resolve("car4.obj");
+        Files.copy(Path.of("./assets/car4/car4.obj"), source);
+        return source;
+    }
+
+    @Test
+    void writeAndReadCache() throws IOException
+    {
+        Path source = copyCar();
+        Path cache = MeshCache.getCachePath(source, true);
+
+        VertexBuffer parsed = MeshCache.load(source.toString(), true);
+        assertTrue(Files.exists(cache));
+
+        VertexBuffer cached = MeshCache.load(source.toString(), true);
+        assertNotSame(parsed, cached);
+        assertArrayEquals(parsed.positions, cached.positions);
+        assertArrayEquals(parsed.uvs, cached.uvs);
+        assertArrayEquals(parsed.indices, cached.indices);
+        assertEquals(parsed.bounds, cached.bounds);
+        assertEquals(ObjParser.parse(source.toString()).toTriangles(true), cached.toTriangles());
+    }
+
+    private static Object fileKey(Path path) throws IOException
+    {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    private static long storedModified(Path cache) throws IOException
+    {
+        // after magic, version, textured flag, reserved int and the size of the source
+        return ByteBuffer.wrap(Files.readAllBytes(cache), 24, 8).order(ByteOrder.LITTLE_ENDIAN).getLong();
+    }
+
+    @Test
+    void touchedSourceKeepsCache() throws IOException
+    {
+        Path source = copyCar();
+        Path cache = MeshCache.getCachePath(source, false);
+        MeshCache.load(source.toString(), false);
+
+        // a cache that is rewritten is moved in from a new file, so the file stays the same only if the cache was used
+        Object key = fileKey(cache);
+        assumeTrue(key != null);
+        Files.setLastModifiedTime(source, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+        MeshCache.load(source.toString(), false);
+        assertEquals(key, fileKey(cache));
+    }
+
+    @Test
+    void touchedSourceUpdatesCacheHeader() throws IOException
+    {
+        Path source = copyCar();
+        Path cache = MeshCache.getCachePath(source, true);
+        MeshCache.load(source.toString(), true);
+        Object key = fileKey(cache);
+
+        // every touch is stored once its hash matched, so later launches take the size and time check again
+        for (long touched : new long[]{System.currentTimeMillis() + 60_000, System.currentTimeMillis() + 120_000})
+        {
+            Files.setLastModifiedTime(source, FileTime.fromMillis(touched));
+            MeshCache.load(source.toString(), true);
+            assertEquals(Files.getLastModifiedTime(source).toMillis(), storedModified(cache));
+        }
+        assertEquals(key, fileKey(cache));
+    }
+
+    @Test
+    void changedSourceRebuildsCache() throws IOException
+    {
+        Path source = copyCar();
+        int triangles = MeshCache.load(source.toString(), true).getTriangleCount();
+
+        Files.writeString(source, "\nf 1/1/1 2/2/2 3/3/3\n", StandardOpenOption.APPEND);
+        assertEquals(triangles + 1, MeshCache.load(source.toString(), true).getTriangleCount());
+    }
+
+    @Test
+    void damagedCacheRebuildsCache() throws IOException
+    {
+        Path source = copyCar();
+        Path cache = MeshCache.getCachePath(source, true);
+        VertexBuffer parsed = MeshCache.load(source.toString(), true);
+
+        byte[] bytes = Files.readAllBytes(cache);
+        Files.write(cache, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertArrayEquals(parsed.indices, MeshCache.load(source.toString(), true).indices);
+        assertEquals(bytes.length, Files.size(cache));
+    }
+}
@@ -0,0 +1,84 @@
+package org.test.math.triangle;
+
+import org.junit.jupiter.api.Test;
+import org.test.math.vector.Vector2D;
+import org.test.math.vector.Vector3D;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeshInstanceTest
+{
+    private static Mesh quad()
+    {
+        Vector3D a = new Vector3D(0, 0, 0), b = new Vector3D(1, 0, 0), c = new Vector3D(1, 1, 0), d = new Vector3D(0, 1, 0);
+        return new Mesh(List.of(
+                new Triangle(a, b, c, new Vector2D(0, 0), new Vector2D(1, 0), new Vector2D(1, 1)),
+                new Triangle(a, c, d, new Vector2D(0, 0), new Vector2D(1, 1), new Vector2D(0, 1))
+        ), DrawMode.SURFACE);
+    }
+
+    @Test
+    void bounds()
+    {
+        MeshInstance instance = new MeshInstance(quad());
+        instance.transform.setRotation(0, 0, Math.PI / 2);
+        instance.transform.translate(5, 0, 1);
+
+        // the quad is turned into the negative x half before it is moved
+        double[] bounds = new double[8];
+        instance.getBounds(bounds, 2);
+        assertArrayEquals(new double[]{0, 0, 4, 0, 1, 5, 1, 1}, bounds, 1e-12);
+    }
+
+    @Test
+    void batchesInstancesOfTheSameMesh()
+    {
+        Mesh mesh = quad(), other = quad();
+        MeshInstance first = new MeshInstance(mesh), second = new MeshInstance(mesh), third = new MeshInstance(other);
+        PolygonGroup group = new PolygonGroup();
+        group.addInstance(first);
+        group.addInstance(third);
+        group.addInstance(second);
+
+        assertEquals(2, group.getBatches().size());
+        assertSame(mesh, group.getBatches().get(0).mesh);
+        assertEquals(List.of(first, second), group.getBatches().get(0).instances);
+        assertEquals(3, group.getInstanceCount());
+
+        group.removeInstance(third);
+        assertEquals(1, group.getBatches().size());
+        assertEquals(2, group.getInstanceCount());
+    }
+
+    @Test
+    void raycastInstances()
+    {
+        // one quad drawn twice, the far copy twice as large
+        Mesh mesh = quad();
+        MeshInstance near = new MeshInstance(mesh);
+        MeshInstance far = new MeshInstance(mesh);
+        far.transform.setScale(2);
+        far.transform.translate(0, 0, 5);
+
+        PolygonGroup group = new PolygonGroup();
+        group.addInstance(far);
+        group.addInstance(near);
+
+        RayHit hit = group.raycast(new Vector3D(0.75, 0.25, -2), new Vector3D(0, 0, 1));
+        assertSame(near, hit.instance);
+        assertSame(mesh, hit.mesh);
+        assertEquals(2.0, hit.distance, 1e-6);
+
+        // only the scaled copy reaches this far, distances are measured in the scene
+        hit = group.raycast(new Vector3D(1.5, 0.25, -2), new Vector3D(0, 0, 1));
+        assertSame(far, hit.instance);
+        assertEquals(7.0, hit.distance, 1e-6);
+
+        // moving an instance leaves the shared vertices alone
+        near.transform.translate(0, 0, 10);
+        assertEquals(0, mesh.vertexBuffer.bounds.minZ);
+        assertSame(far, group.raycast(new Vector3D(0.75, 0.25, -2), new Vector3D(0, 0, 1)).instance);
+    }
+}
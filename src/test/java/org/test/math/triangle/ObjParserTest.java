@@ -0,0 +1,98 @@
+package org.test.math.triangle;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjParserTest
+{
+    private static ObjModel parse(String content)
+    {
+        return ObjParser.parse(ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void parseAttributes()
+    {
+        ObjModel model = parse("""
+                # comment
+                mtllib scene.mtl
+                v 1.5 -2 3e1
+                v\t-0.25 .5 +4.
+                vt 0.1 0.9 0
+                vn 0 1 0\r
+                f 1/1/1 2/1/1 1//1 # trailing comment
+                """);
+
+        assertArrayEquals(new float[]{1.5f, -2f, 30f, -0.25f, 0.5f, 4f}, model.positions);
+        assertArrayEquals(new float[]{0.1f, 0.9f}, model.texCoords);
+        assertArrayEquals(new float[]{0f, 1f, 0f}, model.normals);
+        assertArrayEquals(new int[]{0, 1, 0}, model.positionIndices);
+        assertArrayEquals(new int[]{0, 0, -1}, model.texCoordIndices);
+        assertArrayEquals(new int[]{0, 0, 0}, model.normalIndices);
+    }
+
+    @Test
+    void triangulateFacesAndNegativeIndices()
+    {
+        ObjModel model = parse("""
+                v 0 0 0
+                v 1 0 0
+                v 1 1 0
+                v 0 1 0
+                v 0 2 0
+                f 1 2 3 4
+                f -5 -4 -3 -2 -1
+                """);
+
+        assertEquals(5, model.getTriangleCount());
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3, 0, 1, 2, 0, 2, 3, 0, 3, 4}, model.positionIndices);
+    }
+
+    @Test
+    void parseFloatMatchesFloatParseFloat()
+    {
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder();
+        float[] expected = new float[3000];
+        for (int i = 0; i < expected.length; i++)
+        {
+            String number = switch (i % 3)
+            {
+                case 0 -> String.format(Locale.ROOT, "%.6f", (random.nextDouble() - 0.5) * 200);
+                case 1 -> Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(12) - 6));
+                default -> String.format(Locale.ROOT, "%.9e", random.nextGaussian());
+            };
+            expected[i] = Float.parseFloat(number);
+            content.append(i % 3 == 0 ? "v" : "").append(' ').append(number).append(i % 3 == 2 ? "\n" : "");
+        }
+
+        assertArrayEquals(expected, parse(content.toString()).positions);
+    }
+
+    @Test
+    void invalidContent()
+    {
+        assertThrows(IllegalArgumentException.class, () -> parse("v 1 2 3\nf 1 2 4\n"));
+        assertThrows(IllegalArgumentException.class, () -> parse("v 1 2 3\nf 1 1\n"));
+        assertThrows(IllegalArgumentException.class, () -> parse("v 1 x 3\n"));
+        assertThrows(IllegalArgumentException.class, () -> ObjParser.parse("./assets/missing.obj"));
+    }
+
+    @Test
+    void vertexBufferMatchesTriangles()
+    {
+        ObjModel model = ObjParser.parse("./assets/car4/car4.obj");
+        List<Triangle> triangles = model.toTriangles(true);
+
+        VertexBuffer vertexBuffer = model.toVertexBuffer(true);
+        assertEquals(triangles, vertexBuffer.toTriangles());
+        assertTrue(vertexBuffer.getVertexCount() < triangles.size() * 3);
+    }
+}
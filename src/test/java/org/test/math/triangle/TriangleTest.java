@@ -46,4 +46,36 @@ class TriangleTest
         assertEquals(out[0].vec3D, new Vector3D(0, 0, 0)); // Check the position of the first vertex
         assertEquals(out[0].vec2D, new Vector2D(0, 0)); // Check the texture coordinates of the first vertex
     }
-}
\ No newline at end of file
+
+    @Test
+    void triangleClipAgainstPlaneInto()
+    {
+        Vector3D plane_p = new Vector3D(0, 0, 0.1);
+        Vector3D plane_n = new Vector3D(0, 0, 1);
+
+        // every combination of inside and outside vertices
+        for (int mask = 0; mask < 8; mask++)
+        {
+            Triangle triangle = new Triangle
+                    (
+                            new Vector3D(0, 0, (mask & 1) != 0 ? 2 : -1),
+                            new Vector3D(1, 0, (mask & 2) != 0 ? 3 : -2),
+                            new Vector3D(0, 1, (mask & 4) != 0 ? 1 : -3),
+                            new Vector2D(0, 0),
+                            new Vector2D(1, 0),
+                            new Vector2D(0, 1)
+                    );
+
+            Triangle[] expected = Triangle.getNearestPlane();
+            Triangle[] out = Triangle.getNearestPlane();
+            int count = triangle.triangleClipAgainstPlane(plane_p, plane_n, expected);
+
+            assertEquals(count, triangle.triangleClipAgainstPlaneInto(plane_p, plane_n, out));
+            for (int i = 0; i < count; i++)
+            {
+                assertEquals(expected[i], out[i]);
+                assertNotSame(triangle.vec3D, out[i].vec3D);
+            }
+        }
+    }
+}
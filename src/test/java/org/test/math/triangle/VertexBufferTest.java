@@ -0,0 +1,87 @@
+package org.test.math.triangle;
+
+import org.junit.jupiter.api.Test;
+import org.test.math.vector.Vector2D;
+import org.test.math.vector.Vector3D;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VertexBufferTest
+{
+    private static List<Triangle> quad()
+    {
+        Vector3D a = new Vector3D(0, 0, 0), b = new Vector3D(1, 0, 0), c = new Vector3D(1, 1, 0), d = new Vector3D(0, 1, 0);
+        return List.of(
+                new Triangle(a, b, c, new Vector2D(0, 0), new Vector2D(1, 0), new Vector2D(1, 1)),
+                new Triangle(a, c, d, new Vector2D(0, 0), new Vector2D(1, 1), new Vector2D(0, 1))
+        );
+    }
+
+    @Test
+    void fromTriangles()
+    {
+        VertexBuffer buffer = VertexBuffer.fromTriangles(quad());
+
+        // the two shared corners are only stored once
+        assertEquals(4, buffer.getVertexCount());
+        assertEquals(2, buffer.getTriangleCount());
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3}, buffer.indices);
+    }
+
+    @Test
+    void getTriangle()
+    {
+        List<Triangle> triangles = quad();
+        VertexBuffer buffer = VertexBuffer.fromTriangles(triangles);
+
+        Triangle out = new Triangle();
+        buffer.getTriangle(1, out);
+        assertEquals(triangles.get(1), out);
+        assertEquals(triangles, buffer.toTriangles());
+    }
+
+    @Test
+    void translate()
+    {
+        VertexBuffer buffer = VertexBuffer.fromTriangles(quad());
+        buffer.translate(1, 2, 3);
+
+        Triangle out = new Triangle();
+        buffer.getTriangle(0, out);
+        assertEquals(new Vector3D(2, 2, 3), out.vec3D2);
+    }
+
+    @Test
+    void invalidLayout()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new VertexBuffer(new float[4], new float[2], new int[3]));
+    }
+
+    @Test
+    void raycast()
+    {
+        // two quads facing the camera, one behind the other
+        Mesh near = new Mesh(quad(), DrawMode.SURFACE);
+        Mesh far = new Mesh(quad(), DrawMode.SURFACE);
+        far.vertexBuffer.translate(0, 0, 5);
+        PolygonGroup group = new PolygonGroup();
+        group.addMesh(far);
+        group.addMesh(near);
+
+        RayHit hit = group.raycast(new Vector3D(0.75, 0.25, -2), new Vector3D(0, 0, 1));
+        assertSame(near, hit.mesh);
+        assertEquals(0, hit.triangle);
+        assertEquals(2.0, hit.distance, 1e-6);
+
+        assertFalse(group.raycast(new Vector3D(2, 2, -2), new Vector3D(0, 0, 1)).isHit());
+
+        // the hierarchies follow moved meshes
+        near.vertexBuffer.translate(0, 0, 10);
+        hit = group.raycast(new Vector3D(0.25, 0.75, -2), new Vector3D(0, 0, 1));
+        assertSame(far, hit.mesh);
+        assertEquals(1, hit.triangle);
+        assertEquals(7.0, hit.distance, 1e-6);
+    }
+}
@@ -99,4 +99,29 @@ class Vector3DTest
         double result = v.dist(plane_n, plane_p);
         assertEquals(3, result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void intoOperations()
+    {
+        Vector3D v1 = new Vector3D(1, 2, 3);
+        Vector3D v2 = new Vector3D(4, 5, 6);
+        Vector3D out = new Vector3D();
+
+        assertEquals(v1.addVector(v2), v1.addInto(v2, out));
+        assertEquals(v1.subtractVector(v2), v1.subtractInto(v2, out));
+        assertEquals(v1.crossProduct(v2), v1.crossInto(v2, out));
+
+        // the result can be written into one of the operands
+        Vector3D expected = v1.crossProduct(v2);
+        assertEquals(expected, v1.crossInto(v2, v1));
+    }
+
+    @Test
+    void normalizeInPlace()
+    {
+        Vector3D v = new Vector3D(2, 2, 2);
+        Vector3D expected = v.normalizeVector();
+        assertSame(v, v.normalizeInPlace());
+        assertEquals(expected, v);
+    }
+}
@@ -0,0 +1,33 @@
+package org.test.objects;
+
+import org.junit.jupiter.api.Test;
+import org.test.graphics.TextureCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarTest
+{
+    private static final String TEXTURE = "./assets/car4/car4.png";
+
+    @Test
+    void releasesTextureWithSharedMesh()
+    {
+        TextureCache cache = TextureCache.getInstance();
+        Car.releaseMesh();
+        int references = cache.getReferenceCount(TEXTURE);
+
+        // all cars hold one reference through their shared mesh
+        Car first = new Car(), second = new Car();
+        assertSame(first.getMeshes().get(0), second.getMeshes().get(0));
+        assertEquals(references + 1, cache.getReferenceCount(TEXTURE));
+
+        Car.releaseMesh();
+        assertEquals(references, cache.getReferenceCount(TEXTURE));
+        Car.releaseMesh();
+        assertEquals(references, cache.getReferenceCount(TEXTURE));
+
+        // the next car loads the mesh again
+        assertNotSame(first.getMeshes().get(0), new Car().getMeshes().get(0));
+        assertEquals(references + 1, cache.getReferenceCount(TEXTURE));
+    }
+}
@@ -0,0 +1,73 @@
+package org.test.renderer;
+
+import org.junit.jupiter.api.Test;
+import org.test.math.triangle.Triangle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepthSorterTest
+{
+    private static Triangle triangle(double w1, double w2, double w3)
+    {
+        Triangle triangle = new Triangle();
+        triangle.vec2D.w = w1;
+        triangle.vec2D2.w = w2;
+        triangle.vec2D3.w = w3;
+        return triangle;
+    }
+
+    private static double nearest(Triangle triangle)
+    {
+        return Math.max(Math.abs(triangle.vec2D.w), Math.max(Math.abs(triangle.vec2D2.w), Math.abs(triangle.vec2D3.w)));
+    }
+
+    @Test
+    void sortsNearestFirst()
+    {
+        Random random = new Random(7);
+        DepthSorter sorter = new DepthSorter();
+
+        // grows the buffers on the second list
+        for (int size : new int[]{500, 5000})
+        {
+            List<Triangle> triangles = new ArrayList<>();
+            for (int i = 0; i < size; i++)
+            {
+                // 1 / w is negative in front of the camera, the sorter compares magnitudes
+                triangles.add(triangle(-random.nextDouble() * 10, -random.nextDouble(), -Math.pow(10, random.nextInt(8) - 4)));
+            }
+
+            sorter.sort(triangles);
+
+            assertEquals(size, triangles.size());
+            for (int i = 1; i < size; i++)
+            {
+                assertTrue(DepthSorter.key(triangles.get(i - 1)) <= DepthSorter.key(triangles.get(i)));
+                // the keys only keep a part of the mantissa
+                assertTrue(nearest(triangles.get(i - 1)) >= nearest(triangles.get(i)) * (1 - 1e-4));
+            }
+        }
+    }
+
+    @Test
+    void keepsOrderOfEqualDepths()
+    {
+        List<Triangle> triangles = new ArrayList<>();
+        Triangle far = triangle(0.1, 0.1, 0.1);
+        Triangle first = triangle(0.5, 0.2, 0.1);
+        Triangle second = triangle(0.1, 0.5, 0.3);
+        Triangle near = triangle(0.9, 0.1, 0.1);
+        triangles.add(far);
+        triangles.add(first);
+        triangles.add(second);
+        triangles.add(near);
+
+        new DepthSorter().sort(triangles);
+
+        assertEquals(List.of(near, first, second, far), triangles);
+    }
+}
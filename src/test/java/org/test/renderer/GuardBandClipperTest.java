@@ -0,0 +1,115 @@
+package org.test.renderer;
+
+import org.junit.jupiter.api.Test;
+import org.test.math.matrix.FlatMatrix4x4;
+import org.test.math.matrix.Matrix4x4;
+import org.test.math.triangle.Triangle;
+import org.test.math.vector.Vector2D;
+import org.test.math.vector.Vector3D;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.test.renderer.GuardBandClipper.*;
+
+class GuardBandClipperTest
+{
+    private final Camera camera = new Camera(0, 0, 0);
+    private final FlatMatrix4x4 matProj = new FlatMatrix4x4(Matrix4x4.projektionMatrix(
+            camera.getfNear(), camera.getfFar(), camera.getA(), camera.getFov()));
+    private final GuardBandClipper clipper = new GuardBandClipper();
+
+    GuardBandClipperTest()
+    {
+        clipper.setProjection(matProj);
+    }
+
+    /**
+     * Projects a triangle given in view space into clip space, every corner gets its own texture coordinates.
+     */
+    private Triangle project(double... view)
+    {
+        Triangle triangle = new Triangle();
+        Vector3D[] positions = {triangle.vec3D, triangle.vec3D2, triangle.vec3D3};
+        Vector2D[] textures = {triangle.vec2D, triangle.vec2D2, triangle.vec2D3};
+        for (int i = 0; i < 3; i++)
+        {
+            matProj.transformInto(new Vector3D(view[i * 3], view[i * 3 + 1], view[i * 3 + 2]), positions[i]);
+            textures[i].u = i == 1 ? 1 : 0;
+            textures[i].v = i == 2 ? 1 : 0;
+            textures[i].w = 1;
+        }
+        return triangle;
+    }
+
+    @Test
+    void classify()
+    {
+        assertEquals(ACCEPT, clipper.classify(project(-1, -1, 10, 1, -1, 10, 0, 1, 10)));
+        assertEquals(REJECT, clipper.classify(project(-40, -1, 10, -30, -1, 10, -35, 1, 10)));
+        assertEquals(REJECT, clipper.classify(project(-1, 30, 10, 1, 30, 10, 0, 40, 10)));
+        assertEquals(CLIP, clipper.classify(project(-1, -1, 10, 100, -1, 10, 0, 1, 10)));
+    }
+
+    @Test
+    void triangleInsideScreenIsNotChanged()
+    {
+        Triangle triangle = project(-1, -1, 10, 1, -1, 10, 0, 1, 10);
+        assertEquals(1, clipper.clip(triangle));
+
+        Triangle clipped = new Triangle();
+        clipper.getTriangle(0, clipped);
+        assertEquals(triangle.vec3D2.x, clipped.vec3D2.x, 1e-12);
+        assertEquals(triangle.vec3D3.w, clipped.vec3D3.w, 1e-12);
+        assertEquals(1, clipped.vec2D2.u, 1e-12);
+    }
+
+    @Test
+    void clippedCornersLieOnTheTriangleInsideTheGuardBand()
+    {
+        Triangle triangle = project(-200, -3, 4, 150, -90, 30, 20, 300, 12);
+        assertEquals(CLIP, clipper.classify(triangle));
+
+        int count = clipper.clip(triangle);
+        assertTrue(count >= 2, "a triangle covering the whole guard band is a polygon with more than three corners");
+
+        Triangle clipped = new Triangle();
+        for (int i = 0; i < count; i++)
+        {
+            clipper.getTriangle(i, clipped);
+            for (int corner = 0; corner < 3; corner++)
+            {
+                Vector3D p = corner == 0 ? clipped.vec3D : corner == 1 ? clipped.vec3D2 : clipped.vec3D3;
+                Vector2D t = corner == 0 ? clipped.vec2D : corner == 1 ? clipped.vec2D2 : clipped.vec2D3;
+
+                assertTrue(Math.abs(p.x / p.w) <= GUARD_BAND + 1e-9);
+                assertTrue(Math.abs(p.y / p.w) <= GUARD_BAND + 1e-9);
+
+                // the barycentric weights of the corner in clip space have to give its depth and texture coordinates
+                double[] weights = weights(triangle, p);
+                assertEquals(weights[0] + weights[1] + weights[2], 1, 1e-9);
+                assertEquals(weights[0] * triangle.vec3D.z + weights[1] * triangle.vec3D2.z + weights[2] * triangle.vec3D3.z, p.z, 1e-6);
+                assertEquals(weights[1], t.u, 1e-9);
+                assertEquals(weights[2], t.v, 1e-9);
+                assertEquals(1, t.w, 1e-9);
+            }
+        }
+    }
+
+    /**
+     * Solves p = a * vec3D + b * vec3D2 + c * vec3D3 for x, y and w with Cramer's rule.
+     */
+    private double[] weights(Triangle triangle, Vector3D p)
+    {
+        Vector3D a = triangle.vec3D, b = triangle.vec3D2, c = triangle.vec3D3;
+        double det = determinant(a.x, b.x, c.x, a.y, b.y, c.y, a.w, b.w, c.w);
+        return new double[]{
+                determinant(p.x, b.x, c.x, p.y, b.y, c.y, p.w, b.w, c.w) / det,
+                determinant(a.x, p.x, c.x, a.y, p.y, c.y, a.w, p.w, c.w) / det,
+                determinant(a.x, b.x, p.x, a.y, b.y, p.y, a.w, b.w, p.w) / det
+        };
+    }
+
+    private static double determinant(double a, double b, double c, double d, double e, double f, double g, double h, double i)
+    {
+        return a * (e * i - f * h) - b * (d * i - f * g) + c * (d * h - e * g);
+    }
+}
@@ -0,0 +1,36 @@
+package org.test.renderer;
+
+import org.junit.jupiter.api.Test;
+import org.test.math.matrix.FlatMatrix4x4;
+import org.test.math.vector.Vector3D;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RasterAssemblerTest
+{
+    @Test
+    void assembleVerticesMatchesTransform()
+    {
+        float[] positions = {1, 2, 3, -4, 0.5f, 6, 0, 0, -1};
+        FlatMatrix4x4 matWorld = new FlatMatrix4x4().setRotationZ(0.3).mulInto(new FlatMatrix4x4().setTranslation(0, 0, 5), new FlatMatrix4x4());
+        FlatMatrix4x4 matView = new FlatMatrix4x4();
+        new FlatMatrix4x4().setPointAt(new Vector3D(1, 2, -3), new Vector3D(0, 0, 1), new Vector3D(0, 1, 0)).inverseInto(matView);
+
+        double[] world = new double[positions.length];
+        double[] view = new double[positions.length];
+        new RasterAssembler().assembleVertices(positions, 0, 3, matWorld, matView, world, view);
+
+        for (int v = 0; v < 3; v++)
+        {
+            Vector3D expectedWorld = matWorld.transformInto(new Vector3D(positions[v * 3], positions[v * 3 + 1], positions[v * 3 + 2]), new Vector3D());
+            Vector3D expectedView = matView.transformInto(expectedWorld, new Vector3D());
+
+            assertEquals(expectedWorld.x, world[v * 3]);
+            assertEquals(expectedWorld.y, world[v * 3 + 1]);
+            assertEquals(expectedWorld.z, world[v * 3 + 2]);
+            assertEquals(expectedView.x, view[v * 3]);
+            assertEquals(expectedView.y, view[v * 3 + 1]);
+            assertEquals(expectedView.z, view[v * 3 + 2]);
+        }
+    }
+}
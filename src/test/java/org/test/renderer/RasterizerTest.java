@@ -0,0 +1,137 @@
+package org.test.renderer;
+
+import org.junit.jupiter.api.Test;
+import org.test.graphics.ColorUtils;
+import org.test.math.triangle.DrawMode;
+import org.test.math.triangle.InstanceBatch;
+import org.test.math.triangle.Mesh;
+import org.test.math.triangle.MeshInstance;
+import org.test.math.triangle.Triangle;
+import org.test.renderdata.RenderSettings;
+import org.test.scene.Scene;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RasterizerTest
+{
+    @Test
+    void parallelMatchesSerial()
+    {
+        RenderSettings settings = RenderSettings.getInstance();
+        int renderThreads = settings.getRenderThreads();
+        new RenderEngine(new Scene(), true);
+
+        // one mesh large enough to be split into several chunks
+        List<Triangle> car = settings.getPolygonGroup().getBatches().get(0).mesh.vertexBuffer.toTriangles();
+        List<Triangle> triangles = new ArrayList<>();
+        while (triangles.size() <= 2 * Rasterizer.CHUNK_SIZE)
+        {
+            triangles.addAll(car);
+        }
+        Mesh mesh = new Mesh(triangles, DrawMode.TEXTURED);
+        settings.getPolygonGroup().addMesh(mesh);
+
+        Rasterizer rasterizer = new Rasterizer(new RasterAssembler());
+        try
+        {
+            settings.setRenderThreads(1);
+            List<List<Triangle>> serial = copy(rasterizer.raster());
+
+            settings.setRenderThreads(4);
+            List<List<Triangle>> parallel = copy(rasterizer.raster());
+
+            assertTrue(serial.stream().mapToInt(List::size).sum() > 0);
+            assertEquals(serial, parallel);
+        }
+        finally
+        {
+            settings.getPolygonGroup().removeMesh(mesh);
+            settings.setRenderThreads(renderThreads);
+        }
+    }
+
+    @Test
+    void skipsMeshesOutsideFrustum()
+    {
+        RenderSettings settings = RenderSettings.getInstance();
+        new RenderEngine(new Scene(), true);
+        Rasterizer rasterizer = new Rasterizer(new RasterAssembler());
+        int visible = count(rasterizer.raster());
+
+        // the same mesh once more, moved behind the camera
+        Mesh mesh = new Mesh(settings.getPolygonGroup().getBatches().get(0).mesh.vertexBuffer.toTriangles(), DrawMode.TEXTURED);
+        mesh.vertexBuffer.translate(0, 0, -100);
+        settings.getPolygonGroup().addMesh(mesh);
+        try
+        {
+            assertTrue(visible > 0);
+            assertEquals(visible, count(rasterizer.raster()));
+
+            mesh.vertexBuffer.translate(0, 0, 100);
+            assertEquals(2 * visible, count(rasterizer.raster()));
+        }
+        finally
+        {
+            settings.getPolygonGroup().removeMesh(mesh);
+        }
+    }
+
+    @Test
+    void rastersInstancesIntoOneList()
+    {
+        RenderSettings settings = RenderSettings.getInstance();
+        new RenderEngine(new Scene(), true);
+        Rasterizer rasterizer = new Rasterizer(new RasterAssembler());
+        int visible = count(rasterizer.raster());
+
+        // the car once more, moved a little and tinted
+        InstanceBatch batch = settings.getPolygonGroup().getBatches().get(0);
+        MeshInstance instance = new MeshInstance(batch.mesh);
+        instance.transform.translate(0.5, 0, 0);
+        instance.tint = ColorUtils.CD_RED;
+        settings.getPolygonGroup().addInstance(instance);
+        try
+        {
+            Map<List<Triangle>, DrawMode> trisToRender = rasterizer.raster();
+            assertEquals(1, trisToRender.size());
+            List<Triangle> triangles = trisToRender.keySet().iterator().next();
+            assertTrue(triangles.size() > visible);
+            assertEquals(visible, triangles.stream().filter(t -> t.tint == ColorUtils.CD_WHITE).count());
+            assertTrue(triangles.stream().anyMatch(t -> t.tint == ColorUtils.CD_RED));
+
+            // culled like a mesh of its own
+            instance.transform.translate(0, 0, -100);
+            assertEquals(visible, count(rasterizer.raster()));
+        }
+        finally
+        {
+            settings.getPolygonGroup().removeInstance(instance);
+        }
+    }
+
+    private static int count(Map<List<Triangle>, DrawMode> trisToRender)
+    {
+        return trisToRender.keySet().stream().mapToInt(List::size).sum();
+    }
+
+    private static List<List<Triangle>> copy(Map<List<Triangle>, DrawMode> trisToRender)
+    {
+        List<List<Triangle>> lists = new ArrayList<>();
+        for (List<Triangle> list : trisToRender.keySet())
+        {
+            List<Triangle> copies = new ArrayList<>();
+            for (Triangle tri : list)
+            {
+                Triangle copy = new Triangle();
+                copy.setTriangle(tri);
+                copies.add(copy);
+            }
+            lists.add(copies);
+        }
+        return lists;
+    }
+}
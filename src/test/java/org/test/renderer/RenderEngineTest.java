@@ -0,0 +1,37 @@
+package org.test.renderer;
+
+import org.junit.jupiter.api.Test;
+import org.test.scene.Scene;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.test.renderer.PanelConfig.getImageHeight;
+import static org.test.renderer.PanelConfig.getImageWidth;
+
+class RenderEngineTest
+{
+    @Test
+    void renderFrameHeadless()
+    {
+        RenderEngine engine = new RenderEngine(new Scene(), true);
+        assertTrue(engine.isHeadless());
+
+        BufferedImage frame = engine.renderFrame();
+        assertEquals((int) getImageWidth(), frame.getWidth());
+        assertEquals((int) getImageHeight(), frame.getHeight());
+
+        // the car in the default scene has to leave some non black pixels in the frame
+        int[] pixels = frame.getRGB(0, 0, frame.getWidth(), frame.getHeight(), null, 0, frame.getWidth());
+        boolean drawn = false;
+        for (int pixel : pixels)
+        {
+            if ((pixel & 0xffffff) != 0)
+            {
+                drawn = true;
+                break;
+            }
+        }
+        assertTrue(drawn);
+    }
+}
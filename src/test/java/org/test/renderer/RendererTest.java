@@ -0,0 +1,78 @@
+package org.test.renderer;
+
+import org.junit.jupiter.api.Test;
+import org.test.math.triangle.DrawMode;
+import org.test.math.triangle.Triangle;
+import org.test.renderdata.RenderSettings;
+import org.test.scene.Scene;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.test.graphics.ColorUtils.CD_BLACK;
+
+class RendererTest
+{
+    @Test
+    void tiledMatchesSerial()
+    {
+        RenderSettings settings = RenderSettings.getInstance();
+        int renderThreads = settings.getRenderThreads();
+        new RenderEngine(new Scene(), true);
+
+        Map<List<Triangle>, DrawMode> trisToRender = new Rasterizer(new RasterAssembler()).raster();
+        Renderer renderer = new Renderer();
+
+        try
+        {
+            settings.setRenderThreads(1);
+            renderer.render(trisToRender);
+            int[] serial = settings.getPixels().clone();
+
+            settings.setRenderThreads(4);
+            renderer.render(trisToRender);
+            assertArrayEquals(serial, settings.getPixels());
+        }
+        finally
+        {
+            settings.setRenderThreads(renderThreads);
+        }
+    }
+
+    @Test
+    void visibilityBufferTiledMatchesSerial()
+    {
+        RenderSettings settings = RenderSettings.getInstance();
+        int renderThreads = settings.getRenderThreads();
+        new RenderEngine(new Scene(), true);
+
+        Map<List<Triangle>, DrawMode> trisToRender = new Rasterizer(new RasterAssembler()).raster();
+        Renderer renderer = new Renderer();
+
+        try
+        {
+            settings.setVisibilityBuffer(true);
+            settings.setRenderThreads(1);
+            renderer.render(trisToRender);
+            int[] serial = settings.getPixels().clone();
+
+            settings.setRenderThreads(4);
+            renderer.render(trisToRender);
+            assertArrayEquals(serial, settings.getPixels());
+            assertTrue(Arrays.stream(serial).anyMatch(pixel -> pixel != CD_BLACK));
+        }
+        finally
+        {
+            settings.setVisibilityBuffer(false);
+            settings.setRenderThreads(renderThreads);
+        }
+    }
+
+    @Test
+    void invalidRenderThreads()
+    {
+        assertThrows(IllegalArgumentException.class, () -> RenderSettings.getInstance().setRenderThreads(0));
+    }
+}